@@ -0,0 +1,90 @@
+package gnu.trove.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.list.linked.TIntLinkedList;
+import gnu.trove.queue.array.TIntArrayDeque;
+
+/**
+ * Compares an {@link ArrayDeque} of boxed ints, a {@link TIntLinkedList},
+ * which allocates a node per value, and a {@link TIntArrayDeque} as a
+ * sliding window of constant size over a stream of ints. Each step appends
+ * the next value and removes the oldest one. Scores are steps per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArrayDequeBenchmark {
+
+    private static final int STEPS = 1 << 16;
+
+    @Param({"1024"})
+    public int size;
+
+    private ArrayDeque<Integer> boxed;
+    private TIntLinkedList linked;
+    private TIntArrayDeque primitive;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        boxed = new ArrayDeque<Integer>(size);
+        linked = new TIntLinkedList();
+        primitive = new TIntArrayDeque(size);
+        for (next = 0; next < size; next++) {
+            boxed.addLast(next);
+            linked.add(next);
+            primitive.addLast(next);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long boxed() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            boxed.addLast(next++);
+            sum += boxed.pollFirst();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long linked() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            linked.add(next++);
+            sum += linked.removeAt(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long primitive() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            primitive.addLast(next++);
+            sum += primitive.pollFirst();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,119 @@
+package gnu.trove.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.hash.TLongLongOffheapCache;
+import gnu.trove.map.hash.TLongObjectCache;
+
+/**
+ * Compares a bounded LRU cache built from an access ordered
+ * {@link LinkedHashMap} of boxed longs against a {@link TLongObjectCache},
+ * which evicts with CLOCK bits kept beside its table, and against a
+ * {@link TLongLongOffheapCache}, which keeps the same layout in native
+ * memory. Each lookup gets an id drawn from a skewed distribution over a
+ * range four times the size of the cache, and puts it on a miss. Scores are lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+    private static final int LOOKUPS = 1 << 14;
+
+    private static final Object VALUE = new Object();
+
+    @Param({"65536"})
+    public int size;
+
+    private Map<Long, Object> java;
+    private TLongObjectCache<Object> trove;
+    private TLongLongOffheapCache offheap;
+    private long[] ids;
+
+    @Setup
+    public void setUp() {
+        final int max = size;
+        java = new LinkedHashMap<Long, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Object> eldest) {
+                return size() > max;
+            }
+        };
+        trove = new TLongObjectCache<Object>(size);
+        offheap = new TLongLongOffheapCache(size);
+        Random random = new Random(42);
+        ids = new long[LOOKUPS];
+        for (int i = 0; i < ids.length; i++) {
+            // squaring a uniform value favours the small ids
+            double u = random.nextDouble();
+            ids[i] = (long) (u * u * size * 4) * 0x9E3779B97F4A7C15L;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        offheap.free();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int java() {
+        int hits = 0;
+        for (long id : ids) {
+            if (java.get(id) == null) {
+                java.put(id, VALUE);
+            } else {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int trove() {
+        int hits = 0;
+        for (long id : ids) {
+            if (trove.get(id) == null) {
+                trove.put(id, VALUE);
+            } else {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int offheap() {
+        int hits = 0;
+        for (long id : ids) {
+            if (offheap.get(id) == 0) {
+                offheap.put(id, 1);
+            } else {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
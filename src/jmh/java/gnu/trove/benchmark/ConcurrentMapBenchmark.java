@@ -0,0 +1,82 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.TCollections;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongConcurrentHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * Compares a map wrapped by {@link TCollections#synchronizedMap}, which
+ * takes one lock for every call, against one wrapped by
+ * {@link TCollections#stampedMap}, whose lookups take no lock, and
+ * {@link TLongLongConcurrentHashMap}, which takes the read or write lock
+ * of one of its segments, with all threads counting keys in one shared map. Each
+ * operation looks up a key, and every fourth one adds to its count. Scores
+ * are operations per second over all threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentMapBenchmark {
+
+    private static final int OPERATIONS = 1 << 12;
+
+    @Param({"synchronized", "stamped", "concurrent"})
+    public String table;
+
+    @Param({"65536"})
+    public int size;
+
+    private TLongLongMap map;
+
+    @Setup
+    public void setUp() {
+        if (table.equals("synchronized")) {
+            map = TCollections.synchronizedMap(new TLongLongHashMap(size));
+        } else if (table.equals("stamped")) {
+            map = TCollections.stampedMap(new TLongLongHashMap(size));
+        } else {
+            map = new TLongLongConcurrentHashMap(size);
+        }
+        for (long i = 0; i < size; i++) {
+            map.put(i, i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long readMostly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sum = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            long key = random.nextInt(size);
+            if ((i & 3) == 0) {
+                map.adjustOrPutValue(key, 1, 1);
+            } else {
+                sum += map.get(key);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,183 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import gnu.trove.queue.array.TLongMpscArrayQueue;
+import gnu.trove.queue.array.TLongSpscArrayQueue;
+
+/**
+ * Compares an {@link ArrayBlockingQueue} of boxed longs against a
+ * {@link TLongSpscArrayQueue} and a {@link TLongMpscArrayQueue} handing ids
+ * from one producer thread to one consumer thread, one at a time and, for
+ * the primitive queues, in batches. A thread waits for the other by
+ * yielding when the queue is full or empty. Scores are values handed over
+ * per second by each side.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentQueueBenchmark {
+
+    private static final int BATCH = 64;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private ArrayBlockingQueue<Long> blocking;
+    private TLongSpscArrayQueue spsc;
+    private TLongMpscArrayQueue mpsc;
+
+    @Setup
+    public void setUp() {
+        blocking = new ArrayBlockingQueue<Long>(capacity);
+        spsc = new TLongSpscArrayQueue(capacity, -1);
+        mpsc = new TLongMpscArrayQueue(capacity, -1);
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        long[] values = new long[BATCH];
+    }
+
+    @Benchmark
+    @Group("blocking")
+    @GroupThreads(1)
+    public void blockingOffer(Control control) {
+        while (!blocking.offer(42L) && !control.stopMeasurement) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    @Group("blocking")
+    @GroupThreads(1)
+    public long blockingPoll(Control control) {
+        Long value;
+        while ((value = blocking.poll()) == null && !control.stopMeasurement) {
+            Thread.yield();
+        }
+        return value == null ? -1 : value;
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public void spscOffer(Control control) {
+        while (!spsc.offer(42L) && !control.stopMeasurement) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public long spscPoll(Control control) {
+        long value;
+        while ((value = spsc.poll()) == -1 && !control.stopMeasurement) {
+            Thread.yield();
+        }
+        return value;
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public void mpscOffer(Control control) {
+        while (!mpsc.offer(42L) && !control.stopMeasurement) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public long mpscPoll(Control control) {
+        long value;
+        while ((value = mpsc.poll()) == -1 && !control.stopMeasurement) {
+            Thread.yield();
+        }
+        return value;
+    }
+
+    @Benchmark
+    @Group("spscBatch")
+    @GroupThreads(1)
+    @OperationsPerInvocation(BATCH)
+    public void spscBatchOffer(Batch batch, Control control) {
+        int offered = 0;
+        while (offered < BATCH && !control.stopMeasurement) {
+            int count = spsc.offer(batch.values, offered, BATCH - offered);
+            if (count == 0) {
+                Thread.yield();
+            }
+            offered += count;
+        }
+    }
+
+    @Benchmark
+    @Group("spscBatch")
+    @GroupThreads(1)
+    @OperationsPerInvocation(BATCH)
+    public long spscBatchDrain(Batch batch, Control control) {
+        int drained = 0;
+        while (drained < BATCH && !control.stopMeasurement) {
+            int count = spsc.drainTo(batch.values, drained, BATCH - drained);
+            if (count == 0) {
+                Thread.yield();
+            }
+            drained += count;
+        }
+        return batch.values[0];
+    }
+
+    @Benchmark
+    @Group("mpscBatch")
+    @GroupThreads(1)
+    @OperationsPerInvocation(BATCH)
+    public void mpscBatchOffer(Batch batch, Control control) {
+        int offered = 0;
+        while (offered < BATCH && !control.stopMeasurement) {
+            int count = mpsc.offer(batch.values, offered, BATCH - offered);
+            if (count == 0) {
+                Thread.yield();
+            }
+            offered += count;
+        }
+    }
+
+    @Benchmark
+    @Group("mpscBatch")
+    @GroupThreads(1)
+    @OperationsPerInvocation(BATCH)
+    public long mpscBatchDrain(Batch batch, Control control) {
+        int drained = 0;
+        while (drained < BATCH && !control.stopMeasurement) {
+            int count = mpsc.drainTo(batch.values, drained, BATCH - drained);
+            if (count == 0) {
+                Thread.yield();
+            }
+            drained += count;
+        }
+        return batch.values[0];
+    }
+}
@@ -0,0 +1,81 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.hash.TLongLongExpiringHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.procedure.TLongLongProcedure;
+
+/**
+ * Samples the latency of session touches, which put an id with a time to
+ * live of <tt>ttl</tt> milliseconds, over <tt>sessions</tt> ids. The scan
+ * case keeps the expiry times as the values of a {@link TLongLongHashMap}
+ * and removes the expired ones with a scan of the whole table every
+ * <tt>ttl</tt> milliseconds; the wheel case uses a
+ * {@link TLongLongExpiringHashMap}. The percentiles near the maximum show
+ * the stalls of the scans.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpiringMapBenchmark {
+
+    @Param({"1048576"})
+    public int sessions;
+
+    @Param({"100"})
+    public long ttl;
+
+    private TLongLongHashMap scanned;
+    private TLongLongExpiringHashMap expiring;
+    private long nextScan;
+    private long id;
+
+    @Setup
+    public void setUp() {
+        scanned = new TLongLongHashMap();
+        expiring = new TLongLongExpiringHashMap(ttl);
+    }
+
+    @Benchmark
+    public long scan() {
+        final long now = System.currentTimeMillis();
+        if (now >= nextScan) {
+            scanned.retainEntries(new TLongLongProcedure() {
+                @Override
+                public boolean execute(long key, long expiry) {
+                    return expiry > now;
+                }
+            });
+            nextScan = now + ttl;
+        }
+        long key = nextId();
+        return scanned.put(key, now + ttl);
+    }
+
+    @Benchmark
+    public long wheel() {
+        long key = nextId();
+        return expiring.put(key, key);
+    }
+
+    private long nextId() {
+        id = (id + 1) & (sessions - 1);
+        return id * 0x9E3779B97F4A7C15L;
+    }
+}
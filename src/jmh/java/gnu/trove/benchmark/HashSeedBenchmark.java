@@ -0,0 +1,92 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * Measures what randomized hashing, see
+ * {@link gnu.trove.impl.hash.THash#setRandomizedHashing}, costs on keys that
+ * are not chosen to collide, for an int keyed and a string keyed map. Scores
+ * are lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashSeedBenchmark {
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"false", "true"})
+    public boolean randomized;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private TIntIntHashMap ints;
+    private TObjectIntHashMap<String> strings;
+    private int[] intKeys;
+    private String[] stringKeys;
+
+    @Setup
+    public void setUp() {
+        ints = new TIntIntHashMap(size);
+        strings = new TObjectIntHashMap<String>(size);
+        ints.setRandomizedHashing(randomized);
+        strings.setRandomizedHashing(randomized);
+        for (int i = 0; i < size; i++) {
+            ints.put(key(i), i);
+            strings.put("key-" + i, i);
+        }
+        intKeys = new int[LOOKUPS];
+        stringKeys = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // half of the lookups miss
+            int index = (int) ((i * 0x9E3779B97F4A7C15L >>> 1) % (size * 2));
+            intKeys[i] = key(index);
+            stringKeys[i] = "key-" + index;
+        }
+    }
+
+    private static int key(int i) {
+        // spread over all bits, as the keys of a benign client would be
+        return i * 0x9E3779B9;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long intGet() {
+        long sum = 0;
+        for (int key : intKeys) {
+            sum += ints.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long stringGet() {
+        long sum = 0;
+        for (String key : stringKeys) {
+            sum += strings.get(key);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,66 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.impl.hash.THash;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongLongOffheapHashMap;
+
+/**
+ * Samples the latency of puts into maps that keep growing, with rehashing
+ * in one go against incremental rehashing. The percentiles near the maximum
+ * show the stalls of the rehashes. The map starts over once it holds
+ * <tt>size</tt> entries.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IncrementalRehashBenchmark {
+
+    @Param({"heap", "offheap"})
+    public String storage;
+
+    @Param({"0", "8"})
+    public int rehashStep;
+
+    @Param({"4194304"})
+    public int size;
+
+    private TLongLongMap map;
+    private long key;
+
+    @Setup
+    public void setUp() {
+        newMap();
+    }
+
+    private void newMap() {
+        map = storage.equals("heap") ? new TLongLongHashMap() : new TLongLongOffheapHashMap();
+        ((THash) map).setIncrementalRehash(rehashStep);
+    }
+
+    @Benchmark
+    public long put() {
+        if (map.size() == size) {
+            newMap();
+        }
+        long k = key++ * 0xC2B2AE3D27D4EB4FL;
+        return map.put(k, k);
+    }
+}
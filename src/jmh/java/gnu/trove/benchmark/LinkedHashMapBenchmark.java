@@ -0,0 +1,98 @@
+package gnu.trove.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.hash.TIntIntLinkedHashMap;
+
+/**
+ * Compares an access ordered {@link LinkedHashMap} of boxed ints against an
+ * access ordered {@link TIntIntLinkedHashMap}, both bounded by their
+ * removeEldestEntry hook, used as a LRU cache. Each lookup gets a key drawn
+ * from a range twice the size of the cache and puts it on a miss, which
+ * evicts the least recently used entry. Scores are lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinkedHashMapBenchmark {
+
+    private static final int LOOKUPS = 1 << 14;
+
+    @Param({"65536"})
+    public int size;
+
+    private Map<Integer, Integer> java;
+    private TIntIntLinkedHashMap trove;
+    private int[] keys;
+
+    @Setup
+    public void setUp() {
+        final int max = size;
+        java = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > max;
+            }
+        };
+        trove = new TIntIntLinkedHashMap(16, 0.5f, true) {
+            @Override
+            protected boolean removeEldestEntry(int key, int value) {
+                return size() > max;
+            }
+        };
+        Random random = new Random(42);
+        keys = new int[LOOKUPS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(size * 2) + 1;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int java() {
+        int sum = 0;
+        for (int key : keys) {
+            Integer value = java.get(key);
+            if (value == null) {
+                java.put(key, key);
+            } else {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int trove() {
+        int sum = 0;
+        for (int key : keys) {
+            int value = trove.get(key);
+            if (value == 0) {
+                trove.put(key, key);
+            } else {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+}
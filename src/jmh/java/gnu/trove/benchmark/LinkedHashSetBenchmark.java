@@ -0,0 +1,71 @@
+package gnu.trove.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.set.hash.TLinkedHashSet;
+
+/**
+ * Compares a {@link LinkedHashSet} against a {@link TLinkedHashSet}, which
+ * links its elements through int arrays instead of a node per element, on
+ * a set of constant size whose elements are replaced one by one, as in a
+ * sliding window. Each step removes the oldest element and adds a new one.
+ * Scores are steps per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinkedHashSetBenchmark {
+
+    private static final int STEPS = 1 << 14;
+
+    @Param({"java", "trove"})
+    public String table;
+
+    @Param({"1048576"})
+    public int size;
+
+    private Set<Long> set;
+    private Long[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        set = table.equals("java") ? new LinkedHashSet<Long>() : new TLinkedHashSet<Long>();
+        keys = new Long[size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 0x9E3779B97F4A7C15L;
+        }
+        for (next = 0; next < size; next++) {
+            set.add(keys[next]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public boolean slidingWindow() {
+        boolean changed = false;
+        for (int i = 0; i < STEPS; i++, next++) {
+            changed ^= set.remove(keys[(next - size) % keys.length]);
+            changed ^= set.add(keys[next % keys.length]);
+        }
+        return changed;
+    }
+}
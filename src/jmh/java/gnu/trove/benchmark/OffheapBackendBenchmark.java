@@ -0,0 +1,127 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.array.AbstractOffheapArray;
+import gnu.trove.array.OffheapArena;
+import gnu.trove.array.TLongOffheapArray;
+import gnu.trove.map.hash.TLongLongOffheapHashMap;
+
+/**
+ * Compares the native memory backends of the offheap arrays. Run it from the
+ * jar on Java 22 or later: {@link Unsafe} disables the multi-release classes
+ * to force the {@link sun.misc.Unsafe} backend, {@link Ffm} uses the Foreign
+ * Function and Memory API. Scores are elements per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public abstract class OffheapBackendBenchmark {
+
+    private static final int SIZE = 1 << 16;
+
+    private TLongOffheapArray array;
+    private long[] heap;
+    private long[] keys;
+
+    @Setup
+    public void setUp() {
+        if (!expectedBackend().equals(AbstractOffheapArray.backend())) {
+            throw new IllegalStateException("Expected the " + expectedBackend() +
+                    " backend, but got " + AbstractOffheapArray.backend());
+        }
+        array = new TLongOffheapArray(SIZE);
+        heap = new long[SIZE];
+        keys = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            array.put(i, i);
+            heap[i] = i;
+            keys[i] = i * 0x9E3779B97F4A7C15L;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        array.free();
+    }
+
+    protected abstract String expectedBackend();
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += array.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void put() {
+        for (int i = 0; i < SIZE; i++) {
+            array.put(i, i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] toArray() {
+        array.toArray(0, heap, 0, SIZE);
+        return heap;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void fromArray() {
+        array.fromArray(heap, 0, 0, SIZE);
+    }
+
+    /** Grows a map from its default capacity, so most of the time goes into rehashing. */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int rehash() {
+        OffheapArena arena = new OffheapArena();
+        try {
+            TLongLongOffheapHashMap map = new TLongLongOffheapHashMap(10, 0.5f, arena);
+            for (int i = 0; i < SIZE; i++) {
+                map.put(keys[i], i);
+            }
+            return map.size();
+        } finally {
+            arena.close();
+        }
+    }
+
+    @Fork(value = 1, jvmArgsAppend = "-Djdk.util.jar.enableMultiRelease=false")
+    public static class Unsafe extends OffheapBackendBenchmark {
+        @Override
+        protected String expectedBackend() {
+            return "unsafe";
+        }
+    }
+
+    @Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+    public static class Ffm extends OffheapBackendBenchmark {
+        @Override
+        protected String expectedBackend() {
+            return "ffm";
+        }
+    }
+}
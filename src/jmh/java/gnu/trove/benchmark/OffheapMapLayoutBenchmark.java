@@ -0,0 +1,105 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongInterleavedOffheapHashMap;
+import gnu.trove.map.hash.TLongLongOffheapHashMap;
+
+/**
+ * Compares the layouts of the offheap maps: {@link TLongLongOffheapHashMap},
+ * which keeps states, keys and values in separate arrays, against
+ * {@link TLongLongInterleavedOffheapHashMap}, which keeps them together. The
+ * larger size does not fit into the CPU caches, so it shows the cost of the
+ * cache misses. Scores are lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OffheapMapLayoutBenchmark {
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"separate", "interleaved"})
+    public String layout;
+
+    @Param({"4096", "4194304"})
+    public int size;
+
+    private TLongLongMap map;
+    private long[] hits;
+    private long[] misses;
+
+    @Setup
+    public void setUp() {
+        if (layout.equals("separate")) {
+            map = new TLongLongOffheapHashMap(size);
+        } else {
+            map = new TLongLongInterleavedOffheapHashMap(size);
+        }
+        for (long i = 0; i < size; i++) {
+            map.put(key(i), i);
+        }
+        hits = new long[LOOKUPS];
+        misses = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // spread over the whole table, in an order the prefetcher cannot follow
+            long index = (i * 0x9E3779B97F4A7C15L >>> 1) % size;
+            hits[i] = key(index);
+            misses[i] = key(index + size);
+        }
+    }
+
+    private static long key(long i) {
+        return i * 0xC2B2AE3D27D4EB4FL;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getHit() {
+        long sum = 0;
+        for (long key : hits) {
+            sum += map.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getMiss() {
+        long sum = 0;
+        for (long key : misses) {
+            sum += map.get(key);
+        }
+        return sum;
+    }
+
+    /** Half hits, half misses, as in a join where only some keys match. */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsMixed() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map.containsKey((i & 1) == 0 ? hits[i] : misses[i])) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,96 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongLongOffheapHashMap;
+import gnu.trove.map.hash.TLongLongPowerOfTwoHashMap;
+import gnu.trove.map.hash.TLongLongPowerOfTwoOffheapHashMap;
+
+/**
+ * Compares the maps with prime capacities, which take the hash modulo the
+ * capacity, against {@link TLongLongPowerOfTwoHashMap} and
+ * {@link TLongLongPowerOfTwoOffheapHashMap}, which mix the hash and mask it,
+ * on and off the heap. Scores are lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PowerOfTwoHashBenchmark {
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"prime", "powerOfTwo", "primeOffheap", "powerOfTwoOffheap"})
+    public String table;
+
+    @Param({"4096", "4194304"})
+    public int size;
+
+    private TLongLongMap map;
+    private long[] hits;
+    private long[] misses;
+
+    @Setup
+    public void setUp() {
+        if (table.equals("prime")) {
+            map = new TLongLongHashMap(size);
+        } else if (table.equals("powerOfTwo")) {
+            map = new TLongLongPowerOfTwoHashMap(size);
+        } else if (table.equals("primeOffheap")) {
+            map = new TLongLongOffheapHashMap(size);
+        } else {
+            map = new TLongLongPowerOfTwoOffheapHashMap(size);
+        }
+        for (long i = 0; i < size; i++) {
+            map.put(key(i), i);
+        }
+        hits = new long[LOOKUPS];
+        misses = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long index = (i * 0x9E3779B97F4A7C15L >>> 1) % size;
+            hits[i] = key(index);
+            misses[i] = key(index + size);
+        }
+    }
+
+    private static long key(long i) {
+        return i * 0xC2B2AE3D27D4EB4FL;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getHit() {
+        long sum = 0;
+        for (long key : hits) {
+            sum += map.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getMiss() {
+        long sum = 0;
+        for (long key : misses) {
+            sum += map.get(key);
+        }
+        return sum;
+    }
+}
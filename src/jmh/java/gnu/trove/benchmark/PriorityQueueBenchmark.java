@@ -0,0 +1,84 @@
+package gnu.trove.benchmark;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.queue.array.TLongPriorityQueue;
+
+/**
+ * Compares a {@link PriorityQueue} of boxed longs against a
+ * {@link TLongPriorityQueue} as the timer queue of a scheduler: the queue
+ * holds a constant number of deadlines, and each step polls the earliest
+ * one and offers a later one in its place. Scores are steps per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+
+    private static final int STEPS = 1 << 16;
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private PriorityQueue<Long> boxed;
+    private TLongPriorityQueue primitive;
+    private long[] delays;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        delays = new long[STEPS];
+        for (int i = 0; i < STEPS; i++) {
+            delays[i] = random.nextInt(size);
+        }
+        boxed = new PriorityQueue<Long>(size);
+        primitive = new TLongPriorityQueue(size);
+        for (int i = 0; i < size; i++) {
+            long deadline = random.nextInt(size);
+            boxed.offer(deadline);
+            primitive.offer(deadline);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long boxed() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            long now = boxed.poll();
+            boxed.offer(now + delays[i]);
+            sum += now;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long primitive() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            long now = primitive.poll();
+            primitive.offer(now + delays[i]);
+            sum += now;
+        }
+        return sum;
+    }
+}
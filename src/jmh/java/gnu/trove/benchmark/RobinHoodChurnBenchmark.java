@@ -0,0 +1,76 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongLongRobinHoodHashMap;
+
+/**
+ * Compares {@link TLongLongHashMap}, which leaves a tombstone for each
+ * removed key, against {@link TLongLongRobinHoodHashMap}, which shifts the
+ * entries after it back instead, on a map of constant size whose keys are
+ * replaced one by one, as in a sliding window. Each step removes the oldest
+ * key, puts a new one and looks up a missing one. Scores are steps per
+ * second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RobinHoodChurnBenchmark {
+
+    private static final int STEPS = 1 << 16;
+
+    @Param({"probing", "robinhood"})
+    public String table;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private TLongLongMap map;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        if (table.equals("probing")) {
+            map = new TLongLongHashMap(size);
+        } else {
+            map = new TLongLongRobinHoodHashMap(size);
+        }
+        for (next = 0; next < size; next++) {
+            map.put(key(next), next);
+        }
+    }
+
+    private static long key(long i) {
+        return i * 0xC2B2AE3D27D4EB4FL;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long slidingWindow() {
+        long sum = 0;
+        for (int i = 0; i < STEPS; i++, next++) {
+            sum += map.remove(key(next - size));
+            map.put(key(next), next);
+            sum += map.get(key(next + size));
+        }
+        return sum;
+    }
+}
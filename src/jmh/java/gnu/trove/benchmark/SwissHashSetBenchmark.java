@@ -0,0 +1,94 @@
+package gnu.trove.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import gnu.trove.set.hash.TLongSwissHashSet;
+
+/**
+ * Compares {@link TLongHashSet}, which probes one slot at a time, against
+ * {@link TLongSwissHashSet}, which probes groups of control bytes, on the
+ * lookups of a deduplicating stream, where most elements are new. Scores are
+ * lookups per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SwissHashSetBenchmark {
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"probing", "swiss"})
+    public String table;
+
+    @Param({"4096", "4194304"})
+    public int size;
+
+    private TLongSet set;
+    private long[] hits;
+    private long[] misses;
+
+    @Setup
+    public void setUp() {
+        if (table.equals("probing")) {
+            set = new TLongHashSet(size);
+        } else {
+            set = new TLongSwissHashSet(size);
+        }
+        for (long i = 0; i < size; i++) {
+            set.add(key(i));
+        }
+        hits = new long[LOOKUPS];
+        misses = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long index = (i * 0x9E3779B97F4A7C15L >>> 1) % size;
+            hits[i] = key(index);
+            misses[i] = key(index + size);
+        }
+    }
+
+    private static long key(long i) {
+        return i * 0xC2B2AE3D27D4EB4FL;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsHit() {
+        int found = 0;
+        for (long key : hits) {
+            if (set.contains(key)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsMiss() {
+        int found = 0;
+        for (long key : misses) {
+            if (set.contains(key)) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
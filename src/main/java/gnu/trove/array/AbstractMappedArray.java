@@ -0,0 +1,256 @@
+package gnu.trove.array;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File backed direct memory array.
+ * <p>
+ * The contents live in a file that is memory mapped through
+ * {@link NativeMemory#map}, so they survive a restart of the process and
+ * can be larger than physical memory, with the operating system's page
+ * cache deciding what stays resident. Values are stored in native byte
+ * order, so a file should only be reopened on a machine with the same
+ * endianness as the one that wrote it.
+ * <p>
+ * A single mapping is limited to {@link Integer#MAX_VALUE} bytes, so the
+ * file is mapped in segments of {@link #SEGMENT_SIZE} bytes. Because the
+ * segment size is a power of two, an element never straddles two segments.
+ */
+public abstract class AbstractMappedArray extends AbstractOffheapArray implements Closeable {
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    /**
+     * Keeps the mappings reachable, since the mapped memory is released as
+     * soon as a mapping is garbage collected.
+     */
+    private NativeMemory.Mapping[] mappings;
+    private long[] addresses;
+
+    /**
+     * Maps <tt>file</tt>, creating it if necessary, and sets its length to
+     * <tt>capacity</tt> bytes. Existing contents within that length are kept,
+     * anything beyond the previous end of the file reads as zero.
+     */
+    protected AbstractMappedArray(File file, long capacity) throws IOException {
+        super();
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cannot map with capacity=" + capacity);
+        }
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        try {
+            if (raf.length() != capacity) {
+                raf.setLength(capacity);
+            }
+            map(capacity);
+        } catch (IOException | RuntimeException | Error e) {
+            try {
+                raf.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the length in bytes of an existing <tt>file</tt>, which must be
+     * a multiple of <tt>elementSize</tt>, for mapping the whole of it through
+     * {@link #AbstractMappedArray(File, long)}.
+     */
+    protected static long existingLength(File file, int elementSize) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("Not a file: " + file);
+        }
+        long length = file.length();
+        if (length % elementSize != 0) {
+            throw new IllegalArgumentException("Length of " + file + " (" + length +
+                    ") is not a multiple of the element size " + elementSize);
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of bytes taken by <tt>capacity</tt> elements of
+     * <tt>1 &lt;&lt; shift</tt> bytes each
+     * @throws IllegalArgumentException if <tt>capacity</tt> is negative or
+     * the byte count does not fit in a long
+     */
+    protected static long bytesFor(long capacity, int shift) {
+        if (capacity < 0 || capacity > (Long.MAX_VALUE >> shift)) {
+            throw new IllegalArgumentException("Cannot map with capacity=" + capacity);
+        }
+        return capacity << shift;
+    }
+
+    /** @return the file backing this array. */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Resizes the backing file and remaps it. Elements within the smaller of
+     * the old and new capacities are kept, new elements read as zero.
+     * <p>
+     * If the file cannot be resized or remapped, it is remapped with its old
+     * length, and should even that fail, the array is freed.
+     */
+    @Override
+    protected void resize(long newCapacity) {
+        if (newCapacity < 0) {
+            throw new IllegalArgumentException("Cannot remap with capacity=" + newCapacity);
+        }
+        if (channel == null) {
+            throw new IllegalStateException("Cannot remap after freeing");
+        }
+        long oldCapacity = capacity;
+        unmap();
+        try {
+            raf.setLength(newCapacity);
+            map(newCapacity);
+        } catch (IOException | RuntimeException e) {
+            IllegalStateException failure =
+                    new IllegalStateException("Could not remap " + file + " with capacity=" + newCapacity, e);
+            try {
+                raf.setLength(oldCapacity);
+                map(oldCapacity);
+            } catch (IOException | RuntimeException restoreFailure) {
+                failure.addSuppressed(restoreFailure);
+                try {
+                    free();
+                } catch (RuntimeException freeFailure) {
+                    failure.addSuppressed(freeFailure);
+                }
+            }
+            throw failure;
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (NativeMemory.Mapping mapping : mappings) {
+            NativeMemory.setMemory(mapping.address, mapping.size, (byte) 0);
+        }
+    }
+
+    /**
+     * Forces any changes to the contents to be written to the backing file.
+     */
+    public void flush() {
+        for (NativeMemory.Mapping mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Unmaps the file and closes it. The contents stay in the file, so a new
+     * array can be created over the same file later. Calling this more than
+     * once has no further effect.
+     */
+    @Override
+    public void free() {
+        if (channel == null) {
+            return;
+        }
+        unmap();
+        try {
+            raf.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not close " + file, e);
+        } finally {
+            raf = null;
+            channel = null;
+        }
+    }
+
+    /** Same as {@link #free}. */
+    @Override
+    public void close() {
+        free();
+    }
+
+    @Override
+    protected ByteBuffer byteView(long offset, int bytes) {
+        return NativeMemory.wrap(addressOf(offset), bytes);
+    }
+
+    /** A view cannot span more than one segment. */
+    @Override
+    protected long contiguousBytes(long offset) {
+        return Math.min(capacity - offset, segmentRemaining(offset));
+    }
+
+    /**
+     * @return the address of the byte at <tt>offset</tt> from the start of the file.
+     */
+    protected final long addressOf(long offset) {
+        return addresses[(int) (offset >>> SEGMENT_SHIFT)] + (offset & SEGMENT_MASK);
+    }
+
+    /**
+     * @return the number of bytes from <tt>offset</tt> up to the end of its segment.
+     */
+    protected static long segmentRemaining(long offset) {
+        return SEGMENT_SIZE - (offset & SEGMENT_MASK);
+    }
+
+    /**
+     * Maps the first <tt>newCapacity</tt> bytes of the file. If any segment
+     * cannot be mapped, the segments mapped before it are released again.
+     */
+    private void map(long newCapacity) throws IOException {
+        long segmentCount = (newCapacity + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        if (segmentCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot map with capacity=" + newCapacity);
+        }
+        int segments = (int) segmentCount;
+        NativeMemory.Mapping[] newMappings = new NativeMemory.Mapping[segments];
+        long[] newAddresses = new long[segments];
+        int i = 0;
+        try {
+            for (; i < segments; i++) {
+                long position = ((long) i) << SEGMENT_SHIFT;
+                long size = Math.min(SEGMENT_SIZE, newCapacity - position);
+                newMappings[i] = NativeMemory.map(channel, position, size);
+                newAddresses[i] = newMappings[i].address;
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            while (i-- > 0) {
+                try {
+                    newMappings[i].unmap();
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        mappings = newMappings;
+        addresses = newAddresses;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Releases the mappings right away, rather than leaving them to the
+     * garbage collector, which would keep old mappings alive after a remap.
+     */
+    private void unmap() {
+        NativeMemory.Mapping[] oldMappings = mappings;
+        mappings = new NativeMemory.Mapping[0];
+        addresses = new long[0];
+        capacity = 0;
+        for (NativeMemory.Mapping mapping : oldMappings) {
+            mapping.unmap();
+        }
+    }
+}
@@ -1,70 +1,145 @@
 package gnu.trove.array;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.atomic.AtomicLong;
 
-import sun.misc.Unsafe;
-
 /**
  * Direct memory allocated byte buffer.
  * <p>
- * Uses {@link sun.misc.Unsafe} directly to avoid byte
+ * Accesses native memory directly to avoid byte
  * swaps due to endian mis-matches that can result when using
- * {@link ByteBuffer.allocateDirect()}
+ * {@link ByteBuffer.allocateDirect()}. All accesses go through
+ * {@link NativeMemory}, which uses {@link sun.misc.Unsafe}, or the
+ * Foreign Function and Memory API on Java 22 and later.
  */
 public abstract class AbstractOffheapArray {
-    protected static final Unsafe UNSAFE;
-
-    private static final CleanerCreateMethod createMethod = initializeCreateMethod();
-    private static final Method cleanMethod = initializeCleanMethod();
 
     private static class Deallocator implements Runnable {
 
+        private final OffheapAllocator allocator;
         private final AtomicLong boxedAddress;
+        /** The type reported to {@link OffheapMemory}, or null if the allocation is not accounted. */
+        private final String type;
+        /** The size of the allocation, kept up to date by {@link #resize}. */
+        private volatile long bytes;
 
-        private Deallocator(AtomicLong boxedAddress) {
+        private Deallocator(OffheapAllocator allocator, AtomicLong boxedAddress, String type, long bytes) {
             if (boxedAddress.get() == 0) {
                 throw new IllegalArgumentException("Cannot allocate with address 0");
             }
+            this.allocator = allocator;
             this.boxedAddress = boxedAddress;
+            this.type = type;
+            this.bytes = bytes;
         }
 
         @Override
         public void run() {
-            UNSAFE.freeMemory(boxedAddress.getAndSet(0));
+            long address = boxedAddress.getAndSet(0);
+            if (address != 0) {
+                allocator.free(address, bytes);
+                if (type != null) {
+                    OffheapMemory.freed(type, bytes);
+                }
+            }
         }
     }
 
     /**
-     * A cleaner is basically a fancy finalizer with nicer semantics. This cleaner will
+     * Runs the cleaner registered by {@link NativeMemory#registerCleaner}, which will
      * deallocate the manually allocated memory used by this offheap array after the
      * offheap array becomes unreachable.
      * <p>
-     * http://grepcode.com/file/repository.grepcode.com/java/root/jdk/openjdk/6-b14/sun/misc/Cleaner.java
-     *
-     * Need to keep it as a generic Object so that it can be assigned a type at runtime using reflection.
-     * Unfortunately, starting with Java 9, sun.misc.Cleaner moved to java.lang.ref.Cleaner, so in order
-     * for this library to be usable for both Java 8 and Java 9+, it must be able to decide at runtime.
+     * Arrays whose allocator is {@link OffheapAllocator#isScoped() scoped} do not need a cleaner,
+     * since the allocator releases their memory, and leave this null.
      */
-    private final Object cleaner;
+    private final Runnable cleaner;
+    private final Deallocator deallocator;
     private final AtomicLong boxedAddress;
+    /** Whether allocations are rounded up to a whole number of ints, see {@link #allocationSize}. */
+    private final boolean wordPadded;
+    protected final OffheapAllocator allocator;
     protected long address;
     protected long capacity;
 
     public AbstractOffheapArray(long capacity) {
+        this(capacity, NativeAllocator.INSTANCE);
+    }
+
+    public AbstractOffheapArray(long capacity, OffheapAllocator allocator) {
+        this(capacity, allocator, "other");
+    }
+
+    /**
+     * Creates an array of <tt>capacity</tt> bytes, whose allocation is reported
+     * to {@link OffheapMemory} under <tt>type</tt> unless <tt>type</tt> is null
+     * or the allocator is scoped (scoped allocators report their own memory).
+     *
+     * @throws OutOfMemoryError if the allocation would exceed {@link OffheapMemory#getLimit()}
+     */
+    protected AbstractOffheapArray(long capacity, OffheapAllocator allocator, String type) {
+        this(capacity, allocator, type, false);
+    }
+
+    /**
+     * Creates an array of <tt>capacity</tt> bytes like
+     * {@link #AbstractOffheapArray(long, OffheapAllocator, String)}. If
+     * <tt>wordPadded</tt>, the allocation is rounded up to a multiple of 4
+     * bytes, so that the aligned int holding any byte of the array lies
+     * entirely within the allocation. {@link OffheapAtomics} relies on this
+     * to update bytes, shorts and chars through their enclosing int.
+     */
+    protected AbstractOffheapArray(long capacity, OffheapAllocator allocator, String type, boolean wordPadded) {
         if (capacity < 0) {
             throw new IllegalArgumentException("Cannot allocate with capacity=" + capacity);
         }
-        address = UNSAFE.allocateMemory(capacity);
+        this.allocator = allocator;
+        this.wordPadded = wordPadded;
+        long bytes = allocationSize(capacity);
+        String accountedType = allocator.isScoped() ? null : type;
+        if (accountedType != null) {
+            OffheapMemory.allocated(accountedType, bytes);
+        }
+        try {
+            address = allocator.allocate(bytes);
+        } catch (RuntimeException e) {
+            if (accountedType != null) {
+                OffheapMemory.freed(accountedType, bytes);
+            }
+            throw e;
+        } catch (Error e) {
+            if (accountedType != null) {
+                OffheapMemory.freed(accountedType, bytes);
+            }
+            throw e;
+        }
         boxedAddress = new AtomicLong(address);
-        cleaner = createCleaner(this, new Deallocator(boxedAddress));
-        UNSAFE.setMemory(address, capacity, (byte) 0);
+        deallocator = new Deallocator(allocator, boxedAddress, accountedType, bytes);
+        cleaner = allocator.isScoped() ? null : NativeMemory.registerCleaner(this, deallocator);
+        NativeMemory.setMemory(address, bytes, (byte) 0);
         this.capacity = capacity;
     }
 
+    /**
+     * Creates an array whose backing memory is provided by the subclass rather
+     * than allocated here. No cleaner is registered, so such subclasses must
+     * override {@link #resize}, {@link #clear} and {@link #free} to manage
+     * their own memory.
+     */
+    protected AbstractOffheapArray() {
+        allocator = null;
+        boxedAddress = null;
+        wordPadded = false;
+        deallocator = null;
+        cleaner = null;
+    }
+
     protected void resize(long newCapacity) {
         long currAddress = address;
         if (newCapacity < 0) {
@@ -73,21 +148,42 @@ public abstract class AbstractOffheapArray {
         if (currAddress == 0 || boxedAddress.get() != currAddress) {
             throw new IllegalStateException("Cannot reallocate after freeing");
         }
-        long newAddress = UNSAFE.reallocateMemory(currAddress, newCapacity);
+        String type = deallocator.type;
+        long bytes = allocationSize(capacity);
+        long newBytes = allocationSize(newCapacity);
+        if (type != null) {
+            OffheapMemory.reallocated(type, bytes, newBytes);
+        }
+        long newAddress;
+        try {
+            newAddress = allocator.reallocate(currAddress, bytes, newBytes);
+        } catch (RuntimeException e) {
+            if (type != null) {
+                OffheapMemory.reallocated(type, newBytes, bytes);
+            }
+            throw e;
+        } catch (Error e) {
+            if (type != null) {
+                OffheapMemory.reallocated(type, newBytes, bytes);
+            }
+            throw e;
+        }
         if (!boxedAddress.compareAndSet(currAddress, newAddress)) {
-            UNSAFE.freeMemory(newAddress);
+            allocator.free(newAddress, newBytes);
             throw new IllegalStateException("Race condition while resizing");
         }
+        deallocator.bytes = newBytes;
         address = boxedAddress.get();
         if (newCapacity > capacity) {
-            UNSAFE.setMemory(address + capacity, newCapacity - capacity, (byte) 0);
+            // also clears padding left over from shrinking
+            NativeMemory.setMemory(address + capacity, newBytes - capacity, (byte) 0);
         }
         this.capacity = newCapacity;
     }
 
     public void clear() {
         if (capacity > 0) {
-            UNSAFE.setMemory(address, capacity, (byte) 0);
+            NativeMemory.setMemory(address, capacity, (byte) 0);
         }
     }
 
@@ -97,133 +193,126 @@ public abstract class AbstractOffheapArray {
 
         // Cleaner is guaranteed to run its runnable at most once, so its fine to
         // call free multiple times, and nothing additional will happen when this
-        // array becomes unreachable.
-        clean();
-    }
-
-    public abstract long capacity();
-
-    protected void check(long index) {
-        if (index < 0 || index >= capacity()) {
-            throw new IndexOutOfBoundsException("index=" + index + ", capacity=" + capacity());
+        // array becomes unreachable. Without a cleaner the deallocator guards
+        // against freeing twice itself.
+        if (cleaner != null) {
+            cleaner.run();
+        } else if (deallocator != null) {
+            deallocator.run();
         }
     }
 
-    protected void check(long ourIndex, int arrayIndex, int arrayLength, int length) {
-        if (ourIndex < 0 || length < 0 || ourIndex + length > capacity() ||
-                arrayIndex < 0 || arrayIndex + length > arrayLength) {
-            throw new IndexOutOfBoundsException("ourIndex=" + ourIndex + ", ourLength=" + capacity() +
-                    ", arrayIndex=" + arrayIndex + ", arrayLength=" + arrayLength + ", length=" + length);
-        }
+    /** @return the number of bytes allocated for a capacity of <tt>capacity</tt> bytes. */
+    private long allocationSize(long capacity) {
+        return wordPadded ? (capacity + 3) & ~3L : capacity;
     }
 
-    static {
-        Field f = getPrivateDeclaredField(Unsafe.class, "theUnsafe");
-        try {
-            UNSAFE = (Unsafe)f.get(null);
-        } catch (IllegalArgumentException e) {
-            throw new IllegalStateException(e);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException(e);
-        }
+    /** @return the allocator backing this array. */
+    public OffheapAllocator allocator() {
+        return allocator;
     }
 
     /**
-     * Gets a private field from a class.
+     * @return the implementation used to access native memory: "unsafe" for
+     * {@link sun.misc.Unsafe}, or "ffm" for the Foreign Function and Memory API,
+     * which is used on Java 22 and later.
      */
-    private static Field getPrivateDeclaredField(final Class<?> clazz, final String name) {
-        // N.B., the setAccessible(true) call should happen within a doPrivileged() block.
-        return AccessController.doPrivileged(new PrivilegedAction<Field>() {
-            @Override
-            public Field run() {
-                try {
-                    Field f = clazz.getDeclaredField(name);
-                    f.setAccessible(true);
-                    return f;
-                } catch (SecurityException e) {
-                    throw new IllegalStateException(e);
-                } catch (NoSuchFieldException e) {
-                    throw new IllegalStateException(e);
-                }
-            }
-        });
+    public static String backend() {
+        return NativeMemory.BACKEND;
     }
 
-    private static Object createCleaner(Object obj, Runnable cleanUpRunnable) {
-        if (createMethod == null) {
-            throw new IllegalStateException("Was not able to find Cleaner#create method to use.");
-        }
+    public abstract long capacity();
 
-        try {
-            return createMethod.method.invoke(createMethod.instance, obj, cleanUpRunnable);
-        } catch (ReflectiveOperationException e) {
-            throw new IllegalStateException("Could not create a new cleaner.", e);
-        }
+    /**
+     * @return a direct buffer in native byte order over the <tt>bytes</tt> bytes
+     * at <tt>offset</tt>, which must lie within {@link #contiguousBytes}. The
+     * buffer shares the memory of this array and is only valid until the array
+     * is resized or freed.
+     */
+    protected ByteBuffer byteView(long offset, int bytes) {
+        return NativeMemory.wrap(address + offset, bytes);
     }
 
-    private void clean() {
-        if (cleanMethod == null) {
-            throw new IllegalStateException("Was not able to find Cleaner#clean to use.");
-        }
+    /**
+     * @return the number of bytes from <tt>offset</tt> that are contiguous in
+     * memory, and so can be covered by a single {@link #byteView}.
+     */
+    protected long contiguousBytes(long offset) {
+        return capacity - offset;
+    }
 
-        try {
-            cleanMethod.invoke(cleaner);
-        } catch (ReflectiveOperationException e) {
-            throw new IllegalStateException("Could not invoke clean method.", e);
+    /**
+     * Writes the <tt>bytes</tt> bytes at <tt>offset</tt> to <tt>channel</tt>
+     * straight from native memory, without copying them through the heap.
+     *
+     * @throws IllegalBlockingModeException if <tt>channel</tt> is in non-blocking mode
+     */
+    protected void writeBytes(WritableByteChannel channel, long offset, long bytes) throws IOException {
+        checkBlocking(channel);
+        while (bytes > 0) {
+            int size = (int) Math.min(Math.min(bytes, contiguousBytes(offset)), Integer.MAX_VALUE);
+            ByteBuffer buffer = byteView(offset, size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            offset += size;
+            bytes -= size;
         }
     }
 
-    private static CleanerCreateMethod initializeCreateMethod() {
-        // Java 8
-        try {
-            Class<?> cleaner = Class.forName("sun.misc.Cleaner");
-            return new CleanerCreateMethod(cleaner.getMethod("create", Object.class, Runnable.class), null);
-        } catch (ReflectiveOperationException e) {
-            // means we are on java 9+, try different class
+    /**
+     * Reads up to <tt>bytes</tt> bytes from <tt>channel</tt> straight into
+     * native memory at <tt>offset</tt>, stopping early only at the end of the
+     * stream.
+     *
+     * @return the number of bytes read
+     * @throws IllegalBlockingModeException if <tt>channel</tt> is in non-blocking mode
+     */
+    protected long readBytes(ReadableByteChannel channel, long offset, long bytes) throws IOException {
+        checkBlocking(channel);
+        long read = 0;
+        while (read < bytes) {
+            int size = (int) Math.min(Math.min(bytes - read, contiguousBytes(offset + read)), Integer.MAX_VALUE);
+            ByteBuffer buffer = byteView(offset + read, size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return read + buffer.position();
+                }
+            }
+            read += size;
         }
+        return read;
+    }
 
-        // Java 9+
-        try {
-            Class<?> cleaner = Class.forName("java.lang.ref.Cleaner");
-            Method create = cleaner.getMethod("create");
-            Object cleanerInstance = create.invoke(null);
-            return new CleanerCreateMethod(cleaner.getMethod("register", Object.class, Runnable.class), cleanerInstance);
-        } catch (ReflectiveOperationException e) {
-            return null;
+    /**
+     * Transfers loop until they are done, which would spin on a non-blocking
+     * channel that has no room or no data, so such channels are rejected.
+     * Channels that cannot be selected are expected to block like the
+     * channels of streams and files do.
+     */
+    private static void checkBlocking(Channel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
         }
     }
 
-    private static Method initializeCleanMethod() {
-        // Java 8
-        try {
-            Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
-            return cleanerClass.getMethod("clean");
-        } catch (ReflectiveOperationException e) {
-            // means we are on java 9+, try different class
+    protected void checkRange(long index, long length) {
+        if (index < 0 || length < 0 || index + length > capacity()) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length + ", capacity=" + capacity());
         }
+    }
 
-        // Java 9+
-        try {
-            Class<?> cleanerClass = Class.forName("java.lang.ref.Cleaner$Cleanable");
-            return cleanerClass.getMethod("clean");
-        } catch (ReflectiveOperationException e) {
-            return null;
+    protected void check(long index) {
+        if (index < 0 || index >= capacity()) {
+            throw new IndexOutOfBoundsException("index=" + index + ", capacity=" + capacity());
         }
     }
 
-    /**
-     * In Java 9+ the thing we actually want to create is an instance of a
-     * Cleaner.Cleanable, not a Cleaner itself. As such, we actually need
-     * an instance of the Cleaner, so we create this stub class to hold both
-     * pieces of data.
-     */
-    private static class CleanerCreateMethod {
-        final Method method;
-        final Object instance;
-
-        private CleanerCreateMethod(Method method, Object instance) {
-            this.method = method;
-            this.instance = instance;
+    protected void check(long ourIndex, int arrayIndex, int arrayLength, int length) {
+        if (ourIndex < 0 || length < 0 || ourIndex + length > capacity() ||
+                arrayIndex < 0 || arrayIndex + length > arrayLength) {
+            throw new IndexOutOfBoundsException("ourIndex=" + ourIndex + ", ourLength=" + capacity() +
+                    ", arrayIndex=" + arrayIndex + ", arrayLength=" + arrayLength + ", length=" + length);
         }
     }
 }
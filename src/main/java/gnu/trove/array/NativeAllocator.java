@@ -0,0 +1,33 @@
+package gnu.trove.array;
+
+/**
+ * Allocates every block separately from the native heap, i.e. with
+ * <tt>malloc</tt>.
+ */
+public final class NativeAllocator implements OffheapAllocator {
+
+    public static final NativeAllocator INSTANCE = new NativeAllocator();
+
+    private NativeAllocator() {
+    }
+
+    @Override
+    public long allocate(long bytes) {
+        return NativeMemory.allocate(bytes);
+    }
+
+    @Override
+    public long reallocate(long address, long oldBytes, long newBytes) {
+        return NativeMemory.reallocate(address, newBytes);
+    }
+
+    @Override
+    public void free(long address, long bytes) {
+        NativeMemory.free(address);
+    }
+
+    @Override
+    public boolean isScoped() {
+        return false;
+    }
+}
@@ -0,0 +1,509 @@
+package gnu.trove.array;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import sun.misc.Unsafe;
+
+/**
+ * Raw access to native memory, shared by all offheap arrays.
+ * <p>
+ * This implementation uses {@link sun.misc.Unsafe} and works on Java 8 and
+ * later. The jar also carries an implementation based on the Foreign Function
+ * and Memory API under <tt>META-INF/versions/22</tt>, which replaces this one
+ * on Java 22 and later. Both implementations must offer exactly the same
+ * methods; everything that touches native memory, including the mappings of
+ * files, goes through here so that the backend can be switched in one place,
+ * and nothing outside this class refers to {@link sun.misc.Unsafe}.
+ * <p>
+ * Values are read and written in native byte order. Addresses are not
+ * checked, callers are responsible for staying within their allocations.
+ * The atomic and ordered accesses additionally require addresses aligned to
+ * the size of the value.
+ */
+final class NativeMemory {
+
+    /** The name of this backend, as reported by {@link AbstractOffheapArray#backend()}. */
+    static final String BACKEND = "unsafe";
+
+    private static final Unsafe UNSAFE = initializeUnsafe();
+
+    /**
+     * Copies larger than this are split up, so that the JVM can reach a
+     * safepoint in between.
+     */
+    private static final long UNSAFE_COPY_THRESHOLD = 1024L * 1024L;
+
+    private static final long BUFFER_ADDRESS_OFFSET = bufferFieldOffset("address");
+    private static final long BUFFER_CAPACITY_OFFSET = bufferFieldOffset("capacity");
+    private static final long BUFFER_LIMIT_OFFSET = bufferFieldOffset("limit");
+    /** Duplicated to create buffers over arbitrary memory, see {@link #wrap}. */
+    private static final ByteBuffer DIRECT_BUFFER = ByteBuffer.allocateDirect(0);
+    private static final CleanerCreateMethod createMethod = initializeCreateMethod();
+    private static final Method cleanMethod = initializeCleanMethod();
+    private static final BufferUnmapper unmapper = initializeUnmapper();
+
+    private NativeMemory() {
+    }
+
+    static long allocate(long bytes) {
+        return UNSAFE.allocateMemory(bytes);
+    }
+
+    static long reallocate(long address, long bytes) {
+        return UNSAFE.reallocateMemory(address, bytes);
+    }
+
+    static void free(long address) {
+        UNSAFE.freeMemory(address);
+    }
+
+    static void setMemory(long address, long bytes, byte value) {
+        UNSAFE.setMemory(address, bytes, value);
+    }
+
+    static void copy(long srcAddress, long dstAddress, long bytes) {
+        UNSAFE.copyMemory(srcAddress, dstAddress, bytes);
+    }
+
+    /** @return the address of the memory backing a direct <tt>buffer</tt>. */
+    static long addressOf(ByteBuffer buffer) {
+        return UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    /**
+     * @return a direct buffer in native byte order over the <tt>bytes</tt> bytes
+     * at <tt>address</tt>. The buffer does not own the memory, which must stay
+     * allocated for as long as the buffer is used.
+     */
+    static ByteBuffer wrap(long address, int bytes) {
+        // there is no public way to do this before Java 22, so point a
+        // duplicate of a real direct buffer at the memory instead
+        ByteBuffer buffer = DIRECT_BUFFER.duplicate();
+        UNSAFE.putLong(buffer, BUFFER_ADDRESS_OFFSET, address);
+        UNSAFE.putInt(buffer, BUFFER_CAPACITY_OFFSET, bytes);
+        UNSAFE.putInt(buffer, BUFFER_LIMIT_OFFSET, bytes);
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Maps the <tt>size</tt> bytes of <tt>channel</tt> from <tt>position</tt>
+     * on, for reading and writing.
+     */
+    static Mapping map(FileChannel channel, long position, long size) throws IOException {
+        return new Mapping(channel.map(FileChannel.MapMode.READ_WRITE, position, size));
+    }
+
+    /**
+     * A region of a file mapped into memory by {@link #map}, which stays
+     * mapped until {@link #unmap} or until the mapping is garbage collected.
+     */
+    static final class Mapping {
+        /** The address of the first byte of the region. */
+        final long address;
+        /** The number of bytes of the region. */
+        final long size;
+        private final MappedByteBuffer buffer;
+
+        private Mapping(MappedByteBuffer buffer) {
+            this.address = addressOf(buffer);
+            this.size = buffer.capacity();
+            this.buffer = buffer;
+        }
+
+        /** Forces any changes to the region to be written to the file. */
+        void force() {
+            buffer.force();
+        }
+
+        /**
+         * Releases the mapping right away, if the JVM allows it, rather than
+         * when it is garbage collected. The region must not be accessed
+         * afterwards.
+         */
+        void unmap() {
+            unmapper.unmap(buffer);
+        }
+    }
+
+    static byte getByte(long address) {
+        return UNSAFE.getByte(address);
+    }
+
+    static void putByte(long address, byte value) {
+        UNSAFE.putByte(address, value);
+    }
+
+    static short getShort(long address) {
+        return UNSAFE.getShort(address);
+    }
+
+    static void putShort(long address, short value) {
+        UNSAFE.putShort(address, value);
+    }
+
+    static char getChar(long address) {
+        return UNSAFE.getChar(address);
+    }
+
+    static void putChar(long address, char value) {
+        UNSAFE.putChar(address, value);
+    }
+
+    static int getInt(long address) {
+        return UNSAFE.getInt(address);
+    }
+
+    static void putInt(long address, int value) {
+        UNSAFE.putInt(address, value);
+    }
+
+    static long getLong(long address) {
+        return UNSAFE.getLong(address);
+    }
+
+    static void putLong(long address, long value) {
+        UNSAFE.putLong(address, value);
+    }
+
+    static float getFloat(long address) {
+        return UNSAFE.getFloat(address);
+    }
+
+    static void putFloat(long address, float value) {
+        UNSAFE.putFloat(address, value);
+    }
+
+    static double getDouble(long address) {
+        return UNSAFE.getDouble(address);
+    }
+
+    static void putDouble(long address, double value) {
+        UNSAFE.putDouble(address, value);
+    }
+
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
+    static void putIntVolatile(long address, int value) {
+        UNSAFE.putIntVolatile(null, address, value);
+    }
+
+    static void putIntOrdered(long address, int value) {
+        UNSAFE.putOrderedInt(null, address, value);
+    }
+
+    static boolean compareAndSetInt(long address, int expected, int value) {
+        return UNSAFE.compareAndSwapInt(null, address, expected, value);
+    }
+
+    static int getAndAddInt(long address, int delta) {
+        return UNSAFE.getAndAddInt(null, address, delta);
+    }
+
+    static int getAndSetInt(long address, int value) {
+        return UNSAFE.getAndSetInt(null, address, value);
+    }
+
+    static long getLongVolatile(long address) {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    static void putLongVolatile(long address, long value) {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    static void putLongOrdered(long address, long value) {
+        UNSAFE.putOrderedLong(null, address, value);
+    }
+
+    static boolean compareAndSetLong(long address, long expected, long value) {
+        return UNSAFE.compareAndSwapLong(null, address, expected, value);
+    }
+
+    static long getAndAddLong(long address, long delta) {
+        return UNSAFE.getAndAddLong(null, address, delta);
+    }
+
+    static long getAndSetLong(long address, long value) {
+        return UNSAFE.getAndSetLong(null, address, value);
+    }
+
+    static void copyToArray(long srcAddress, byte[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_BYTE_BASE_OFFSET, dstIndex, Unsafe.ARRAY_BYTE_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, short[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_SHORT_BASE_OFFSET, dstIndex, Unsafe.ARRAY_SHORT_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, char[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_CHAR_BASE_OFFSET, dstIndex, Unsafe.ARRAY_CHAR_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, int[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_INT_BASE_OFFSET, dstIndex, Unsafe.ARRAY_INT_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, long[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_LONG_BASE_OFFSET, dstIndex, Unsafe.ARRAY_LONG_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, float[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_FLOAT_BASE_OFFSET, dstIndex, Unsafe.ARRAY_FLOAT_INDEX_SCALE, length);
+    }
+
+    static void copyToArray(long srcAddress, double[] dst, int dstIndex, int length) {
+        copyToArray(srcAddress, dst, Unsafe.ARRAY_DOUBLE_BASE_OFFSET, dstIndex, Unsafe.ARRAY_DOUBLE_INDEX_SCALE, length);
+    }
+
+    static void copyFromArray(byte[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_BYTE_BASE_OFFSET, srcIndex, Unsafe.ARRAY_BYTE_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(short[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_SHORT_BASE_OFFSET, srcIndex, Unsafe.ARRAY_SHORT_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(char[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_CHAR_BASE_OFFSET, srcIndex, Unsafe.ARRAY_CHAR_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(int[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_INT_BASE_OFFSET, srcIndex, Unsafe.ARRAY_INT_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(long[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_LONG_BASE_OFFSET, srcIndex, Unsafe.ARRAY_LONG_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(float[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_FLOAT_BASE_OFFSET, srcIndex, Unsafe.ARRAY_FLOAT_INDEX_SCALE, dstAddress, length);
+    }
+
+    static void copyFromArray(double[] src, int srcIndex, long dstAddress, int length) {
+        copyFromArray(src, Unsafe.ARRAY_DOUBLE_BASE_OFFSET, srcIndex, Unsafe.ARRAY_DOUBLE_INDEX_SCALE, dstAddress, length);
+    }
+
+    private static void copyToArray(long srcAddress, Object dst, long baseOffset, int dstIndex, int scale, int length) {
+        long dstOffset = baseOffset + ((long) dstIndex) * scale;
+        long bytes = ((long) length) * scale;
+        while (bytes > 0) {
+            long size = Math.min(bytes, UNSAFE_COPY_THRESHOLD);
+            UNSAFE.copyMemory(null, srcAddress, dst, dstOffset, size);
+            bytes -= size;
+            srcAddress += size;
+            dstOffset += size;
+        }
+    }
+
+    private static void copyFromArray(Object src, long baseOffset, int srcIndex, int scale, long dstAddress, int length) {
+        long srcOffset = baseOffset + ((long) srcIndex) * scale;
+        long bytes = ((long) length) * scale;
+        while (bytes > 0) {
+            long size = Math.min(bytes, UNSAFE_COPY_THRESHOLD);
+            UNSAFE.copyMemory(src, srcOffset, null, dstAddress, size);
+            bytes -= size;
+            srcOffset += size;
+            dstAddress += size;
+        }
+    }
+
+    /**
+     * Registers <tt>action</tt> to run once <tt>referent</tt> becomes
+     * unreachable. A cleaner is basically a fancy finalizer with nicer
+     * semantics.
+     * <p>
+     * Starting with Java 9, sun.misc.Cleaner moved to java.lang.ref.Cleaner, so in order
+     * for this library to be usable for both Java 8 and Java 9+, the cleaner is looked
+     * up reflectively.
+     *
+     * @return a runnable that runs <tt>action</tt> right away instead; <tt>action</tt>
+     * runs at most once either way
+     */
+    static Runnable registerCleaner(Object referent, Runnable action) {
+        if (createMethod == null) {
+            throw new IllegalStateException("Was not able to find Cleaner#create method to use.");
+        }
+        if (cleanMethod == null) {
+            throw new IllegalStateException("Was not able to find Cleaner#clean to use.");
+        }
+
+        final Object cleaner;
+        try {
+            cleaner = createMethod.method.invoke(createMethod.instance, referent, action);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a new cleaner.", e);
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cleanMethod.invoke(cleaner);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Could not invoke clean method.", e);
+                }
+            }
+        };
+    }
+
+    private static Unsafe initializeUnsafe() {
+        Field f = getPrivateDeclaredField(Unsafe.class, "theUnsafe");
+        try {
+            return (Unsafe)f.get(null);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets a private field from a class.
+     */
+    private static Field getPrivateDeclaredField(final Class<?> clazz, final String name) {
+        // N.B., the setAccessible(true) call should happen within a doPrivileged() block.
+        return AccessController.doPrivileged(new PrivilegedAction<Field>() {
+            @Override
+            public Field run() {
+                try {
+                    Field f = clazz.getDeclaredField(name);
+                    f.setAccessible(true);
+                    return f;
+                } catch (SecurityException e) {
+                    throw new IllegalStateException(e);
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    private static long bufferFieldOffset(String name) {
+        try {
+            return UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField(name));
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Was not able to find Buffer#" + name + ".", e);
+        }
+    }
+
+    private static CleanerCreateMethod initializeCreateMethod() {
+        // Java 8
+        try {
+            Class<?> cleaner = Class.forName("sun.misc.Cleaner");
+            return new CleanerCreateMethod(cleaner.getMethod("create", Object.class, Runnable.class), null);
+        } catch (ReflectiveOperationException e) {
+            // means we are on java 9+, try different class
+        }
+
+        // Java 9+
+        try {
+            Class<?> cleaner = Class.forName("java.lang.ref.Cleaner");
+            Method create = cleaner.getMethod("create");
+            Object cleanerInstance = create.invoke(null);
+            return new CleanerCreateMethod(cleaner.getMethod("register", Object.class, Runnable.class), cleanerInstance);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method initializeCleanMethod() {
+        // Java 8
+        try {
+            Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+            return cleanerClass.getMethod("clean");
+        } catch (ReflectiveOperationException e) {
+            // means we are on java 9+, try different class
+        }
+
+        // Java 9+
+        try {
+            Class<?> cleanerClass = Class.forName("java.lang.ref.Cleaner$Cleanable");
+            return cleanerClass.getMethod("clean");
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mappings are normally only released when their buffer is garbage
+     * collected, which would keep old mappings alive after a remap. Like the
+     * cleaner lookup above, the way to release them eagerly differs between
+     * Java 8 and Java 9+, so it is decided at runtime. If neither is
+     * available the mapping is simply left to the garbage collector.
+     */
+    private static BufferUnmapper initializeUnmapper() {
+        // Java 9+
+        try {
+            final Method invokeCleaner = UNSAFE.getClass().getMethod("invokeCleaner", ByteBuffer.class);
+            return new BufferUnmapper() {
+                @Override
+                void release(MappedByteBuffer buffer) throws ReflectiveOperationException {
+                    invokeCleaner.invoke(UNSAFE, buffer);
+                }
+            };
+        } catch (ReflectiveOperationException e) {
+            // means we are on java 8, try the buffer's own cleaner
+        }
+
+        // Java 8
+        try {
+            final Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return new BufferUnmapper() {
+                @Override
+                void release(MappedByteBuffer buffer) throws ReflectiveOperationException {
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleanMethod.invoke(cleaner);
+                    }
+                }
+            };
+        } catch (ReflectiveOperationException e) {
+            return new BufferUnmapper() {
+                @Override
+                void release(MappedByteBuffer buffer) {
+                }
+            };
+        }
+    }
+
+    private static abstract class BufferUnmapper {
+        abstract void release(MappedByteBuffer buffer) throws ReflectiveOperationException;
+
+        final void unmap(MappedByteBuffer buffer) {
+            try {
+                release(buffer);
+            } catch (ReflectiveOperationException e) {
+                // leave it to the garbage collector
+            } catch (RuntimeException e) {
+                // leave it to the garbage collector
+            }
+        }
+    }
+
+    /**
+     * In Java 9+ the thing we actually want to create is an instance of a
+     * Cleaner.Cleanable, not a Cleaner itself. As such, we actually need
+     * an instance of the Cleaner, so we create this stub class to hold both
+     * pieces of data.
+     */
+    private static class CleanerCreateMethod {
+        final Method method;
+        final Object instance;
+
+        private CleanerCreateMethod(Method method, Object instance) {
+            this.method = method;
+            this.instance = instance;
+        }
+    }
+}
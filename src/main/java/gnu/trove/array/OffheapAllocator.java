@@ -0,0 +1,43 @@
+package gnu.trove.array;
+
+/**
+ * Source of the native memory backing an {@link AbstractOffheapArray}.
+ * <p>
+ * Arrays created without an allocator use {@link NativeAllocator#INSTANCE},
+ * which gives every array its own block of memory that is released when the
+ * array is freed or becomes unreachable. An {@link OffheapArena} instead carves
+ * many arrays out of a few large blocks and releases them all at once.
+ */
+public interface OffheapAllocator {
+
+    /**
+     * Allocates a block of at least <tt>bytes</tt> bytes, aligned to at least
+     * 8 bytes as the atomic accesses of the offheap arrays require. The
+     * contents of the block are undefined.
+     *
+     * @return the address of the block
+     */
+    long allocate(long bytes);
+
+    /**
+     * Resizes the block at <tt>address</tt>, which currently holds
+     * <tt>oldBytes</tt> bytes, to <tt>newBytes</tt> bytes. The contents up to
+     * the smaller of the two sizes are kept, anything beyond is undefined.
+     *
+     * @return the address of the resized block, which may differ from <tt>address</tt>
+     */
+    long reallocate(long address, long oldBytes, long newBytes);
+
+    /**
+     * Releases the block at <tt>address</tt>, which holds <tt>bytes</tt> bytes.
+     */
+    void free(long address, long bytes);
+
+    /**
+     * Whether the memory handed out by this allocator is released by the
+     * allocator itself, independent of the arrays using it. Arrays backed by
+     * such an allocator do not register a cleaner, and are only valid for as
+     * long as the allocator is.
+     */
+    boolean isScoped();
+}
@@ -0,0 +1,171 @@
+package gnu.trove.array;
+
+import java.io.Closeable;
+
+/**
+ * Allocator that hands out memory from a few large blocks and releases all
+ * of it at once when it is closed.
+ * <p>
+ * Allocating from an arena is a pointer bump, and arrays created from it do
+ * not register a cleaner, which makes it a good fit for many short lived
+ * offheap collections, e.g. the ones built while serving a single request:
+ * <pre>
+ * try (OffheapArena arena = new OffheapArena()) {
+ *     TLongIntOffheapHashMap map = new TLongIntOffheapHashMap(100, 0.5f, arena);
+ *     ...
+ * }
+ * </pre>
+ * Freeing or shrinking an array only gives memory back to the arena if it
+ * was the most recent allocation; otherwise the memory is reclaimed when the
+ * arena closes. Closing the arena takes time proportional to the number of
+ * blocks, not the number of arrays. Arrays must not be used after their
+ * arena has been closed.
+ * <p>
+ * The blocks of an arena count towards the {@link OffheapMemory} limit and
+ * are reported under the type "arena".
+ * <p>
+ * An arena is not thread-safe.
+ */
+public class OffheapArena implements OffheapAllocator, Closeable {
+
+    /** The default size of the blocks memory is carved out of. */
+    public static final long DEFAULT_BLOCK_SIZE = 1L << 20;
+
+    private static final long ALIGNMENT = 8;
+
+    private final long blockSize;
+
+    /** Every block allocated so far, released on close. */
+    private long[] blocks = new long[8];
+    private long[] blockSizes = new long[8];
+    private int blockCount;
+    private long reservedBytes;
+
+    /** The next free byte of the current block. */
+    private long next;
+    /** The end of the current block. */
+    private long limit;
+    /** The most recent allocation, which can still grow or shrink in place. */
+    private long last;
+
+    private boolean closed;
+
+    /**
+     * Creates a new arena that allocates blocks of {@link #DEFAULT_BLOCK_SIZE} bytes.
+     */
+    public OffheapArena() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new arena that allocates blocks of <tt>blockSize</tt> bytes.
+     * Requests larger than half a block get a block of their own.
+     */
+    public OffheapArena(long blockSize) {
+        if (blockSize < ALIGNMENT) {
+            throw new IllegalArgumentException("Block size too small: " + blockSize);
+        }
+        this.blockSize = align(blockSize);
+    }
+
+    @Override
+    public long allocate(long bytes) {
+        if (closed) {
+            throw new IllegalStateException("Arena is closed");
+        }
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Cannot allocate " + bytes + " bytes");
+        }
+        long aligned = align(bytes);
+        if (aligned > blockSize >> 1) {
+            return newBlock(aligned);
+        }
+        if (next == 0 || aligned > limit - next) {
+            next = newBlock(blockSize);
+            limit = next + blockSize;
+        }
+        last = next;
+        next += aligned;
+        return last;
+    }
+
+    @Override
+    public long reallocate(long address, long oldBytes, long newBytes) {
+        if (address == last && newBytes >= 0 && align(newBytes) <= limit - address) {
+            next = address + align(newBytes);
+            return address;
+        }
+        if (newBytes <= oldBytes) {
+            return address;
+        }
+        long newAddress = allocate(newBytes);
+        NativeMemory.copy(address, newAddress, oldBytes);
+        return newAddress;
+    }
+
+    @Override
+    public void free(long address, long bytes) {
+        if (address == last && !closed) {
+            next = last;
+            last = 0;
+        }
+    }
+
+    @Override
+    public boolean isScoped() {
+        return true;
+    }
+
+    /** @return the number of bytes of native memory this arena currently holds. */
+    public long reserved() {
+        return reservedBytes;
+    }
+
+    /**
+     * Releases all memory allocated from this arena. Closing an arena more
+     * than once has no further effect.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < blockCount; i++) {
+            NativeMemory.free(blocks[i]);
+            OffheapMemory.freed(OffheapMemory.ARENA, blockSizes[i]);
+        }
+        blocks = null;
+        blockSizes = null;
+        blockCount = 0;
+        next = limit = last = 0;
+        reservedBytes = 0;
+    }
+
+    private long newBlock(long bytes) {
+        if (blockCount == blocks.length) {
+            long[] grown = new long[blocks.length << 1];
+            System.arraycopy(blocks, 0, grown, 0, blockCount);
+            blocks = grown;
+            long[] grownSizes = new long[blockSizes.length << 1];
+            System.arraycopy(blockSizes, 0, grownSizes, 0, blockCount);
+            blockSizes = grownSizes;
+        }
+        OffheapMemory.allocated(OffheapMemory.ARENA, bytes);
+        long address;
+        try {
+            address = NativeMemory.allocate(bytes);
+        } catch (OutOfMemoryError e) {
+            OffheapMemory.freed(OffheapMemory.ARENA, bytes);
+            throw e;
+        }
+        blocks[blockCount] = address;
+        blockSizes[blockCount++] = bytes;
+        reservedBytes += bytes;
+        return address;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
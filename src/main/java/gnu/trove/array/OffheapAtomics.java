@@ -0,0 +1,274 @@
+package gnu.trove.array;
+
+import java.nio.ByteOrder;
+
+/**
+ * Atomic and ordered accesses to native memory for every primitive type, so
+ * that the generated offheap arrays can offer them with the same code.
+ * <p>
+ * Ints and longs map directly onto the atomic accesses of {@link NativeMemory}.
+ * Floats and doubles are compared and swapped by their raw bits, so e.g.
+ * <tt>0.0</tt> does not match <tt>-0.0</tt> but a NaN matches itself. Bytes,
+ * shorts and chars have no atomic instructions of their own and are updated
+ * by compare-and-swapping the aligned int that contains them, retrying when
+ * a neighbouring value changed in the meantime; their ordered stores are full
+ * volatile stores for the same reason. That int may extend past the last
+ * element, so arrays of these types are allocated word padded (see
+ * {@link AbstractOffheapArray#AbstractOffheapArray(long, OffheapAllocator, String, boolean)})
+ * and every int they touch lies within their own allocation.
+ */
+final class OffheapAtomics {
+
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private OffheapAtomics() {
+    }
+
+    // int and long
+
+    static int getIntVolatile(long address) {
+        return NativeMemory.getIntVolatile(address);
+    }
+
+    static void putVolatile(long address, int value) {
+        NativeMemory.putIntVolatile(address, value);
+    }
+
+    static void putOrdered(long address, int value) {
+        NativeMemory.putIntOrdered(address, value);
+    }
+
+    static boolean compareAndSet(long address, int expected, int value) {
+        return NativeMemory.compareAndSetInt(address, expected, value);
+    }
+
+    static int getAndAdd(long address, int delta) {
+        return NativeMemory.getAndAddInt(address, delta);
+    }
+
+    static int getAndSet(long address, int value) {
+        return NativeMemory.getAndSetInt(address, value);
+    }
+
+    static long getLongVolatile(long address) {
+        return NativeMemory.getLongVolatile(address);
+    }
+
+    static void putVolatile(long address, long value) {
+        NativeMemory.putLongVolatile(address, value);
+    }
+
+    static void putOrdered(long address, long value) {
+        NativeMemory.putLongOrdered(address, value);
+    }
+
+    static boolean compareAndSet(long address, long expected, long value) {
+        return NativeMemory.compareAndSetLong(address, expected, value);
+    }
+
+    static long getAndAdd(long address, long delta) {
+        return NativeMemory.getAndAddLong(address, delta);
+    }
+
+    static long getAndSet(long address, long value) {
+        return NativeMemory.getAndSetLong(address, value);
+    }
+
+    // float and double, by their bits
+
+    static float getFloatVolatile(long address) {
+        return Float.intBitsToFloat(NativeMemory.getIntVolatile(address));
+    }
+
+    static void putVolatile(long address, float value) {
+        NativeMemory.putIntVolatile(address, Float.floatToRawIntBits(value));
+    }
+
+    static void putOrdered(long address, float value) {
+        NativeMemory.putIntOrdered(address, Float.floatToRawIntBits(value));
+    }
+
+    static boolean compareAndSet(long address, float expected, float value) {
+        return NativeMemory.compareAndSetInt(address, Float.floatToRawIntBits(expected), Float.floatToRawIntBits(value));
+    }
+
+    static float getAndAdd(long address, float delta) {
+        while (true) {
+            int current = NativeMemory.getIntVolatile(address);
+            float old = Float.intBitsToFloat(current);
+            if (NativeMemory.compareAndSetInt(address, current, Float.floatToRawIntBits(old + delta))) {
+                return old;
+            }
+        }
+    }
+
+    static float getAndSet(long address, float value) {
+        return Float.intBitsToFloat(NativeMemory.getAndSetInt(address, Float.floatToRawIntBits(value)));
+    }
+
+    static double getDoubleVolatile(long address) {
+        return Double.longBitsToDouble(NativeMemory.getLongVolatile(address));
+    }
+
+    static void putVolatile(long address, double value) {
+        NativeMemory.putLongVolatile(address, Double.doubleToRawLongBits(value));
+    }
+
+    static void putOrdered(long address, double value) {
+        NativeMemory.putLongOrdered(address, Double.doubleToRawLongBits(value));
+    }
+
+    static boolean compareAndSet(long address, double expected, double value) {
+        return NativeMemory.compareAndSetLong(address, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value));
+    }
+
+    static double getAndAdd(long address, double delta) {
+        while (true) {
+            long current = NativeMemory.getLongVolatile(address);
+            double old = Double.longBitsToDouble(current);
+            if (NativeMemory.compareAndSetLong(address, current, Double.doubleToRawLongBits(old + delta))) {
+                return old;
+            }
+        }
+    }
+
+    static double getAndSet(long address, double value) {
+        return Double.longBitsToDouble(NativeMemory.getAndSetLong(address, Double.doubleToRawLongBits(value)));
+    }
+
+    // byte, short and char, within their enclosing int
+
+    static byte getByteVolatile(long address) {
+        return (byte) getBits(address, 1);
+    }
+
+    static void putVolatile(long address, byte value) {
+        getAndSetBits(address, 1, value);
+    }
+
+    static void putOrdered(long address, byte value) {
+        getAndSetBits(address, 1, value);
+    }
+
+    static boolean compareAndSet(long address, byte expected, byte value) {
+        return compareAndSetBits(address, 1, expected, value);
+    }
+
+    static byte getAndAdd(long address, byte delta) {
+        return (byte) getAndAddBits(address, 1, delta);
+    }
+
+    static byte getAndSet(long address, byte value) {
+        return (byte) getAndSetBits(address, 1, value);
+    }
+
+    static short getShortVolatile(long address) {
+        return (short) getBits(address, 2);
+    }
+
+    static void putVolatile(long address, short value) {
+        getAndSetBits(address, 2, value);
+    }
+
+    static void putOrdered(long address, short value) {
+        getAndSetBits(address, 2, value);
+    }
+
+    static boolean compareAndSet(long address, short expected, short value) {
+        return compareAndSetBits(address, 2, expected, value);
+    }
+
+    static short getAndAdd(long address, short delta) {
+        return (short) getAndAddBits(address, 2, delta);
+    }
+
+    static short getAndSet(long address, short value) {
+        return (short) getAndSetBits(address, 2, value);
+    }
+
+    static char getCharVolatile(long address) {
+        return (char) getBits(address, 2);
+    }
+
+    static void putVolatile(long address, char value) {
+        getAndSetBits(address, 2, value);
+    }
+
+    static void putOrdered(long address, char value) {
+        getAndSetBits(address, 2, value);
+    }
+
+    static boolean compareAndSet(long address, char expected, char value) {
+        return compareAndSetBits(address, 2, expected, value);
+    }
+
+    static char getAndAdd(long address, char delta) {
+        return (char) getAndAddBits(address, 2, delta);
+    }
+
+    static char getAndSet(long address, char value) {
+        return (char) getAndSetBits(address, 2, value);
+    }
+
+    /** @return the unsigned value of the <tt>size</tt> bytes at <tt>address</tt>. */
+    private static int getBits(long address, int size) {
+        return (NativeMemory.getIntVolatile(address & ~3L) >>> shift(address, size)) & mask(size);
+    }
+
+    private static boolean compareAndSetBits(long address, int size, int expected, int value) {
+        long word = address & ~3L;
+        int shift = shift(address, size);
+        int mask = mask(size);
+        expected &= mask;
+        while (true) {
+            int current = NativeMemory.getIntVolatile(word);
+            if (((current >>> shift) & mask) != expected) {
+                return false;
+            }
+            if (NativeMemory.compareAndSetInt(word, current, replace(current, shift, mask, value))) {
+                return true;
+            }
+        }
+    }
+
+    /** @return the previous unsigned value */
+    private static int getAndAddBits(long address, int size, int delta) {
+        long word = address & ~3L;
+        int shift = shift(address, size);
+        int mask = mask(size);
+        while (true) {
+            int current = NativeMemory.getIntVolatile(word);
+            int old = (current >>> shift) & mask;
+            if (NativeMemory.compareAndSetInt(word, current, replace(current, shift, mask, old + delta))) {
+                return old;
+            }
+        }
+    }
+
+    /** @return the previous unsigned value */
+    private static int getAndSetBits(long address, int size, int value) {
+        long word = address & ~3L;
+        int shift = shift(address, size);
+        int mask = mask(size);
+        while (true) {
+            int current = NativeMemory.getIntVolatile(word);
+            if (NativeMemory.compareAndSetInt(word, current, replace(current, shift, mask, value))) {
+                return (current >>> shift) & mask;
+            }
+        }
+    }
+
+    private static int replace(int word, int shift, int mask, int value) {
+        return (word & ~(mask << shift)) | ((value & mask) << shift);
+    }
+
+    /** @return the position of the <tt>size</tt> bytes at <tt>address</tt> within their aligned int */
+    private static int shift(long address, int size) {
+        int offset = (int) (address & 3);
+        return (BIG_ENDIAN ? 4 - size - offset : offset) << 3;
+    }
+
+    private static int mask(int size) {
+        return size == 1 ? 0xFF : 0xFFFF;
+    }
+}
@@ -0,0 +1,16 @@
+package gnu.trove.array;
+
+/**
+ * Marks a collection or map that keeps its contents in native memory,
+ * through offheap arrays.
+ * <p>
+ * Growing, shrinking or freeing such a collection releases native memory
+ * that a concurrent lookup may still be reading. Unlike on the heap, where
+ * such a lookup only sees stale values, it then reads memory that may
+ * already belong to another allocation, or crash the JVM. Thread safe
+ * wrappers, e.g. the stamped ones of {@link gnu.trove.TCollections}, check
+ * for this interface and never let lookups of such collections run without
+ * holding a lock.
+ */
+public interface OffheapBacked {
+}
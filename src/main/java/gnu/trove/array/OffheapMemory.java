@@ -0,0 +1,234 @@
+package gnu.trove.array;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps track of the native memory allocated by offheap arrays, and
+ * optionally limits it.
+ * <p>
+ * Every offheap array reports its allocations here, under its element type.
+ * Arrays allocated from an {@link OffheapArena} are not reported one by one,
+ * the arena reports the blocks it allocates under the type "arena" instead.
+ * Memory mapped arrays are backed by the page cache rather than the native
+ * heap and are not reported.
+ * <p>
+ * The limit can be set with the <tt>gnu.trove.offheap.limit</tt> system
+ * property (in bytes), with {@link #setLimit}, or through the MXBean. Once
+ * it is reached allocations fail with an {@link OutOfMemoryError} describing
+ * the usage, rather than growing the process until it is killed.
+ */
+public final class OffheapMemory {
+
+    /** The name {@link #registerMXBean()} registers the MXBean under. */
+    public static final String OBJECT_NAME = "gnu.trove:type=OffheapMemory";
+
+    /** The type arena blocks are reported under. */
+    public static final String ARENA = "arena";
+
+    private static final Counters TOTAL = new Counters();
+    private static final ConcurrentMap<String, Counters> BY_TYPE = new ConcurrentHashMap<String, Counters>();
+    private static final OffheapMemoryMXBean MX_BEAN = new MXBean();
+
+    private static volatile long limit = Long.getLong("gnu.trove.offheap.limit", 0L);
+
+    private OffheapMemory() {
+    }
+
+    /** @return the usage of all offheap arrays and arenas together. */
+    public static OffheapMemoryUsage getUsage() {
+        return TOTAL.snapshot();
+    }
+
+    /** @return the usage of the given element type, e.g. "int". */
+    public static OffheapMemoryUsage getUsage(String type) {
+        return counters(type).snapshot();
+    }
+
+    /** @return the usage broken down by element type. */
+    public static Map<String, OffheapMemoryUsage> getUsageByType() {
+        Map<String, OffheapMemoryUsage> usage = new TreeMap<String, OffheapMemoryUsage>();
+        for (Map.Entry<String, Counters> entry : BY_TYPE.entrySet()) {
+            usage.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return usage;
+    }
+
+    /** @return the maximum number of bytes that may be in use at once, or 0 if unlimited. */
+    public static long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limit the maximum number of bytes that may be in use at once, or 0 for no limit
+     * @see OffheapMemoryMXBean#setLimit
+     */
+    public static void setLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must be >= 0: " + limit);
+        }
+        OffheapMemory.limit = limit;
+    }
+
+    /** @return the MXBean exposing the usage and the limit. */
+    public static OffheapMemoryMXBean getMXBean() {
+        return MX_BEAN;
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server under
+     * {@link #OBJECT_NAME}, unless it is registered already.
+     */
+    public static void registerMXBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(MX_BEAN, name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Records that an array of <tt>type</tt> is about to allocate <tt>bytes</tt>
+     * bytes, failing if that would exceed the limit.
+     */
+    static void allocated(String type, long bytes) {
+        reserve(type, bytes);
+        TOTAL.arrayCreated();
+        counters(type).arrayCreated();
+    }
+
+    /** Records that an array of <tt>type</tt> holding <tt>bytes</tt> bytes was freed. */
+    static void freed(String type, long bytes) {
+        release(type, bytes);
+        TOTAL.arrayFreed();
+        counters(type).arrayFreed();
+    }
+
+    /**
+     * Records that an array of <tt>type</tt> is about to be resized from
+     * <tt>oldBytes</tt> to <tt>newBytes</tt>, failing if growing it would
+     * exceed the limit.
+     */
+    static void reallocated(String type, long oldBytes, long newBytes) {
+        if (newBytes > oldBytes) {
+            reserve(type, newBytes - oldBytes);
+        } else {
+            release(type, oldBytes - newBytes);
+        }
+    }
+
+    private static void reserve(String type, long bytes) {
+        long limit = OffheapMemory.limit;
+        if (limit > 0) {
+            long inUse;
+            do {
+                inUse = TOTAL.inUse.get();
+                if (inUse + bytes > limit) {
+                    throw new OutOfMemoryError("Cannot allocate " + bytes + " bytes of offheap memory for " +
+                            type + ": " + inUse + " of the " + limit + " bytes limit are in use (" +
+                            getUsageByType() + ")");
+                }
+            } while (!TOTAL.inUse.compareAndSet(inUse, inUse + bytes));
+        } else {
+            TOTAL.inUse.addAndGet(bytes);
+        }
+        TOTAL.allocated(bytes, false);
+        counters(type).allocated(bytes, true);
+    }
+
+    private static void release(String type, long bytes) {
+        TOTAL.freed(bytes, false);
+        TOTAL.inUse.addAndGet(-bytes);
+        counters(type).freed(bytes, true);
+    }
+
+    private static Counters counters(String type) {
+        Counters counters = BY_TYPE.get(type);
+        if (counters == null) {
+            Counters created = new Counters();
+            counters = BY_TYPE.putIfAbsent(type, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+
+    private static final class Counters {
+        final AtomicLong bytesAllocated = new AtomicLong();
+        final AtomicLong bytesFreed = new AtomicLong();
+        final AtomicLong inUse = new AtomicLong();
+        final AtomicLong peakInUse = new AtomicLong();
+        final AtomicLong liveArrays = new AtomicLong();
+        final AtomicLong peakLiveArrays = new AtomicLong();
+
+        void allocated(long bytes, boolean updateInUse) {
+            bytesAllocated.addAndGet(bytes);
+            updatePeak(peakInUse, updateInUse ? inUse.addAndGet(bytes) : inUse.get());
+        }
+
+        void freed(long bytes, boolean updateInUse) {
+            bytesFreed.addAndGet(bytes);
+            if (updateInUse) {
+                inUse.addAndGet(-bytes);
+            }
+        }
+
+        void arrayCreated() {
+            updatePeak(peakLiveArrays, liveArrays.incrementAndGet());
+        }
+
+        void arrayFreed() {
+            liveArrays.decrementAndGet();
+        }
+
+        OffheapMemoryUsage snapshot() {
+            return new OffheapMemoryUsage(bytesAllocated.get(), bytesFreed.get(), peakInUse.get(),
+                    liveArrays.get(), peakLiveArrays.get());
+        }
+
+        private static void updatePeak(AtomicLong peak, long value) {
+            long current;
+            while (value > (current = peak.get()) && !peak.compareAndSet(current, value)) {
+                ;
+            }
+        }
+    }
+
+    private static final class MXBean implements OffheapMemoryMXBean {
+        @Override
+        public OffheapMemoryUsage getUsage() {
+            return OffheapMemory.getUsage();
+        }
+
+        @Override
+        public Map<String, OffheapMemoryUsage> getUsageByType() {
+            return OffheapMemory.getUsageByType();
+        }
+
+        @Override
+        public long getLimit() {
+            return OffheapMemory.getLimit();
+        }
+
+        @Override
+        public void setLimit(long limit) {
+            OffheapMemory.setLimit(limit);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package gnu.trove.array;
+
+import java.util.Map;
+
+/**
+ * Management interface for the native memory used by offheap arrays, registered
+ * under {@link OffheapMemory#OBJECT_NAME} by {@link OffheapMemory#registerMXBean()}.
+ */
+public interface OffheapMemoryMXBean {
+
+    /** @return the usage of all offheap arrays and arenas together. */
+    OffheapMemoryUsage getUsage();
+
+    /**
+     * @return the usage broken down by element type (e.g. "int" or "long"),
+     * with the blocks of {@link OffheapArena}s reported as "arena".
+     */
+    Map<String, OffheapMemoryUsage> getUsageByType();
+
+    /** @return the maximum number of bytes that may be in use at once, or 0 if unlimited. */
+    long getLimit();
+
+    /**
+     * Sets the maximum number of bytes that may be in use at once. Allocations
+     * that would exceed it fail with an {@link OutOfMemoryError}. Lowering the
+     * limit below the current usage does not free anything, it only makes
+     * further allocations fail.
+     *
+     * @param limit the limit in bytes, or 0 for no limit
+     */
+    void setLimit(long limit);
+}
@@ -0,0 +1,77 @@
+package gnu.trove.array;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * A snapshot of the native memory used by offheap arrays.
+ *
+ * @see OffheapMemory
+ */
+public class OffheapMemoryUsage {
+    private final long bytesAllocated;
+    private final long bytesFreed;
+    private final long peakBytesInUse;
+    private final long liveArrays;
+    private final long peakLiveArrays;
+
+    public OffheapMemoryUsage(long bytesAllocated, long bytesFreed, long peakBytesInUse,
+                              long liveArrays, long peakLiveArrays) {
+        this.bytesAllocated = bytesAllocated;
+        this.bytesFreed = bytesFreed;
+        this.peakBytesInUse = peakBytesInUse;
+        this.liveArrays = liveArrays;
+        this.peakLiveArrays = peakLiveArrays;
+    }
+
+    /** @return the total number of bytes allocated so far, including growth by resizing. */
+    public long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    /** @return the total number of bytes freed so far, including shrinking by resizing. */
+    public long getBytesFreed() {
+        return bytesFreed;
+    }
+
+    /** @return the number of bytes currently allocated. */
+    public long getBytesInUse() {
+        return bytesAllocated - bytesFreed;
+    }
+
+    /** @return the highest number of bytes that were allocated at once. */
+    public long getPeakBytesInUse() {
+        return peakBytesInUse;
+    }
+
+    /** @return the number of arrays (or arena blocks) that have not been freed yet. */
+    public long getLiveArrays() {
+        return liveArrays;
+    }
+
+    /** @return the highest number of arrays (or arena blocks) that were live at once. */
+    public long getPeakLiveArrays() {
+        return peakLiveArrays;
+    }
+
+    /**
+     * Reconstructs a usage from the <tt>CompositeData</tt> it is mapped to by
+     * {@link OffheapMemoryMXBean}.
+     */
+    public static OffheapMemoryUsage from(CompositeData data) {
+        if (data == null) {
+            return null;
+        }
+        return new OffheapMemoryUsage(
+                (Long) data.get("bytesAllocated"),
+                (Long) data.get("bytesFreed"),
+                (Long) data.get("peakBytesInUse"),
+                (Long) data.get("liveArrays"),
+                (Long) data.get("peakLiveArrays"));
+    }
+
+    @Override
+    public String toString() {
+        return "allocated=" + bytesAllocated + ", freed=" + bytesFreed + ", inUse=" + getBytesInUse() +
+                ", peakInUse=" + peakBytesInUse + ", liveArrays=" + liveArrays + ", peakLiveArrays=" + peakLiveArrays;
+    }
+}
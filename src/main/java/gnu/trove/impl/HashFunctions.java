@@ -73,6 +73,123 @@ public final class HashFunctions {
     }
 
 
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value, for tables
+     * with more than 2^31 slots that are indexed by its low bits.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(long value) {
+        // the finalizer of MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(int value) {
+        return hash64((long) value);
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(double value) {
+        assert !Double.isNaN(value) : "Values of NaN are not supported.";
+
+        return hash64(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(float value) {
+        assert !Float.isNaN(value) : "Values of NaN are not supported.";
+
+        return hash64((long) Float.floatToIntBits(value));
+    }
+
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value, which
+     * depends on <tt>seed</tt>. Keys chosen to collide for one seed do not
+     * collide for another, see {@link gnu.trove.impl.hash.THash#setRandomizedHashing}.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(long value, long seed) {
+        return hash64(value ^ seed);
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value, which
+     * depends on <tt>seed</tt>.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(int value, long seed) {
+        return hash64((long) value ^ seed);
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value, which
+     * depends on <tt>seed</tt>.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(double value, long seed) {
+        assert !Double.isNaN(value) : "Values of NaN are not supported.";
+
+        return hash64(Double.doubleToLongBits(value) ^ seed);
+    }
+
+    /**
+     * Returns a well mixed 64 bit hashcode for the specified value, which
+     * depends on <tt>seed</tt>.
+     *
+     * @return  a hash code value for the specified value.
+     */
+    public static long hash64(float value, long seed) {
+        assert !Float.isNaN(value) : "Values of NaN are not supported.";
+
+        return hash64((long) Float.floatToIntBits(value) ^ seed);
+    }
+
+    /**
+     * Returns a hashcode for the specified object, which depends on
+     * <tt>seed</tt>. Strings are hashed by their characters, so that strings
+     * with equal {@link String#hashCode} do not collide for every seed; other
+     * objects mix their hash code with the seed.
+     *
+     * @return  a hash code value for the specified object.
+     */
+    public static int hash(Object object, long seed) {
+        if (object instanceof String) {
+            return hashChars((String) object, seed);
+        }
+        return (int) hash64(hash(object), seed);
+    }
+
+    private static int hashChars(String string, long seed) {
+        int length = string.length();
+        long h = seed ^ length;
+        for (int i = 0; i < length; i++) {
+            h = Long.rotateLeft((h ^ string.charAt(i)) * 0x9e3779b97f4a7c15L, 31);
+        }
+        return (int) hash64(h);
+    }
+
     /**
      * In profiling, it has been found to be faster to have our own local implementation
      * of "ceil" rather than to call to {@link Math#ceil(double)}.
@@ -0,0 +1,31 @@
+package gnu.trove.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sequence counter of a concurrent queue, e.g. the index of the next slot
+ * to write or read, padded with unused fields so that no other counter
+ * written by another thread shares its cache line.
+ * <p>
+ * The padding follows the counter. A queue should allocate its sequences
+ * one after the other, after the fields of the queue itself, so that the
+ * padding of one also separates the next from it.
+ */
+public final class PaddedSequence extends AtomicLong {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A copy of the sequence of the other end of the queue, read and written
+     * only by the thread that owns this sequence, so that it reads the other
+     * sequence only when the copy is out of date.
+     */
+    public long cache;
+
+    // padding to the end of a 128 byte line pair, against adjacent line prefetch
+    long p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14;
+
+    public PaddedSequence(long initialValue) {
+        super(initialValue);
+    }
+}
@@ -0,0 +1,205 @@
+package gnu.trove.impl.hash;
+
+import gnu.trove.array.NativeAllocator;
+import gnu.trove.array.OffheapAllocator;
+import gnu.trove.array.OffheapBacked;
+import gnu.trove.array.TByteSegmentedOffheapArray;
+import gnu.trove.impl.Constants;
+
+/**
+ * Base class for offheap hash tables with more than 2^31 slots.
+ * <p>
+ * Unlike {@link TPrimitiveOffheapHash}, which follows {@link THash} with
+ * <tt>int</tt> capacities and prime table sizes, these tables use
+ * <tt>long</tt> capacities that are powers of two, indexed by the low bits
+ * of a 64 bit hash, and resolve collisions with linear probing. Removals
+ * shift the following entries back instead of leaving tombstones, so a table
+ * never fills up with removed slots. All arrays are
+ * {@link gnu.trove.array.TByteSegmentedOffheapArray segmented}, so growing a
+ * table allocates it in segments rather than in one huge block.
+ */
+public abstract class TBigOffheapHash implements OffheapBacked {
+
+    /** the largest possible capacity */
+    public static final long MAX_CAPACITY = 1L << 62;
+
+    protected static final byte FREE = 0;
+    protected static final byte FULL = 1;
+
+    /** whether the slot at each index is used */
+    protected TByteSegmentedOffheapArray _states;
+
+    /** the number of entries */
+    protected long _size;
+
+    /** the capacity minus one, to map hashes to slots */
+    protected long _mask;
+
+    /** the size at which the table grows */
+    protected long _maxSize;
+
+    /** the fraction of the slots that may be used before the table grows */
+    protected final float _loadFactor;
+
+    /** the number of elements per segment, as a power of two */
+    protected final int _segmentShift;
+
+    /** the allocator the arrays of the table are allocated from */
+    protected final OffheapAllocator _allocator;
+
+    /**
+     * Creates a table that can hold <tt>initialCapacity</tt> entries before it
+     * grows.
+     */
+    protected TBigOffheapHash( long initialCapacity, float loadFactor, int segmentShift, OffheapAllocator allocator ) {
+        if ( initialCapacity < 0 ) {
+            throw new IllegalArgumentException( "negative capacity: " + initialCapacity );
+        }
+        if ( !( loadFactor > 0 && loadFactor < 1 ) ) {
+            throw new IllegalArgumentException( "load factor must be in (0, 1): " + loadFactor );
+        }
+        _loadFactor = loadFactor;
+        _segmentShift = segmentShift;
+        _allocator = allocator;
+        setUp( tableSizeFor( initialCapacity, loadFactor ) );
+    }
+
+    protected TBigOffheapHash( long initialCapacity, float loadFactor ) {
+        this( initialCapacity, loadFactor, TByteSegmentedOffheapArray.DEFAULT_SEGMENT_SHIFT,
+            NativeAllocator.INSTANCE );
+    }
+
+    protected TBigOffheapHash() {
+        this( Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR );
+    }
+
+
+    /** @return the number of entries */
+    public long size() {
+        return _size;
+    }
+
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+
+    /** @return the number of slots */
+    public long capacity() {
+        return _mask + 1;
+    }
+
+
+    /** @return the allocator the arrays of the table are allocated from */
+    public OffheapAllocator getAllocator() {
+        return _allocator;
+    }
+
+
+    /**
+     * Grows the table, if necessary, so that <tt>desiredCapacity</tt> more
+     * entries can be added without growing it again.
+     */
+    public void ensureCapacity( long desiredCapacity ) {
+        if ( desiredCapacity > _maxSize - _size ) {
+            rehash( tableSizeFor( _size + desiredCapacity, _loadFactor ) );
+        }
+    }
+
+
+    /** Removes all entries. */
+    public void clear() {
+        _states.clear();
+        _size = 0;
+    }
+
+
+    /**
+     * Frees the memory of the table. It must not be used afterwards.
+     */
+    public void free() {
+        _states.free();
+        _size = 0;
+    }
+
+
+    /**
+     * Allocates empty arrays for <tt>capacity</tt> slots, replacing the
+     * current ones without freeing them.
+     */
+    protected void setUp( long capacity ) {
+        _states = new TByteSegmentedOffheapArray( capacity, _segmentShift, _allocator );
+        _mask = capacity - 1;
+        _maxSize = Math.min( capacity - 1, ( long ) ( capacity * ( double ) _loadFactor ) );
+        allocateArrays( capacity );
+    }
+
+
+    /** Allocates the key and value arrays for <tt>capacity</tt> slots. */
+    protected abstract void allocateArrays( long capacity );
+
+
+    /** Moves all entries into a new table of <tt>newCapacity</tt> slots. */
+    protected abstract void rehash( long newCapacity );
+
+
+    /** @return the slot the key at <tt>index</tt> hashes to */
+    protected abstract long homeOf( long index );
+
+
+    /** Copies the entry at <tt>from</tt> to <tt>to</tt>. */
+    protected abstract void move( long from, long to );
+
+
+    /**
+     * Must be called after an entry was added to a free slot. Grows the table
+     * once it is loaded beyond the load factor.
+     */
+    protected final void postInsertHook() {
+        if ( ++_size > _maxSize ) {
+            long capacity = capacity();
+            if ( capacity >= MAX_CAPACITY ) {
+                throw new IllegalStateException( "Cannot grow beyond " + capacity + " slots" );
+            }
+            rehash( capacity << 1 );
+        }
+    }
+
+
+    /**
+     * Removes the entry at <tt>index</tt>, moving back the entries after it
+     * that would no longer be found otherwise.
+     */
+    protected void removeAt( long index ) {
+        long hole = index;
+        long i = index;
+        while ( true ) {
+            i = ( i + 1 ) & _mask;
+            if ( _states.get( i ) == FREE ) {
+                break;
+            }
+            // the entry may fill the hole if the hole lies between its home and i
+            if ( ( ( i - homeOf( i ) ) & _mask ) >= ( ( i - hole ) & _mask ) ) {
+                move( i, hole );
+                hole = i;
+            }
+        }
+        _states.put( hole, FREE );
+        _size--;
+    }
+
+
+    /**
+     * @return the smallest power of two number of slots that holds
+     * <tt>entries</tt> entries at the given load factor
+     */
+    protected static long tableSizeFor( long entries, float loadFactor ) {
+        double slots = Math.ceil( entries / ( double ) loadFactor ) + 1;
+        if ( slots >= MAX_CAPACITY ) {
+            return MAX_CAPACITY;
+        }
+        long capacity = Long.highestOneBit( Math.max( 2, ( long ) slots ) - 1 ) << 1;
+        return Math.max( 2, capacity );
+    }
+}
@@ -20,6 +20,7 @@
 
 package gnu.trove.impl.hash;
 
+import gnu.trove.impl.HashFunctions;
 import gnu.trove.strategy.HashingStrategy;
 
 import java.io.IOException;
@@ -90,7 +91,11 @@ abstract public class TCustomObjectHash<T> extends TObjectHash<T> {
 	@Override
 	protected int hash( Object obj ) {
 		//noinspection unchecked
-		return strategy.computeHashCode( ( T ) obj );
+		int hash = strategy.computeHashCode( ( T ) obj );
+		if ( _hashSeed != 0 ) {
+			return ( int ) HashFunctions.hash64( hash, _hashSeed );
+		}
+		return hash;
 	}
 
 	@Override
@@ -28,6 +28,7 @@ import java.io.Externalizable;
 import java.io.ObjectOutput;
 import java.io.IOException;
 import java.io.ObjectInput;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 
@@ -94,6 +95,22 @@ abstract public class THash implements Externalizable {
     /** @see #tempDisableAutoCompaction */
     protected transient boolean _autoCompactTemporaryDisable = false;
 
+    /**
+     * The number of slots migrated per operation by an incremental rehash,
+     * or zero to rehash in one go.
+     *
+     * @see #setIncrementalRehash
+     */
+    protected transient int _rehashStep;
+
+    /**
+     * The seed mixed into the hash of every key, or zero if the table hashes
+     * keys as they are.
+     *
+     * @see #setRandomizedHashing
+     */
+    protected transient long _hashSeed;
+
 
     /**
      * Creates a new <code>THash</code> instance with the default
@@ -171,7 +188,7 @@ abstract public class THash implements Externalizable {
      */
     public void ensureCapacity( int desiredCapacity ) {
         if ( desiredCapacity > ( _maxSize - size() ) ) {
-			rehash( PrimeFinder.nextPrime( Math.max( size() + 1,
+			startRehash( computeCapacity( Math.max( size() + 1,
 				HashFunctions.fastCeil( ( desiredCapacity + size() ) / _loadFactor ) + 1 ) ) );
             computeMaxSize( capacity() );
         }
@@ -179,9 +196,9 @@ abstract public class THash implements Externalizable {
 
 
     /**
-     * Compresses the hashtable to the minimum prime size (as defined
-     * by PrimeFinder) that will hold all of the elements currently in
-     * the table.  If you have done a lot of <tt>remove</tt>
+     * Compresses the hashtable to the minimum size (as defined by
+     * {@link #computeCapacity}) that will hold all of the elements
+     * currently in the table.  If you have done a lot of <tt>remove</tt>
      * operations and plan to do a lot of queries or insertions or
      * iteration, it is a good idea to invoke this method.  Doing so
      * will accomplish two things:
@@ -197,7 +214,7 @@ abstract public class THash implements Externalizable {
      */
     public void compact() {
         // need at least one free spot for open addressing
-        rehash( PrimeFinder.nextPrime( Math.max( _size + 1,
+        startRehash( computeCapacity( Math.max( _size + 1,
 	        HashFunctions.fastCeil( size() / _loadFactor ) + 1 ) ) );
         computeMaxSize( capacity() );
 
@@ -238,6 +255,92 @@ abstract public class THash implements Externalizable {
     }
 
 
+    /**
+     * Makes the table rehash incrementally. Instead of moving all entries to
+     * a new table when it grows or is compacted, the table keeps the old one
+     * and each following lookup, insert or remove moves the entries of the
+     * next <tt>slotsPerOperation</tt> slots of the old table. This bounds the
+     * latency of each operation at the cost of probing both tables while
+     * the rehash is in progress. Operations over all entries, e.g. iteration,
+     * finish a rehash that is in progress first.
+     * <p/>
+     * As the table has to finish a rehash before it can start the next one,
+     * the step should be at least 4 to keep up with a table that only grows.
+     * Setting it to zero, the default, rehashes in one go again. Tables that
+     * do not support incremental rehashing always rehash in one go.
+     *
+     * @param slotsPerOperation an <tt>int</tt> value
+     */
+    public void setIncrementalRehash( int slotsPerOperation ) {
+        if ( slotsPerOperation < 0 ) {
+            throw new IllegalArgumentException( "Slots must be >= 0: " + slotsPerOperation );
+        }
+        _rehashStep = slotsPerOperation;
+    }
+
+
+    /**
+     * @see #setIncrementalRehash
+     *
+     * @return the number of slots migrated per operation, or zero if the
+     * table rehashes in one go.
+     */
+    public int getIncrementalRehash() {
+        return _rehashStep;
+    }
+
+
+    /**
+     * Enables or disables randomized hashing. With it enabled the table mixes
+     * a random seed, picked for each table, into the hash of every key, so
+     * that keys chosen to collide, e.g. by a client that knows the hash
+     * function, do not share their slots in this table, and lookups stay
+     * fast. This costs a few more instructions per hash, and rehashes the
+     * entries of the table in one go. It is off by default.
+     * <p/>
+     * Keys whose hash codes are equal, which objects may have, still collide,
+     * as do keys that a custom hashing strategy hashes to equal codes.
+     * A copy of the table that is serialized and read back picks a new seed.
+     * Only randomized tables write the flag for this, as version 1 of the
+     * serialized form, which releases before randomized hashing cannot read;
+     * other tables keep writing version 0.
+     *
+     * @param randomized whether to hash with a random seed
+     */
+    public void setRandomizedHashing( boolean randomized ) {
+        if ( randomized == isRandomizedHashing() ) {
+            return;
+        }
+
+        // the old table of an incremental rehash is probed with the old seed
+        if ( isRehashing() ) {
+            int step = _rehashStep;
+            _rehashStep = 0;
+            startRehash( capacity() );
+            _rehashStep = step;
+        }
+        _hashSeed = randomized ? newHashSeed() : 0;
+        rehash( capacity() );
+        computeMaxSize( capacity() );
+    }
+
+
+    /**
+     * @see #setRandomizedHashing
+     *
+     * @return whether the table hashes keys with a random seed
+     */
+    public boolean isRandomizedHashing() {
+        return _hashSeed != 0;
+    }
+
+
+    private static long newHashSeed() {
+        // never zero, which stands for no seed
+        return ThreadLocalRandom.current().nextLong() | 1;
+    }
+
+
     /**
      * This simply calls {@link #compact compact}.  It is included for
      * symmetry with other collection classes.  Note that the name of this
@@ -265,7 +368,9 @@ abstract public class THash implements Externalizable {
         if ( _autoCompactionFactor != 0 ) {
             _autoCompactRemovesRemaining--;
 
-            if ( !_autoCompactTemporaryDisable && _autoCompactRemovesRemaining <= 0 ) {
+            // a compaction during an incremental rehash waits for it to finish
+            if ( !_autoCompactTemporaryDisable && _autoCompactRemovesRemaining <= 0 &&
+                 !isRehashing() ) {
                 // Do the compact
                 // NOTE: this will cause the next compaction interval to be calculated
                 compact();
@@ -291,7 +396,7 @@ abstract public class THash implements Externalizable {
     protected int setUp( int initialCapacity ) {
         int capacity;
 
-        capacity = PrimeFinder.nextPrime( initialCapacity );
+        capacity = computeCapacity( initialCapacity );
         computeMaxSize( capacity );
         computeNextAutoCompactionAmount( initialCapacity );
 
@@ -299,6 +404,49 @@ abstract public class THash implements Externalizable {
     }
 
 
+    /**
+     * Returns the capacity to use for a table that needs at least
+     * <tt>minCapacity</tt> slots. This is the next prime, as double
+     * hashing requires; tables that probe differently, e.g. by masking
+     * the hash with a power of two, override it.
+     *
+     * @param minCapacity an <code>int</code> value
+     * @return the capacity to allocate
+     */
+    protected int computeCapacity( int minCapacity ) {
+        return PrimeFinder.nextPrime( minCapacity );
+    }
+
+
+    /**
+     * Returns the slot a key with the non-negative hash <tt>hash</tt> is
+     * probed at first, in a table of <tt>length</tt> slots as chosen by
+     * {@link #computeCapacity}.
+     *
+     * @param hash a non-negative <code>int</code> value
+     * @param length the capacity of the table
+     * @return an index into the table
+     */
+    protected int firstSlot( int hash, int length ) {
+        return hash % length;
+    }
+
+
+    /**
+     * Returns the distance between the slots a key with the non-negative
+     * hash <tt>hash</tt> is probed at after the first one. The probe must
+     * reach every slot of a table of <tt>length</tt> slots, which any step
+     * does for a prime length; see Knuth, p. 529.
+     *
+     * @param hash a non-negative <code>int</code> value
+     * @param length the capacity of the table
+     * @return a step between 1 and <tt>length - 1</tt>
+     */
+    protected int probeStep( int hash, int length ) {
+        return 1 + ( hash % ( length - 2 ) );
+    }
+
+
     /**
      * Rehashes the set.
      *
@@ -307,6 +455,26 @@ abstract public class THash implements Externalizable {
     protected abstract void rehash( int newCapacity );
 
 
+    /**
+     * Starts to rehash the table to <tt>newCapacity</tt>. This rehashes in
+     * one go, unless the table supports incremental rehashing and it is
+     * enabled, see {@link #setIncrementalRehash}.
+     *
+     * @param newCapacity an <code>int</code> value
+     */
+    protected void startRehash( int newCapacity ) {
+        rehash( newCapacity );
+    }
+
+
+    /**
+     * @return whether an incremental rehash is in progress
+     */
+    protected boolean isRehashing() {
+        return false;
+    }
+
+
     /**
      * Temporarily disables auto-compaction. MUST be followed by calling
      * {@link #reenableAutoCompaction}.
@@ -383,8 +551,8 @@ abstract public class THash implements Externalizable {
             // if we've grown beyond our maximum size, double capacity;
             // if we've exhausted the free spots, rehash to the same capacity,
             // which will free up any stale removed slots for reuse.
-            int newCapacity = _size > _maxSize ? PrimeFinder.nextPrime( capacity() << 1 ) : capacity();
-            rehash( newCapacity );
+            int newCapacity = _size > _maxSize ? computeCapacity( capacity() << 1 ) : capacity();
+            startRehash( newCapacity );
             computeMaxSize( capacity() );
         }
     }
@@ -397,14 +565,20 @@ abstract public class THash implements Externalizable {
 
     @Override
     public void writeExternal( ObjectOutput out ) throws IOException {
-        // VERSION
-        out.writeByte( 0 );
+        // VERSION, 1 adds randomized hashing, older readers can read 0
+        boolean randomized = isRandomizedHashing();
+        out.writeByte( randomized ? 1 : 0 );
 
         // LOAD FACTOR
         out.writeFloat( _loadFactor );
 
         // AUTO COMPACTION LOAD FACTOR
         out.writeFloat( _autoCompactionFactor );
+
+        // RANDOMIZED HASHING
+        if ( randomized ) {
+            out.writeBoolean( true );
+        }
     }
 
 
@@ -413,7 +587,7 @@ abstract public class THash implements Externalizable {
             throws IOException, ClassNotFoundException {
 
         // VERSION
-        in.readByte();
+        int version = in.readByte();
 
         // LOAD FACTOR
         float old_factor = _loadFactor;
@@ -422,6 +596,9 @@ abstract public class THash implements Externalizable {
         // AUTO COMPACTION LOAD FACTOR
         _autoCompactionFactor = in.readFloat();
 
+        // RANDOMIZED HASHING, before the entries are put with its seed
+        _hashSeed = version >= 1 && in.readBoolean() ? newHashSeed() : 0;
+
         // If we change the laod factor from the default, re-setup
         if ( old_factor != _loadFactor ) {
             setUp( (int) Math.ceil( DEFAULT_CAPACITY / _loadFactor ) );
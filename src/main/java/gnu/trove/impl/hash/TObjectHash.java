@@ -20,6 +20,7 @@
 
 package gnu.trove.impl.hash;
 
+import gnu.trove.impl.HashFunctions;
 import gnu.trove.procedure.TObjectProcedure;
 
 import java.io.IOException;
@@ -479,7 +480,15 @@ abstract public class TObjectHash<T> extends THash {
         return notnull.equals(two);
     }
 
+    /**
+     * Returns the hash code that <tt>notnull</tt> is probed with, which mixes
+     * in the seed of the table with randomized hashing enabled, see
+     * {@link #setRandomizedHashing}.
+     */
     protected int hash(Object notnull) {
+        if (_hashSeed != 0) {
+            return HashFunctions.hash(notnull, _hashSeed);
+        }
         return notnull.hashCode();
     }
 
@@ -20,6 +20,9 @@
 
 package gnu.trove.impl.hash;
 
+import gnu.trove.array.NativeAllocator;
+import gnu.trove.array.OffheapAllocator;
+import gnu.trove.array.OffheapBacked;
 import gnu.trove.array.TByteOffheapArray;
 import gnu.trove.impl.HashFunctions;
 
@@ -35,7 +38,7 @@ import gnu.trove.impl.HashFunctions;
  * @author Eric D. Friedman, Rob Eden, Jeff Randall
  * @version $Id: TPrimitiveOffheapHash.java,v 1.1.2.6 2010/03/01 23:39:07 robeden Exp $
  */
-abstract public class TPrimitiveOffheapHash extends THash {
+abstract public class TPrimitiveOffheapHash extends THash implements OffheapBacked {
 	static final long serialVersionUID = 1L;
 
     /**
@@ -44,6 +47,9 @@ abstract public class TPrimitiveOffheapHash extends THash {
      */
     public transient TByteOffheapArray _states;
 
+    /** the allocator the arrays of this hash are allocated from */
+    protected transient OffheapAllocator _allocator;
+
     /* constants used for state flags */
 
     /** flag indicating that a slot in the hashtable is available */
@@ -58,6 +64,12 @@ abstract public class TPrimitiveOffheapHash extends THash {
      */
     public static final byte REMOVED = 2;
 
+    /**
+     * flag indicating that an in-place rehash has yet to move the entry
+     * in a slot to its place in the grown table
+     */
+    protected static final byte PENDING = 3;
+
 
     /**
      * Creates a new <code>TPrimitiveOffheapHash</code> instance with the default
@@ -90,13 +102,40 @@ abstract public class TPrimitiveOffheapHash extends THash {
      * @param loadFactor      a <code>float</code> value
      */
     public TPrimitiveOffheapHash( int initialCapacity, float loadFactor ) {
+        this( initialCapacity, loadFactor, NativeAllocator.INSTANCE );
+    }
+
+
+    /**
+     * Creates a new <code>TPrimitiveOffheapHash</code> instance with a prime
+     * capacity at or near the minimum needed to hold
+     * <tt>initialCapacity<tt> elements with load factor
+     * <tt>loadFactor</tt> without triggering a rehash, whose arrays are
+     * allocated from <tt>allocator</tt>.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     * @param allocator       an <code>OffheapAllocator</code> value
+     */
+    public TPrimitiveOffheapHash( int initialCapacity, float loadFactor, OffheapAllocator allocator ) {
         super();
 		initialCapacity = Math.max( 1, initialCapacity );
         _loadFactor = loadFactor;
+        _allocator = allocator;
         setUp( HashFunctions.fastCeil( initialCapacity / loadFactor ) );
     }
 
 
+    /**
+     * Returns the allocator the arrays of this hash are allocated from.
+     *
+     * @return an <code>OffheapAllocator</code> value
+     */
+    public OffheapAllocator getAllocator() {
+        return _allocator;
+    }
+
+
     /**
      * Returns the capacity of the hash table.  This is the true
      * physical capacity, without adjusting for the load factor.
@@ -133,7 +172,27 @@ abstract public class TPrimitiveOffheapHash extends THash {
         int capacity;
 
         capacity = super.setUp( initialCapacity );
-        _states = new TByteOffheapArray( capacity );
+
+        // THash's constructor calls this before our own constructor has run
+        // and set the allocator. Our constructor calls it again, so only
+        // allocate then rather than allocating twice.
+        if ( _allocator != null ) {
+            allocateArrays( capacity );
+        }
         return capacity;
     }
+
+
+    /**
+     * Allocates the arrays of the table with the given capacity, freeing
+     * the ones that were allocated before, if any.
+     *
+     * @param capacity an <code>int</code> value
+     */
+    protected void allocateArrays( int capacity ) {
+        if ( _states != null ) {
+            _states.free();
+        }
+        _states = new TByteOffheapArray( capacity, _allocator );
+    }
 } // TPrimitiveOffheapHash
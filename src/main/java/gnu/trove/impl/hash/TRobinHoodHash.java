@@ -0,0 +1,207 @@
+package gnu.trove.impl.hash;
+
+import java.util.Arrays;
+
+
+/**
+ * Base class for hashtables of primitives that use Robin Hood hashing with
+ * backward-shift deletion.
+ * <p>
+ * The table probes linearly, and each slot records how far its entry is
+ * from the slot its hash maps to, the entry's probe distance. An insert
+ * takes the slot of the first entry that is closer to home than the new
+ * entry would be, and shifts that entry and the rest of its run one slot
+ * along. This keeps the entries of a run sorted by home slot, so the
+ * variance of the probe distances stays low even at load factors of
+ * 0.85-0.9, and a lookup can stop as soon as it meets an entry that is
+ * closer to home than the key would be.
+ * <p>
+ * A remove shifts the entries after it back by one slot, up to the first
+ * free slot or entry in its home slot. There are no <tt>REMOVED</tt>
+ * tombstones, so a table does not degrade under churn, and auto-compaction
+ * is off by default, as it would only shrink the table.
+ * <p>
+ * Capacities are powers of two and the default load factor is
+ * {@link #DEFAULT_ROBIN_HOOD_LOAD_FACTOR}. The probe distances are kept in a
+ * byte per slot, and an insert that would need a longer distance than
+ * {@link #MAX_DISTANCE} grows the table instead.
+ */
+abstract public class TRobinHoodHash extends THash {
+	static final long serialVersionUID = 1L;
+
+    /** the default load factor of robin hood tables, which stay fast when fuller. */
+    public static final float DEFAULT_ROBIN_HOOD_LOAD_FACTOR = 0.875f;
+
+    /** the longest probe distance a slot can record */
+    public static final int MAX_DISTANCE = 254;
+
+    /**
+     * the probe distance plus one of the entry in each slot, as an unsigned
+     * byte, or 0 for a free slot
+     */
+    public transient byte[] _distances;
+
+    /** the capacity minus one, to map hashes to slots */
+    protected transient int _mask;
+
+
+    /**
+     * Creates a new <code>TRobinHoodHash</code> instance with the default
+     * capacity and load factor.
+     */
+    public TRobinHoodHash() {
+        this( DEFAULT_CAPACITY, DEFAULT_ROBIN_HOOD_LOAD_FACTOR );
+    }
+
+
+    /**
+     * Creates a new <code>TRobinHoodHash</code> instance that holds
+     * <tt>initialCapacity</tt> elements with load factor
+     * <tt>loadFactor</tt> without triggering a rehash.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     */
+    public TRobinHoodHash( int initialCapacity, float loadFactor ) {
+        super( initialCapacity, loadFactor );
+        _autoCompactionFactor = 0;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int capacity() {
+        return _distances.length;
+    }
+
+
+    /**
+     * Returns the smallest power of two that is not less than
+     * <tt>minCapacity</tt>.
+     */
+    @Override
+    protected int computeCapacity( int minCapacity ) {
+        if ( minCapacity <= 2 ) {
+            return 2;
+        }
+        if ( minCapacity > ( 1 << 30 ) ) {
+            throw new IllegalStateException( "Cannot allocate a table with " + minCapacity + " slots" );
+        }
+        return Integer.highestOneBit( minCapacity - 1 ) << 1;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected int setUp( int initialCapacity ) {
+        int capacity = super.setUp( initialCapacity );
+        allocateDistances( capacity );
+        return capacity;
+    }
+
+
+    /**
+     * Allocates the probe distances of <tt>capacity</tt> free slots.
+     *
+     * @param capacity a power of two
+     */
+    protected void allocateDistances( int capacity ) {
+        _distances = new byte[capacity];
+        _mask = capacity - 1;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill( _distances, ( byte ) 0 );
+    }
+
+
+    /**
+     * Frees the slot at <tt>index</tt>, whose entry the subclass has just
+     * shifted out.
+     *
+     * @param index an <code>int</code> value
+     */
+    @Override
+    protected void removeAt( int index ) {
+        _free++;
+        super.removeAt( index );
+    }
+
+
+    /**
+     * Called when an insert has moved the entries of the slots from
+     * <tt>from</tt> up to <tt>to</tt>, excluded, one slot forward, wrapping
+     * around the end of the table, to make room for a new entry in slot
+     * <tt>from</tt>. Subclasses that keep more data per slot move it the
+     * same way. Does nothing by default.
+     *
+     * @param from the slot of the new entry
+     * @param to the free slot that the last entry moved to
+     */
+    protected void shiftedForward( int from, int to ) {
+    }
+
+
+    /**
+     * Called when a remove has moved the entries of the slots after
+     * <tt>from</tt> up to <tt>to</tt> one slot back, wrapping around the end
+     * of the table, and freed slot <tt>to</tt>. Subclasses that keep more
+     * data per slot move it the same way. Does nothing by default.
+     *
+     * @param from the slot of the removed entry
+     * @param to the slot that is free now
+     */
+    protected void shiftedBack( int from, int to ) {
+    }
+
+
+    /**
+     * Grows the table because an insert would need a probe distance longer
+     * than {@link #MAX_DISTANCE}.
+     */
+    protected final void growForDistance() {
+        rehash( computeCapacity( capacity() << 1 ) );
+        computeMaxSize( capacity() );
+    }
+
+
+    /**
+     * @return whether the slot at <tt>index</tt> holds an entry
+     */
+    protected final boolean isFull( int index ) {
+        return _distances[index] != 0;
+    }
+
+
+    /**
+     * @return the slot <tt>hash</tt> maps to
+     */
+    protected final int home( long hash ) {
+        return ( int ) hash & _mask;
+    }
+
+
+    /**
+     * Returns the slot at which to end a backward scan, from high to low
+     * indices, that removes entries as it goes. A remove shifts the entries
+     * after it back by one slot, so a plain scan from the last slot would
+     * miss an entry that wraps around from the first slot to the last. A
+     * scan that visits <tt>( end + n ) &amp; _mask</tt> for <tt>n</tt> from
+     * <tt>capacity() - 1</tt> down to 0 starts right before a slot that
+     * holds nothing or an entry in its home slot, which no shift crosses.
+     *
+     * @return the last slot of the scan
+     */
+    protected final int scanEnd() {
+        byte[] distances = _distances;
+        int i = 0;
+        while ( ( distances[i] & 0xFF ) > 1 ) {
+            i++;
+        }
+        return i;
+    }
+} // TRobinHoodHash
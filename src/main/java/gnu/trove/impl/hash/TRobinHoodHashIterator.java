@@ -0,0 +1,116 @@
+package gnu.trove.impl.hash;
+
+import gnu.trove.iterator.TPrimitiveIterator;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Implements all iterator functions for the robin hood tables, like
+ * {@link THashPrimitiveIterator} does for the other primitive tables.
+ * <p>
+ * The slots are visited backwards from {@link TRobinHoodHash#scanEnd()}, so
+ * that the entries that {@link #remove()} shifts back have all been
+ * returned already.
+ */
+public abstract class TRobinHoodHashIterator implements TPrimitiveIterator {
+
+    /** the data structure this iterator traverses */
+    protected final TRobinHoodHash _hash;
+    /**
+     * the number of elements this iterator believes are in the
+     * data structure it accesses.
+     */
+    protected int _expectedSize;
+    /** the index used for iteration. */
+    protected int _index;
+    /** the slot the iteration ends at */
+    private final int _end;
+    /** the number of slots left to visit, up to and including {@link #_end} */
+    private int _remaining;
+
+
+    /**
+     * Creates a <tt>TRobinHoodHashIterator</tt> for the specified collection.
+     *
+     * @param hash the <tt>TRobinHoodHash</tt> we want to iterate over.
+     */
+    public TRobinHoodHashIterator( TRobinHoodHash hash ) {
+        _hash = hash;
+        _expectedSize = _hash.size();
+        _end = _hash.scanEnd();
+        _remaining = _hash.capacity();
+    }
+
+
+    /**
+     * Returns the number of slots that will be left to visit after the next
+     * value in the data structure, or a negative value if the iterator is
+     * exhausted.
+     *
+     * @return an <code>int</code> value
+     * @throws java.util.ConcurrentModificationException
+     *          if the underlying collection's
+     *          size has been modified since the iterator was created.
+     */
+    protected final int nextIndex() {
+        if ( _expectedSize != _hash.size() ) {
+            throw new ConcurrentModificationException();
+        }
+
+        TRobinHoodHash hash = _hash;
+        int mask = hash._mask;
+        int n = _remaining;
+        while ( n-- > 0 && ! hash.isFull( ( _end + n ) & mask ) ) {
+            ;
+        }
+        return n;
+    }
+
+
+    /**
+     * Returns true if the iterator can be advanced past its current
+     * location.
+     *
+     * @return a <code>boolean</code> value
+     */
+    @Override
+    public boolean hasNext() {
+        return nextIndex() >= 0;
+    }
+
+
+    /**
+     * Removes the last entry returned by the iterator.
+     */
+    @Override
+    public void remove() {
+        if (_expectedSize != _hash.size()) {
+            throw new ConcurrentModificationException();
+        }
+
+        // Disable auto compaction during the remove. This is a workaround for bug 1642768.
+        try {
+            _hash.tempDisableAutoCompaction();
+            _hash.removeAt(_index);
+        }
+        finally {
+            _hash.reenableAutoCompaction( false );
+        }
+
+        _expectedSize--;
+    }
+
+
+    /**
+     * Sets the internal <tt>index</tt> so that the `next' object
+     * can be returned.
+     */
+    protected final void moveToNextIndex() {
+        if ( ( _remaining = nextIndex() ) < 0 ) {
+            throw new NoSuchElementException();
+        }
+        _index = ( _end + _remaining ) & _hash._mask;
+    }
+} // TRobinHoodHashIterator
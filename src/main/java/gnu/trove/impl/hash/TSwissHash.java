@@ -0,0 +1,237 @@
+package gnu.trove.impl.hash;
+
+import java.util.Arrays;
+
+
+/**
+ * Base class for hashtables of primitives that find their slots with control
+ * bytes scanned eight at a time, as in Abseil's SwissTable.
+ * <p>
+ * Each slot has a control byte, which is {@link #EMPTY}, {@link #DELETED}
+ * or, for a full slot, the low 7 bits of the hash of its key. The control
+ * bytes of a group of eight slots are packed into one <tt>long</tt> of
+ * {@link #_ctrl}, so a single read compares all eight against the hash of the
+ * key being looked up (SWAR, SIMD within a register). Only slots whose 7 bits
+ * match are compared by key, so most lookups of missing keys finish without
+ * touching the key array at all. The groups are probed quadratically, and a
+ * probe stops at the first group that has an empty slot.
+ * <p>
+ * Capacities are powers of two, at least one group, and the default load
+ * factor is {@link #DEFAULT_SWISS_LOAD_FACTOR}. Removed slots become
+ * {@link #DELETED} unless their group has an empty slot, and are reclaimed
+ * by auto-compaction as for the other tables.
+ */
+abstract public class TSwissHash extends THash {
+	static final long serialVersionUID = 1L;
+
+    /** the default load factor of swiss tables, which stay fast when fuller. */
+    public static final float DEFAULT_SWISS_LOAD_FACTOR = 0.875f;
+
+    /** control byte of a slot that has never been used since the last rehash */
+    public static final byte EMPTY = ( byte ) 0x80;
+
+    /** control byte of a slot whose entry was removed */
+    public static final byte DELETED = ( byte ) 0xFE;
+
+    /** the number of slots in a group */
+    protected static final int GROUP_SIZE = 8;
+
+    /** the lowest bit of each control byte of a group */
+    protected static final long LSB = 0x0101010101010101L;
+
+    /** the highest bit of each control byte of a group */
+    protected static final long MSB = 0x8080808080808080L;
+
+    /** a group of empty slots */
+    protected static final long EMPTY_GROUP = MSB;
+
+    /** the control bytes of the table, eight per group */
+    public transient long[] _ctrl;
+
+    /** the number of groups minus one, to map hashes to groups */
+    protected transient int _groupMask;
+
+
+    /**
+     * Creates a new <code>TSwissHash</code> instance with the default
+     * capacity and load factor.
+     */
+    public TSwissHash() {
+        this( DEFAULT_CAPACITY, DEFAULT_SWISS_LOAD_FACTOR );
+    }
+
+
+    /**
+     * Creates a new <code>TSwissHash</code> instance that holds
+     * <tt>initialCapacity</tt> elements with load factor
+     * <tt>loadFactor</tt> without triggering a rehash.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     */
+    public TSwissHash( int initialCapacity, float loadFactor ) {
+        super( initialCapacity, loadFactor );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public int capacity() {
+        return _ctrl.length * GROUP_SIZE;
+    }
+
+
+    /**
+     * Returns the smallest power of two, and at least one group, that is not
+     * less than <tt>minCapacity</tt>.
+     */
+    @Override
+    protected int computeCapacity( int minCapacity ) {
+        if ( minCapacity <= GROUP_SIZE ) {
+            return GROUP_SIZE;
+        }
+        if ( minCapacity > ( 1 << 30 ) ) {
+            throw new IllegalStateException( "Cannot allocate a table with " + minCapacity + " slots" );
+        }
+        return Integer.highestOneBit( minCapacity - 1 ) << 1;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected int setUp( int initialCapacity ) {
+        int capacity = super.setUp( initialCapacity );
+        allocateControl( capacity );
+        return capacity;
+    }
+
+
+    /**
+     * Allocates empty control bytes for <tt>capacity</tt> slots.
+     *
+     * @param capacity a power of two, at least {@link #GROUP_SIZE}
+     */
+    protected void allocateControl( int capacity ) {
+        _ctrl = new long[capacity / GROUP_SIZE];
+        _groupMask = _ctrl.length - 1;
+        Arrays.fill( _ctrl, EMPTY_GROUP );
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill( _ctrl, EMPTY_GROUP );
+    }
+
+
+    /**
+     * Marks the slot at <tt>index</tt> as removed.
+     *
+     * @param index an <code>int</code> value
+     */
+    @Override
+    protected void removeAt( int index ) {
+        // a probe only continues past a group without empty slots, so if this
+        // group has one, no other key depends on the slot and it can be empty
+        if ( matchEmpty( _ctrl[index >>> 3] ) != 0 ) {
+            setControl( index, EMPTY );
+            _free++;
+        } else {
+            setControl( index, DELETED );
+        }
+        super.removeAt( index );
+    }
+
+
+    /**
+     * @return whether the slot at <tt>index</tt> holds an entry
+     */
+    protected final boolean isFull( int index ) {
+        return isFull( _ctrl, index );
+    }
+
+
+    /**
+     * @return whether the slot at <tt>index</tt> holds an entry, according
+     * to the control bytes <tt>ctrl</tt>, e.g. those from before a rehash
+     */
+    protected static boolean isFull( long[] ctrl, int index ) {
+        // full slots have the high bit of their control byte clear
+        return ( ctrl[index >>> 3] & ( 0x80L << ( ( index & 7 ) << 3 ) ) ) == 0;
+    }
+
+
+    /**
+     * @return the control byte of the slot at <tt>index</tt>
+     */
+    protected final byte control( int index ) {
+        return ( byte ) ( _ctrl[index >>> 3] >>> ( ( index & 7 ) << 3 ) );
+    }
+
+
+    /**
+     * Sets the control byte of the slot at <tt>index</tt>.
+     */
+    protected final void setControl( int index, byte control ) {
+        int shift = ( index & 7 ) << 3;
+        long[] ctrl = _ctrl;
+        ctrl[index >>> 3] = ( ctrl[index >>> 3] & ~( 0xFFL << shift ) ) | ( ( control & 0xFFL ) << shift );
+    }
+
+
+    /**
+     * @return the 7 bits of <tt>hash</tt> that are stored in the control byte
+     */
+    protected static int h2( long hash ) {
+        return ( int ) hash & 0x7F;
+    }
+
+
+    /**
+     * @return the bits of <tt>hash</tt> that select the first group to probe
+     */
+    protected static int h1( long hash ) {
+        return ( int ) ( hash >>> 7 );
+    }
+
+
+    /**
+     * @return a mask with the high bit set in each byte of <tt>group</tt>
+     * that may equal the byte of which <tt>pattern</tt> has eight copies. A
+     * byte right above a match may show up as a false positive, which the
+     * key comparison rules out.
+     */
+    protected static long matchByte( long group, long pattern ) {
+        long x = group ^ pattern;
+        return ( x - LSB ) & ~x & MSB;
+    }
+
+
+    /**
+     * @return a mask with the high bit set in each {@link #EMPTY} byte of <tt>group</tt>
+     */
+    protected static long matchEmpty( long group ) {
+        // only EMPTY has the high bit set and bit 1 clear
+        return group & ( ~group << 6 ) & MSB;
+    }
+
+
+    /**
+     * @return a mask with the high bit set in each {@link #EMPTY} or
+     * {@link #DELETED} byte of <tt>group</tt>
+     */
+    protected static long matchEmptyOrDeleted( long group ) {
+        // only EMPTY and DELETED have the high bit set and bit 0 clear
+        return group & ( ~group << 7 ) & MSB;
+    }
+
+
+    /**
+     * @return the slot within its group of the lowest byte set in <tt>mask</tt>
+     */
+    protected static int lowestSlot( long mask ) {
+        return Long.numberOfTrailingZeros( mask ) >>> 3;
+    }
+} // TSwissHash
@@ -0,0 +1,104 @@
+package gnu.trove.impl.hash;
+
+import gnu.trove.iterator.TPrimitiveIterator;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Implements all iterator functions for the swiss tables, like
+ * {@link THashPrimitiveIterator} does for the other primitive tables.
+ */
+public abstract class TSwissHashIterator implements TPrimitiveIterator {
+
+    /** the data structure this iterator traverses */
+    protected final TSwissHash _hash;
+    /**
+     * the number of elements this iterator believes are in the
+     * data structure it accesses.
+     */
+    protected int _expectedSize;
+    /** the index used for iteration. */
+    protected int _index;
+
+
+    /**
+     * Creates a <tt>TSwissHashIterator</tt> for the specified collection.
+     *
+     * @param hash the <tt>TSwissHash</tt> we want to iterate over.
+     */
+    public TSwissHashIterator( TSwissHash hash ) {
+        _hash = hash;
+        _expectedSize = _hash.size();
+        _index = _hash.capacity();
+    }
+
+
+    /**
+     * Returns the index of the next value in the data structure
+     * or a negative value if the iterator is exhausted.
+     *
+     * @return an <code>int</code> value
+     * @throws java.util.ConcurrentModificationException
+     *          if the underlying collection's
+     *          size has been modified since the iterator was created.
+     */
+    protected final int nextIndex() {
+        if ( _expectedSize != _hash.size() ) {
+            throw new ConcurrentModificationException();
+        }
+
+        TSwissHash hash = _hash;
+        int i = _index;
+        while ( i-- > 0 && ! hash.isFull( i ) ) {
+            ;
+        }
+        return i;
+    }
+
+
+    /**
+     * Returns true if the iterator can be advanced past its current
+     * location.
+     *
+     * @return a <code>boolean</code> value
+     */
+    @Override
+    public boolean hasNext() {
+        return nextIndex() >= 0;
+    }
+
+
+    /**
+     * Removes the last entry returned by the iterator.
+     */
+    @Override
+    public void remove() {
+        if (_expectedSize != _hash.size()) {
+            throw new ConcurrentModificationException();
+        }
+
+        // Disable auto compaction during the remove. This is a workaround for bug 1642768.
+        try {
+            _hash.tempDisableAutoCompaction();
+            _hash.removeAt(_index);
+        }
+        finally {
+            _hash.reenableAutoCompaction( false );
+        }
+
+        _expectedSize--;
+    }
+
+
+    /**
+     * Sets the internal <tt>index</tt> so that the `next' object
+     * can be returned.
+     */
+    protected final void moveToNextIndex() {
+        if ( ( _index = nextIndex() ) < 0 ) {
+            throw new NoSuchElementException();
+        }
+    }
+} // TSwissHashIterator
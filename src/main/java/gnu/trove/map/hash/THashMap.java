@@ -931,6 +931,10 @@ public class THashMap<K, V> extends TObjectHash<K> implements TMap<K, V>, Extern
         out.writeInt(_size);
 
         // ENTRIES
+        writeEntries(out);
+    }
+
+    protected void writeEntries(ObjectOutput out) throws IOException {
         for (int i = _set.length; i-- > 0;) {
             if (_set[i] != REMOVED && _set[i] != FREE) {
                 out.writeObject(_set[i]);
@@ -0,0 +1,588 @@
+package gnu.trove.map.hash;
+
+import gnu.trove.impl.hash.TObjectHash;
+import gnu.trove.iterator.hash.TObjectHashIterator;
+import gnu.trove.procedure.TObjectObjectProcedure;
+import gnu.trove.procedure.TObjectProcedure;
+
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map that iterates over its entries in the order their keys were
+ * inserted, or, in access order, in the order they were last put or looked
+ * up, from least to most recent.
+ * <p>
+ * The order is a doubly linked list threaded through two int arrays
+ * parallel to the table, holding the slots of the previous and next
+ * entry, as in {@link gnu.trove.set.hash.TLinkedHashSet}, so the map does
+ * not allocate a node per entry.
+ * <p>
+ * In access order {@link #get}, {@link #put} and {@link #putIfAbsent} move
+ * the entry of their key to the end, so an iteration must not look up
+ * entries. Together with {@link #removeEldestEntry} this makes the map a
+ * LRU cache. Access order is not serialized; a copy read back is in
+ * insertion order, with the entries in the order of the original.
+ */
+public class TLinkedHashMap<K, V> extends THashMap<K, V> {
+
+    static final long serialVersionUID = 1L;
+
+    /** the slot of the previous entry in the order, or -1 for the first. */
+    transient int[] _prev;
+
+    /** the slot of the next entry in the order, or -1 for the last. */
+    transient int[] _next;
+
+    /** the slot of the first entry, or -1 if empty. */
+    transient int _head;
+
+    /** the slot of the last entry, or -1 if empty. */
+    transient int _tail;
+
+    /** whether lookups move entries to the end of the order. */
+    protected boolean _accessOrder;
+
+
+    /**
+     * Creates a new <code>TLinkedHashMap</code> instance with the default
+     * capacity and load factor.
+     */
+    public TLinkedHashMap() {
+    }
+
+
+    /**
+     * Creates a new <code>TLinkedHashMap</code> instance with a prime
+     * capacity equal to or greater than <tt>initialCapacity</tt> and
+     * with the default load factor.
+     *
+     * @param initialCapacity an <code>int</code> value
+     */
+    public TLinkedHashMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+
+    /**
+     * Creates a new <code>TLinkedHashMap</code> instance with a prime
+     * capacity equal to or greater than <tt>initialCapacity</tt> and
+     * with the specified load factor.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     */
+    public TLinkedHashMap(int initialCapacity, float loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+
+    /**
+     * Creates a new <code>TLinkedHashMap</code> instance with a prime
+     * capacity equal to or greater than <tt>initialCapacity</tt>, with
+     * the specified load factor and ordering mode.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     * @param accessOrder     <tt>true</tt> to order the entries by their
+     *                        last access, <tt>false</tt> by their insertion
+     */
+    public TLinkedHashMap(int initialCapacity, float loadFactor, boolean accessOrder) {
+        super(initialCapacity, loadFactor);
+        _accessOrder = accessOrder;
+    }
+
+
+    /**
+     * Creates a new <code>TLinkedHashMap</code> instance which contains the
+     * key/value pairs in <tt>map</tt>, in the iteration order of
+     * <tt>map</tt>.
+     *
+     * @param map a <code>Map</code> value
+     */
+    public TLinkedHashMap(Map<? extends K, ? extends V> map) {
+        super(map);
+    }
+
+
+    /**
+     * initialize the value and order arrays of the map.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @return an <code>int</code> value
+     */
+    @Override
+    public int setUp(int initialCapacity) {
+        int capacity = super.setUp(initialCapacity);
+        _prev = new int[capacity];
+        _next = new int[capacity];
+        _head = _tail = -1;
+        return capacity;
+    }
+
+
+    /**
+     * @return whether lookups move entries to the end of the order
+     */
+    public boolean isAccessOrder() {
+        return _accessOrder;
+    }
+
+
+    /**
+     * Returns whether to remove the eldest entry after an entry was added,
+     * which is the first entry of the order, e.g. the least recently used
+     * one in access order. This implementation always returns
+     * <tt>false</tt>; override it to bound the size of the map, e.g. with
+     * <tt>return size() &gt; MAX_SIZE;</tt>.
+     *
+     * @param key   the key of the first entry of the order
+     * @param value the value of the first entry of the order
+     * @return <tt>true</tt> to remove the eldest entry
+     */
+    protected boolean removeEldestEntry(K key, V value) {
+        return false;
+    }
+
+
+    /**
+     * Inserts a key/value pair into the map. In access order a key that is
+     * already present moves to the end.
+     *
+     * @param key   an <code>Object</code> value
+     * @param value an <code>Object</code> value
+     * @return the previous value associated with <tt>key</tt>,
+     *         or {@code null} if none was found.
+     */
+    @Override
+    public V put(K key, V value) {
+        int index = insertKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            V previous = _values[index];
+            _values[index] = value;
+            if (_accessOrder) {
+                moveToTail(index);
+            }
+            return previous;
+        }
+        _values[index] = value;
+        addLast(index);
+        return null;
+    }
+
+
+    /**
+     * Inserts a key/value pair into the map if the specified key is not
+     * already associated with a value. In access order a key that is
+     * already present moves to the end.
+     *
+     * @param key   an <code>Object</code> value
+     * @param value an <code>Object</code> value
+     * @return the previous value associated with <tt>key</tt>,
+     *         or {@code null} if none was found.
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int index = insertKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            if (_accessOrder) {
+                moveToTail(index);
+            }
+            return _values[index];
+        }
+        _values[index] = value;
+        addLast(index);
+        return null;
+    }
+
+
+    /**
+     * retrieves the value for <tt>key</tt>. In access order the entry of
+     * <tt>key</tt> moves to the end.
+     *
+     * @param key an <code>Object</code> value
+     * @return the value of <tt>key</tt> or null if no such mapping exists.
+     */
+    @Override
+    public V get(Object key) {
+        int index = index(key);
+        if (index < 0) {
+            return null;
+        }
+        if (_accessOrder) {
+            moveToTail(index);
+        }
+        return _values[index];
+    }
+
+
+    /**
+     * Empties the map.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        _head = _tail = -1;
+    }
+
+
+    @Override
+    public void removeAt(int index) {
+        // Unlink first since super.removeAt can trigger compaction
+        // making the index invalid afterwards
+        unlink(index);
+        super.removeAt(index);
+    }
+
+
+    /**
+     * Links the entry just inserted at <tt>index</tt> last, and removes the
+     * eldest entry if {@link #removeEldestEntry} asks for it.
+     */
+    @SuppressWarnings("unchecked")
+    private void addLast(int index) {
+        linkLast(index);
+        postInsertHook(consumeFreeSlot);
+
+        if (removeEldestEntry((K) _set[_head], _values[_head])) {
+            removeAt(_head);
+        }
+    }
+
+
+    private void linkLast(int index) {
+        _prev[index] = _tail;
+        _next[index] = -1;
+        if (_tail < 0) {
+            _head = index;
+        } else {
+            _next[_tail] = index;
+        }
+        _tail = index;
+    }
+
+
+    private void unlink(int index) {
+        int prev = _prev[index];
+        int next = _next[index];
+        if (prev < 0) {
+            _head = next;
+        } else {
+            _next[prev] = next;
+        }
+        if (next < 0) {
+            _tail = prev;
+        } else {
+            _prev[next] = prev;
+        }
+    }
+
+
+    private void moveToTail(int index) {
+        if (index != _tail) {
+            unlink(index);
+            linkLast(index);
+        }
+    }
+
+
+    /**
+     * rehashes the map to the new capacity, reinserting the entries in
+     * their order.
+     *
+     * @param newCapacity an <code>int</code> value
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    protected void rehash(int newCapacity) {
+        int oldSize = size();
+        Object oldKeys[] = _set;
+        V oldVals[] = _values;
+        int[] oldNext = _next;
+        int oldHead = _head;
+
+        _set = new Object[newCapacity];
+        Arrays.fill(_set, FREE);
+        _values = (V[]) new Object[newCapacity];
+        _prev = new int[newCapacity];
+        _next = new int[newCapacity];
+        _head = _tail = -1;
+
+        for (int i = oldHead; i >= 0; i = oldNext[i]) {
+            Object o = oldKeys[i];
+            if (o == FREE || o == REMOVED) {
+                throw new IllegalStateException("Iterating over empty location while rehashing");
+            }
+
+            int index = insertKey((K) o);
+            if (index < 0) {
+                throwObjectContractViolation(_set[(-index - 1)], o, size(), oldSize, oldKeys);
+            }
+            _values[index] = oldVals[i];
+            linkLast(index);
+        }
+
+        // Last check: size before and after should be the same
+        reportPotentialConcurrentMod(size(), oldSize);
+    }
+
+
+    /**
+     * Executes <tt>procedure</tt> for each key in the map, in order.
+     *
+     * @param procedure a <code>TObjectProcedure</code> value
+     * @return false if the loop over the keys terminated because
+     *         the procedure returned false for some key.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public boolean forEach(TObjectProcedure<? super K> procedure) {
+        Object[] set = _set;
+        int[] next = _next;
+        for (int i = _head; i >= 0; i = next[i]) {
+            if (!procedure.execute((K) set[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Executes <tt>procedure</tt> for each value in the map, in order.
+     *
+     * @param procedure a <code>TObjectProcedure</code> value
+     * @return false if the loop over the values terminated because
+     *         the procedure returned false for some value.
+     */
+    @Override
+    public boolean forEachValue(TObjectProcedure<? super V> procedure) {
+        V[] values = _values;
+        int[] next = _next;
+        for (int i = _head; i >= 0; i = next[i]) {
+            if (!procedure.execute(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Executes <tt>procedure</tt> for each key/value entry in the map, in
+     * order.
+     *
+     * @param procedure a <code>TObjectObjectProcedure</code> value
+     * @return false if the loop over the entries terminated because
+     *         the procedure returned false for some entry.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public boolean forEachEntry(TObjectObjectProcedure<? super K, ? super V> procedure) {
+        Object[] keys = _set;
+        V[] values = _values;
+        int[] next = _next;
+        for (int i = _head; i >= 0; i = next[i]) {
+            if (!procedure.execute((K) keys[i], values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Retains only those entries in the map for which the procedure
+     * returns a true value, passing the entries to it in order.
+     *
+     * @param procedure determines which entries to keep
+     * @return true if the map was modified.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public boolean retainEntries(TObjectObjectProcedure<? super K, ? super V> procedure) {
+        boolean modified = false;
+        Object[] keys = _set;
+        V[] values = _values;
+        int[] next = _next;
+
+        // Temporarily disable compaction. This is a fix for bug #1738760
+        tempDisableAutoCompaction();
+        try {
+            for (int i = _head; i >= 0;) {
+                int following = next[i];
+                if (!procedure.execute((K) keys[i], values[i])) {
+                    removeAt(i);
+                    modified = true;
+                }
+                i = following;
+            }
+        } finally {
+            reenableAutoCompaction(true);
+        }
+
+        return modified;
+    }
+
+
+    /**
+     * Returns a view on the values of the map, in order.
+     *
+     * @return a <code>Collection</code> value
+     */
+    @Override
+    public Collection<V> values() {
+        return new ValueView() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OrderIterator<V>() {
+                    @Override
+                    protected V objectAtIndex(int index) {
+                        return _values[index];
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * returns a Set view on the keys of the map, in order.
+     *
+     * @return a <code>Set</code> value
+     */
+    @Override
+    public Set<K> keySet() {
+        return new KeyView() {
+            @Override
+            public Iterator<K> iterator() {
+                return new OrderIterator<K>() {
+                    @Override
+                    @SuppressWarnings({"unchecked"})
+                    protected K objectAtIndex(int index) {
+                        return (K) _set[index];
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Returns a Set view on the entries of the map, in order.
+     *
+     * @return a <code>Set</code> value
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntryView() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new OrderIterator<Map.Entry<K, V>>() {
+                    @Override
+                    @SuppressWarnings({"unchecked"})
+                    protected Map.Entry<K, V> objectAtIndex(int index) {
+                        return new Entry((K) _set[index], _values[index], index);
+                    }
+                };
+            }
+        };
+    }
+
+
+    @Override
+    protected void writeEntries(ObjectOutput out) throws IOException {
+        for (int i = _head; i >= 0; i = _next[i]) {
+            out.writeObject(_set[i]);
+            out.writeObject(_values[i]);
+        }
+    }
+
+
+    /**
+     * Iterates over the slots of the map in order. The iterator supports
+     * element deletion.
+     */
+    private abstract class OrderIterator<E> extends TObjectHashIterator<E> {
+        int nextIndex = _head;
+        int lastIndex = -1;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        OrderIterator() {
+            super((TObjectHash) TLinkedHashMap.this);
+        }
+
+        /**
+         * Moves the iterator to the next entry and returns it.
+         *
+         * @return an <code>Object</code> value
+         * @throws java.util.ConcurrentModificationException
+         *          if the structure
+         *          was changed using a method that isn't on this iterator.
+         * @throws java.util.NoSuchElementException
+         *          if this is called on an
+         *          exhausted iterator.
+         */
+        @Override
+        public E next() {
+            if (_expectedSize != _hash.size()) {
+                throw new ConcurrentModificationException();
+            }
+            if (nextIndex < 0) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = _next[nextIndex];
+            return objectAtIndex(lastIndex);
+        }
+
+        /**
+         * Returns true if the iterator can be advanced past its current
+         * location.
+         *
+         * @return a <code>boolean</code> value
+         */
+        @Override
+        public boolean hasNext() {
+            return nextIndex >= 0;
+        }
+
+        /**
+         * Removes the last entry returned by the iterator.
+         *
+         * @throws IllegalStateException if no entry was returned
+         *          since the last call
+         */
+        @Override
+        public void remove() {
+            if (_expectedSize != _hash.size()) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            // the removal within removeAt() will not change the collection
+            // so the next slot of the iterator stays valid
+            try {
+                _hash.tempDisableAutoCompaction();
+                TLinkedHashMap.this.removeAt(lastIndex);
+            } finally {
+                _hash.reenableAutoCompaction(false);
+            }
+            lastIndex = -1;
+            _expectedSize--;
+        }
+
+        @Override
+        protected abstract E objectAtIndex(int index);
+    }
+} // TLinkedHashMap
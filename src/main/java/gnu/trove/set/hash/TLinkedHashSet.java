@@ -1,28 +1,49 @@
 package gnu.trove.set.hash;
 
-import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.hash.TObjectHashIterator;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TIntArrayList;
-import gnu.trove.list.linked.TIntLinkedList;
-import gnu.trove.procedure.TIntProcedure;
 import gnu.trove.procedure.TObjectProcedure;
 
 import java.io.IOException;
 import java.io.ObjectOutput;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * Created by IntelliJ IDEA.
- * User: Johan
- * Date: 15/03/11
- * Time: 18:15
- * To change this template use File | Settings | File Templates.
+ * A hash set that iterates over its elements in the order they were
+ * inserted, or, in access order, in the order they were last inserted or
+ * looked up, from least to most recent.
+ * <p>
+ * The order is a doubly linked list threaded through two int arrays
+ * parallel to the table, holding the slots of the previous and next
+ * element, so that removing an element unlinks it in constant time and a
+ * rehash reinserts the elements by walking the list, without allocating a
+ * node per element.
+ * <p>
+ * In access order {@link #contains} and adding an element that is already
+ * present move it to the end, so an iteration must not look up elements.
+ * Together with {@link #removeEldestEntry} this makes the set a LRU cache.
+ * Access order is not serialized; a copy read back is in insertion order,
+ * with the elements in the order of the original.
  */
 public class TLinkedHashSet<E> extends THashSet<E> {
-    TIntList order;
+
+    /** the slot of the previous element in the order, or -1 for the first. */
+    transient int[] _prev;
+
+    /** the slot of the next element in the order, or -1 for the last. */
+    transient int[] _next;
+
+    /** the slot of the first element, or -1 if empty. */
+    transient int _head;
+
+    /** the slot of the last element, or -1 if empty. */
+    transient int _tail;
+
+    /** whether lookups move elements to the end of the order. */
+    protected boolean _accessOrder;
 
     /**
      * Creates a new <code>THashSet</code> instance with the default
@@ -54,6 +75,21 @@ public class TLinkedHashSet<E> extends THashSet<E> {
         super(initialCapacity, loadFactor);
     }
 
+    /**
+     * Creates a new <code>TLinkedHashSet</code> instance with a prime
+     * capacity equal to or greater than <tt>initialCapacity</tt>, with
+     * the specified load factor and ordering mode.
+     *
+     * @param initialCapacity an <code>int</code> value
+     * @param loadFactor      a <code>float</code> value
+     * @param accessOrder     <tt>true</tt> to order the elements by their
+     *                        last access, <tt>false</tt> by their insertion
+     */
+    public TLinkedHashSet(int initialCapacity, float loadFactor, boolean accessOrder) {
+        super(initialCapacity, loadFactor);
+        _accessOrder = accessOrder;
+    }
+
     /**
      * Creates a new <code>THashSet</code> instance containing the
      * elements of <tt>collection</tt>.
@@ -72,25 +108,33 @@ public class TLinkedHashSet<E> extends THashSet<E> {
      */
     @Override
     public int setUp(int initialCapacity) {
-        order = new TIntArrayList(initialCapacity) {
-            /**
-             * Grow the internal array as needed to accommodate the specified number of elements.
-             * The size of the array bytes on each resize unless capacity requires more than twice
-             * the current capacity.
-             */
-            @Override
-            public void ensureCapacity(int capacity) {
-                if (capacity > _data.length) {
-                    int newCap = Math.max(_set.length, capacity);
-                    int[] tmp = new int[newCap];
-                    System.arraycopy(_data, 0, tmp, 0, _data.length);
-                    _data = tmp;
-                }
-            }
-        };
-        return super.setUp(initialCapacity);    //To change body of overridden methods use File | Settings | File Templates.
+        int capacity = super.setUp(initialCapacity);
+        _prev = new int[capacity];
+        _next = new int[capacity];
+        _head = _tail = -1;
+        return capacity;
+    }
+
+    /**
+     * @return whether lookups move elements to the end of the order
+     */
+    public boolean isAccessOrder() {
+        return _accessOrder;
     }
 
+    /**
+     * Returns whether to remove the eldest element after an element was
+     * added, which is the first element of the order, e.g. the least
+     * recently used one in access order. This implementation always
+     * returns <tt>false</tt>; override it to bound the size of the set,
+     * e.g. with <tt>return size() &gt; MAX_SIZE;</tt>.
+     *
+     * @param eldest the first element of the order
+     * @return <tt>true</tt> to remove the eldest element
+     */
+    protected boolean removeEldestEntry(E eldest) {
+        return false;
+    }
 
     /**
      * Empties the set.
@@ -98,7 +142,7 @@ public class TLinkedHashSet<E> extends THashSet<E> {
     @Override
     public void clear() {
         super.clear();
-        order.clear();
+        _head = _tail = -1;
     }
 
     @Override
@@ -121,116 +165,147 @@ public class TLinkedHashSet<E> extends THashSet<E> {
     }
 
     /**
-     * Inserts a value into the set.
+     * Inserts a value into the set. In access order a value that is
+     * already present moves to the end.
      *
      * @param obj an <code>Object</code> value
      * @return true if the set was modified by the add operation
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean add(E obj) {
         int index = insertKey(obj);
 
         if (index < 0) {
+            if (_accessOrder) {
+                moveToTail(-index - 1);
+            }
             return false;       // already present in set, nothing to add
         }
 
-        if (!order.add(index))
-            throw new IllegalStateException("Order not changed after insert");
-
+        linkLast(index);
         postInsertHook(consumeFreeSlot);
+
+        if (removeEldestEntry((E) _set[_head])) {
+            removeAt(_head);
+        }
         return true;            // yes, we added something
     }
 
+    /**
+     * Returns whether the set contains the value. In access order the
+     * value moves to the end.
+     *
+     * @param obj an <code>Object</code> value
+     * @return true if the set contains the value
+     */
+    @Override
+    public boolean contains(Object obj) {
+        int index = index(obj);
+        if (index < 0) {
+            return false;
+        }
+        if (_accessOrder) {
+            moveToTail(index);
+        }
+        return true;
+    }
+
     @Override
     protected void removeAt(int index) {
-        // Remove from order first since super.removeAt can trigger compaction
+        // Unlink first since super.removeAt can trigger compaction
         // making the index invalid afterwards
-        order.remove(index);
+        unlink(index);
         super.removeAt(index);
     }
 
+    private void linkLast(int index) {
+        _prev[index] = _tail;
+        _next[index] = -1;
+        if (_tail < 0) {
+            _head = index;
+        } else {
+            _next[_tail] = index;
+        }
+        _tail = index;
+    }
+
+    private void unlink(int index) {
+        int prev = _prev[index];
+        int next = _next[index];
+        if (prev < 0) {
+            _head = next;
+        } else {
+            _next[prev] = next;
+        }
+        if (next < 0) {
+            _tail = prev;
+        } else {
+            _prev[next] = prev;
+        }
+    }
+
+    private void moveToTail(int index) {
+        if (index != _tail) {
+            unlink(index);
+            linkLast(index);
+        }
+    }
+
 
     /**
-     * Expands the set to accommodate new values.
+     * Expands the set to accommodate new values, reinserting the elements
+     * in their order.
      *
      * @param newCapacity an <code>int</code> value
      */
     @Override
     @SuppressWarnings("unchecked")
     protected void rehash(int newCapacity) {
-        TIntLinkedList oldOrder = new TIntLinkedList(order);
         int oldSize = size();
-
         Object oldSet[] = _set;
+        int[] oldNext = _next;
+        int oldHead = _head;
 
-        order.clear();
         _set = new Object[newCapacity];
         Arrays.fill(_set, FREE);
+        _prev = new int[newCapacity];
+        _next = new int[newCapacity];
+        _head = _tail = -1;
 
-        for (TIntIterator iterator = oldOrder.iterator(); iterator.hasNext();) {
-            int i = iterator.next();
+        for (int i = oldHead; i >= 0; i = oldNext[i]) {
             E o = (E) oldSet[i];
             if (o == FREE || o == REMOVED) {
                 throw new IllegalStateException("Iterating over empty location while rehashing");
             }
 
-            if (o != FREE && o != REMOVED) {
-                int index = insertKey(o);
-                if (index < 0) { // everyone pays for this because some people can't RTFM
-                    throwObjectContractViolation(_set[(-index - 1)], o, size(), oldSize, oldSet);
-                }
-
-                if (!order.add(index))
-                    throw new IllegalStateException("Order not changed after insert");
-            }
-        }
-
-    }
-
-    class WriteProcedure implements TIntProcedure {
-        final ObjectOutput output;
-        IOException ioException;
-
-        WriteProcedure(ObjectOutput output) {
-            this.output = output;
-        }
-
-        public IOException getIoException() {
-            return ioException;
-        }
-
-        @Override
-        public boolean execute(int value) {
-            try {
-                output.writeObject(_set[value]);
-            } catch (IOException e) {
-                ioException = e;
-                return false;
+            int index = insertKey(o);
+            if (index < 0) { // everyone pays for this because some people can't RTFM
+                throwObjectContractViolation(_set[(-index - 1)], o, size(), oldSize, oldSet);
             }
-            return true;
+            linkLast(index);
         }
-
     }
 
     @Override
     protected void writeEntries(ObjectOutput out) throws IOException {
         // ENTRIES
-        WriteProcedure writeProcedure = new WriteProcedure(out);
-        if (!order.forEach(writeProcedure))
-            throw writeProcedure.getIoException();
+        for (int i = _head; i >= 0; i = _next[i]) {
+            out.writeObject(_set[i]);
+        }
     }
 
     /**
-     * Creates an iterator over the values of the set.  The iterator
-     * supports element deletion.
+     * Creates an iterator over the values of the set, in order.  The
+     * iterator supports element deletion.
      *
      * @return an <code>Iterator</code> value
      */
     @Override
     public TObjectHashIterator<E> iterator() {
         return new TObjectHashIterator<E>(this) {
-            TIntIterator localIterator = order.iterator();
-            int lastIndex;
+            int nextIndex = _head;
+            int lastIndex = -1;
 
             /**
              * Moves the iterator to the next Object and returns it.
@@ -245,7 +320,14 @@ public class TLinkedHashSet<E> extends THashSet<E> {
              */
             @Override
             public E next() {
-                lastIndex = localIterator.next();
+                if (_expectedSize != _hash.size()) {
+                    throw new ConcurrentModificationException();
+                }
+                if (nextIndex < 0) {
+                    throw new NoSuchElementException();
+                }
+                lastIndex = nextIndex;
+                nextIndex = _next[nextIndex];
                 return objectAtIndex(lastIndex);
             }
 
@@ -257,67 +339,54 @@ public class TLinkedHashSet<E> extends THashSet<E> {
              */
             @Override
             public boolean hasNext() {
-                return localIterator.hasNext();    //To change body of overridden methods use File | Settings | File Templates.
+                return nextIndex >= 0;
             }
 
             /**
              * Removes the last entry returned by the iterator.
-             * Invoking this method more than once for a single entry
-             * will leave the underlying data structure in a confused
-             * state.
+             *
+             * @throws IllegalStateException if no entry was returned
+             *          since the last call
              */
             @Override
             public void remove() {
-                // Remove for iterator first
-                localIterator.remove();
+                if (_expectedSize != _hash.size()) {
+                    throw new ConcurrentModificationException();
+                }
+                if (lastIndex < 0) {
+                    throw new IllegalStateException();
+                }
                 // the removal within removeAt() will not change the collection
-                // but the localIterator will remain valid
+                // so the next slot of the iterator stays valid
                 try {
                     _hash.tempDisableAutoCompaction();
                     TLinkedHashSet.this.removeAt(lastIndex);
                 } finally {
                     _hash.reenableAutoCompaction(false);
                 }
+                lastIndex = -1;
+                _expectedSize--;
             }
-        };    //To change body of overridden methods use File | Settings | File Templates.
-    }
-
-    class ForEachProcedure implements TIntProcedure {
-        boolean changed = false;
-        final Object[] set;
-        final TObjectProcedure<? super E> procedure;
-
-        public ForEachProcedure(Object[] set, TObjectProcedure<? super E> procedure) {
-            this.set = set;
-            this.procedure = procedure;
-        }
-
-        /**
-         * Executes this procedure. A false return value indicates that
-         * the application executing this procedure should not invoke this
-         * procedure again.
-         *
-         * @param value a value of type <code>int</code>
-         * @return true if additional invocations of the procedure are
-         *         allowed.
-         */
-        @Override
-        @SuppressWarnings("unchecked")
-        public boolean execute(int value) {
-            return procedure.execute((E) set[value]);
-        }
+        };
     }
 
     /**
-     * Executes <tt>procedure</tt> for each element in the set.
+     * Executes <tt>procedure</tt> for each element in the set, in order.
      *
      * @param procedure a <code>TObjectProcedure</code> value
      * @return false if the loop over the set terminated because
      *         the procedure returned false for some value.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean forEach(TObjectProcedure<? super E> procedure) {
-        ForEachProcedure forEachProcedure = new ForEachProcedure(_set, procedure);
-        return order.forEach(forEachProcedure);
+        Object[] set = _set;
+        int[] next = _next;
+        for (int i = _head; i >= 0; i = next[i]) {
+            if (!procedure.execute((E) set[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,384 @@
+package gnu.trove.array;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Raw access to native memory, shared by all offheap arrays.
+ * <p>
+ * This implementation uses the Foreign Function and Memory API and replaces
+ * the {@link sun.misc.Unsafe} based one on Java 22 and later. Memory is still
+ * allocated with <tt>malloc</tt>, through a downcall, so that addresses can
+ * be handed around as <tt>long</tt>s exactly as with the other backend, and
+ * is accessed through a single segment spanning the whole address space.
+ * Files are mapped into segments of their own arenas, which unmap them when
+ * closed, so that no part of the library refers to {@link sun.misc.Unsafe}.
+ * <p>
+ * Creating that segment and linking <tt>malloc</tt> are restricted methods,
+ * so the JVM warns about them unless native access is enabled for this
+ * library, e.g. with <tt>--enable-native-access=ALL-UNNAMED</tt>.
+ * <p>
+ * Values are read and written in native byte order. Addresses are not
+ * checked, callers are responsible for staying within their allocations.
+ * The atomic and ordered accesses additionally require addresses aligned to
+ * the size of the value.
+ */
+final class NativeMemory {
+
+    /** The name of this backend, as reported by {@link AbstractOffheapArray#backend()}. */
+    static final String BACKEND = "ffm";
+
+    private static final MemorySegment ALL = MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED;
+    private static final ValueLayout.OfChar CHAR = ValueLayout.JAVA_CHAR_UNALIGNED;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED;
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED;
+
+    /** Aligned, since atomic access modes are not supported on unaligned layouts. */
+    private static final VarHandle ATOMIC_INT = ValueLayout.JAVA_INT.varHandle();
+    private static final VarHandle ATOMIC_LONG = ValueLayout.JAVA_LONG.varHandle();
+
+    private static final MethodHandle MALLOC = downcall("malloc",
+            FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+    private static final MethodHandle REALLOC = downcall("realloc",
+            FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+    private static final MethodHandle FREE = downcall("free",
+            FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private NativeMemory() {
+    }
+
+    static long allocate(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Cannot allocate " + bytes + " bytes");
+        }
+        if (bytes == 0) {
+            return 0;
+        }
+        MemorySegment segment;
+        try {
+            segment = (MemorySegment) MALLOC.invokeExact(bytes);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+        if (segment.address() == 0) {
+            throw new OutOfMemoryError("Unable to allocate " + bytes + " bytes");
+        }
+        return segment.address();
+    }
+
+    static long reallocate(long address, long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Cannot reallocate " + bytes + " bytes");
+        }
+        if (bytes == 0) {
+            free(address);
+            return 0;
+        }
+        if (address == 0) {
+            return allocate(bytes);
+        }
+        MemorySegment segment;
+        try {
+            segment = (MemorySegment) REALLOC.invokeExact(MemorySegment.ofAddress(address), bytes);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+        if (segment.address() == 0) {
+            throw new OutOfMemoryError("Unable to reallocate " + bytes + " bytes");
+        }
+        return segment.address();
+    }
+
+    static void free(long address) {
+        if (address == 0) {
+            return;
+        }
+        try {
+            FREE.invokeExact(MemorySegment.ofAddress(address));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setMemory(long address, long bytes, byte value) {
+        ALL.asSlice(address, bytes).fill(value);
+    }
+
+    static void copy(long srcAddress, long dstAddress, long bytes) {
+        MemorySegment.copy(ALL, srcAddress, ALL, dstAddress, bytes);
+    }
+
+    /** @return the address of the memory backing a direct <tt>buffer</tt>. */
+    static long addressOf(ByteBuffer buffer) {
+        return MemorySegment.ofBuffer(buffer).address();
+    }
+
+    /**
+     * @return a direct buffer in native byte order over the <tt>bytes</tt> bytes
+     * at <tt>address</tt>. The buffer does not own the memory, which must stay
+     * allocated for as long as the buffer is used.
+     */
+    static ByteBuffer wrap(long address, int bytes) {
+        return ALL.asSlice(address, bytes).asByteBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Maps the <tt>size</tt> bytes of <tt>channel</tt> from <tt>position</tt>
+     * on, for reading and writing.
+     */
+    static Mapping map(FileChannel channel, long position, long size) throws IOException {
+        Arena arena = Arena.ofShared();
+        try {
+            return new Mapping(arena, channel.map(FileChannel.MapMode.READ_WRITE, position, size, arena));
+        } catch (Throwable t) {
+            arena.close();
+            throw t;
+        }
+    }
+
+    /**
+     * A region of a file mapped into memory by {@link #map}, which stays
+     * mapped until {@link #unmap} or until the mapping is garbage collected.
+     */
+    static final class Mapping {
+        /** The address of the first byte of the region. */
+        final long address;
+        /** The number of bytes of the region. */
+        final long size;
+        private final MemorySegment segment;
+        /** Closes the arena of the segment, which unmaps it. */
+        private final Cleaner.Cleanable cleanable;
+
+        private Mapping(Arena arena, MemorySegment segment) {
+            this.address = segment.address();
+            this.size = segment.byteSize();
+            this.segment = segment;
+            this.cleanable = CLEANER.register(this, arena::close);
+        }
+
+        /** Forces any changes to the region to be written to the file. */
+        void force() {
+            segment.force();
+        }
+
+        /**
+         * Releases the mapping right away, rather than when it is garbage
+         * collected. The region must not be accessed afterwards.
+         */
+        void unmap() {
+            cleanable.clean();
+        }
+    }
+
+    static byte getByte(long address) {
+        return ALL.get(BYTE, address);
+    }
+
+    static void putByte(long address, byte value) {
+        ALL.set(BYTE, address, value);
+    }
+
+    static short getShort(long address) {
+        return ALL.get(SHORT, address);
+    }
+
+    static void putShort(long address, short value) {
+        ALL.set(SHORT, address, value);
+    }
+
+    static char getChar(long address) {
+        return ALL.get(CHAR, address);
+    }
+
+    static void putChar(long address, char value) {
+        ALL.set(CHAR, address, value);
+    }
+
+    static int getInt(long address) {
+        return ALL.get(INT, address);
+    }
+
+    static void putInt(long address, int value) {
+        ALL.set(INT, address, value);
+    }
+
+    static long getLong(long address) {
+        return ALL.get(LONG, address);
+    }
+
+    static void putLong(long address, long value) {
+        ALL.set(LONG, address, value);
+    }
+
+    static float getFloat(long address) {
+        return ALL.get(FLOAT, address);
+    }
+
+    static void putFloat(long address, float value) {
+        ALL.set(FLOAT, address, value);
+    }
+
+    static double getDouble(long address) {
+        return ALL.get(DOUBLE, address);
+    }
+
+    static void putDouble(long address, double value) {
+        ALL.set(DOUBLE, address, value);
+    }
+
+    static int getIntVolatile(long address) {
+        return (int) ATOMIC_INT.getVolatile(ALL, address);
+    }
+
+    static void putIntVolatile(long address, int value) {
+        ATOMIC_INT.setVolatile(ALL, address, value);
+    }
+
+    static void putIntOrdered(long address, int value) {
+        ATOMIC_INT.setRelease(ALL, address, value);
+    }
+
+    static boolean compareAndSetInt(long address, int expected, int value) {
+        return (boolean) ATOMIC_INT.compareAndSet(ALL, address, expected, value);
+    }
+
+    static int getAndAddInt(long address, int delta) {
+        return (int) ATOMIC_INT.getAndAdd(ALL, address, delta);
+    }
+
+    static int getAndSetInt(long address, int value) {
+        return (int) ATOMIC_INT.getAndSet(ALL, address, value);
+    }
+
+    static long getLongVolatile(long address) {
+        return (long) ATOMIC_LONG.getVolatile(ALL, address);
+    }
+
+    static void putLongVolatile(long address, long value) {
+        ATOMIC_LONG.setVolatile(ALL, address, value);
+    }
+
+    static void putLongOrdered(long address, long value) {
+        ATOMIC_LONG.setRelease(ALL, address, value);
+    }
+
+    static boolean compareAndSetLong(long address, long expected, long value) {
+        return (boolean) ATOMIC_LONG.compareAndSet(ALL, address, expected, value);
+    }
+
+    static long getAndAddLong(long address, long delta) {
+        return (long) ATOMIC_LONG.getAndAdd(ALL, address, delta);
+    }
+
+    static long getAndSetLong(long address, long value) {
+        return (long) ATOMIC_LONG.getAndSet(ALL, address, value);
+    }
+
+    static void copyToArray(long srcAddress, byte[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, BYTE, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, short[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, SHORT, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, char[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, CHAR, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, int[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, INT, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, long[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, LONG, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, float[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, FLOAT, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyToArray(long srcAddress, double[] dst, int dstIndex, int length) {
+        MemorySegment.copy(ALL, DOUBLE, srcAddress, dst, dstIndex, length);
+    }
+
+    static void copyFromArray(byte[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, BYTE, dstAddress, length);
+    }
+
+    static void copyFromArray(short[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, SHORT, dstAddress, length);
+    }
+
+    static void copyFromArray(char[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, CHAR, dstAddress, length);
+    }
+
+    static void copyFromArray(int[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, INT, dstAddress, length);
+    }
+
+    static void copyFromArray(long[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, LONG, dstAddress, length);
+    }
+
+    static void copyFromArray(float[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, FLOAT, dstAddress, length);
+    }
+
+    static void copyFromArray(double[] src, int srcIndex, long dstAddress, int length) {
+        MemorySegment.copy(src, srcIndex, ALL, DOUBLE, dstAddress, length);
+    }
+
+    /**
+     * Registers <tt>action</tt> to run once <tt>referent</tt> becomes unreachable.
+     *
+     * @return a runnable that runs <tt>action</tt> right away instead; <tt>action</tt>
+     * runs at most once either way
+     */
+    static Runnable registerCleaner(Object referent, Runnable action) {
+        final Cleaner.Cleanable cleanable = CLEANER.register(referent, action);
+        return new Runnable() {
+            @Override
+            public void run() {
+                cleanable.clean();
+            }
+        };
+    }
+
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+        Linker linker = Linker.nativeLinker();
+        SymbolLookup lookup = linker.defaultLookup();
+        MemorySegment symbol = lookup.find(name).orElseThrow(
+                () -> new IllegalStateException("Was not able to find " + name + " to use."));
+        return linker.downcallHandle(symbol, descriptor);
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException(t);
+    }
+}
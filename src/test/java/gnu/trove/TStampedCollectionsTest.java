@@ -0,0 +1,280 @@
+package gnu.trove;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+
+import gnu.trove.array.OffheapBacked;
+import gnu.trove.impl.sync.TStampedIntCollection;
+import gnu.trove.impl.sync.TStampedIntIntMap;
+import gnu.trove.impl.sync.TStampedIntSet;
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.list.array.TIntBigOffheapArrayList;
+import gnu.trove.list.array.TIntOffheapArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntBigOffheapHashMap;
+import gnu.trove.map.hash.TIntIntConcurrentOffheapHashMap;
+import gnu.trove.map.hash.TIntIntExpiringHashMap;
+import gnu.trove.map.hash.TIntIntExpiringOffheapHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntIntInterleavedOffheapHashMap;
+import gnu.trove.map.hash.TIntIntLinkedHashMap;
+import gnu.trove.map.hash.TIntIntOffheapHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TIntOffheapHashSet;
+import junit.framework.TestCase;
+
+
+public class TStampedCollectionsTest extends TestCase {
+
+    public TStampedCollectionsTest( String name ) {
+        super( name );
+    }
+
+
+    public void testMap() throws Exception {
+        TStampedIntIntMap map = TCollections.stampedMap( new TIntIntHashMap() );
+        for ( int i = 0; i < 100; i++ ) {
+            assertEquals( 0, map.put( i, i * 2 ) );
+        }
+        assertEquals( 100, map.size() );
+        assertEquals( 42, map.get( 21 ) );
+        assertTrue( map.containsKey( 99 ) );
+        assertEquals( 3, map.adjustOrPutValue( 1, 1, 0 ) );
+        assertTrue( map.keySet().remove( 99 ) );
+        assertFalse( map.containsKey( 99 ) );
+        assertTrue( map.valueCollection().contains( 42 ) );
+
+        long stamp = map.getLock().readLock();
+        try {
+            int entries = 0;
+            for ( TIntIntIterator iter = map.iterator(); iter.hasNext(); ) {
+                iter.advance();
+                entries++;
+            }
+            assertEquals( 99, entries );
+        } finally {
+            map.getLock().unlockRead( stamp );
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntIntMap copy = ( TIntIntMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertEquals( 42, copy.get( 21 ) );
+    }
+
+
+    public void testSet() {
+        TStampedIntSet set = TCollections.stampedSet( new TIntHashSet() );
+        assertTrue( set.add( 1 ) );
+        assertFalse( set.add( 1 ) );
+        assertTrue( set.contains( 1 ) );
+        assertEquals( 1, set.size() );
+        TIntSet expected = new TIntHashSet( new int[] { 1 } );
+        assertEquals( expected, set );
+        assertEquals( expected.hashCode(), set.hashCode() );
+    }
+
+
+    public void testRejectsIncrementalRehash() {
+        TIntIntHashMap map = new TIntIntHashMap();
+        map.setIncrementalRehash( 4 );
+        try {
+            TCollections.stampedMap( map );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+    }
+
+
+    public void testRejectsAccessOrder() {
+        TCollections.stampedMap( new TIntIntLinkedHashMap() );
+        try {
+            TCollections.stampedMap( new TIntIntLinkedHashMap( 10, 0.5f, 0, 0, true ) );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+    }
+
+
+    public void testRejectsExpiringMaps() {
+        try {
+            TCollections.stampedMap( new TIntIntExpiringHashMap() );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+        TIntIntExpiringOffheapHashMap offheap = new TIntIntExpiringOffheapHashMap();
+        try {
+            TCollections.stampedMap( offheap );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        } finally {
+            offheap.free();
+        }
+    }
+
+
+    public void testReadsDuringWrites() throws Exception {
+        readDuringWrites( TCollections.stampedMap( new TIntIntHashMap() ) );
+    }
+
+
+    public void testOffheapReadsDuringWrites() throws Exception {
+        // the writer frees the arrays a lookup without the lock would read
+        TIntIntMap map = TCollections.stampedMap( new TIntIntOffheapHashMap( 4 ) );
+        readDuringWrites( map );
+        assertTrue( map.keySet().contains( 1 ) );
+        assertTrue( map.valueCollection().contains( 1 ) );
+    }
+
+
+    public void testOffheapSizeTakesReadLock() {
+        final AtomicReference<StampedLock> lock = new AtomicReference<StampedLock>();
+        final AtomicInteger unlocked = new AtomicInteger();
+        TStampedIntIntMap map = TCollections.stampedMap( new TIntIntOffheapHashMap() {
+            @Override
+            public int size() {
+                if ( ! lock.get().isReadLocked() ) {
+                    unlocked.incrementAndGet();
+                }
+                return super.size();
+            }
+        } );
+        lock.set( map.getLock() );
+        map.put( 1, 1 );
+        assertEquals( 1, map.size() );
+        assertFalse( map.isEmpty() );
+
+        TStampedIntCollection list = new TStampedIntCollection( new TIntOffheapArrayList() {
+            @Override
+            public int size() {
+                if ( ! lock.get().isReadLocked() ) {
+                    unlocked.incrementAndGet();
+                }
+                return super.size();
+            }
+        } );
+        lock.set( list.getLock() );
+        list.add( 1 );
+        assertEquals( 1, list.size() );
+        assertFalse( list.isEmpty() );
+        assertEquals( 0, unlocked.get() );
+    }
+
+
+    public void testOffheapCollectionsAreMarked() {
+        assertTrue( new TIntOffheapArrayList() instanceof OffheapBacked );
+        assertTrue( new TIntBigOffheapArrayList() instanceof OffheapBacked );
+        assertTrue( new TIntOffheapHashSet() instanceof OffheapBacked );
+        assertTrue( new TIntIntOffheapHashMap() instanceof OffheapBacked );
+        assertTrue( new TIntIntInterleavedOffheapHashMap() instanceof OffheapBacked );
+        assertTrue( new TIntIntBigOffheapHashMap() instanceof OffheapBacked );
+        assertTrue( new TIntIntConcurrentOffheapHashMap( 4 ) instanceof OffheapBacked );
+        assertFalse( new TIntHashSet() instanceof OffheapBacked );
+    }
+
+
+    public void testOffheapListReadsDuringWrites() throws Exception {
+        // growing and clearing the list reallocates its native memory, which
+        // a lookup without the lock would go on reading
+        final TIntCollection list = new TStampedIntCollection( new TIntOffheapArrayList() );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+        for ( int t = 0; t < threads.length; t++ ) {
+            final boolean writer = t == 0;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for ( int i = 0; i < 200000; i++ ) {
+                            if ( writer ) {
+                                if ( i % 20000 == 0 ) {
+                                    list.clear();
+                                }
+                                list.add( i );
+                            } else if ( i % 100 == 0 ) {
+                                // scans the whole list
+                                assertFalse( list.contains( -1 ) );
+                            }
+                        }
+                    } catch ( Throwable e ) {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+        assertEquals( 20000, list.size() );
+        assertTrue( list.contains( 199999 ) );
+    }
+
+
+    private void readDuringWrites( final TIntIntMap map ) throws Exception {
+        for ( int i = 0; i < 1000; i++ ) {
+            map.put( i, i );
+        }
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+        for ( int t = 0; t < threads.length; t++ ) {
+            final boolean writer = t == 0;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for ( int i = 0; i < 200000; i++ ) {
+                            if ( writer ) {
+                                // grows and compacts the table over and over
+                                int key = 1000 + i % 20000;
+                                if ( ( i / 20000 ) % 2 == 0 ) {
+                                    map.put( key, key );
+                                } else {
+                                    map.remove( key );
+                                }
+                            } else {
+                                // keys below 1000 never change
+                                int key = i % 1000;
+                                assertEquals( key, map.get( key ) );
+                                assertTrue( map.containsKey( key ) );
+                            }
+                        }
+                    } catch ( Throwable e ) {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package gnu.trove.array;
+
+import gnu.trove.list.array.TIntOffheapArrayList;
+import gnu.trove.map.hash.TLongIntOffheapHashMap;
+import gnu.trove.set.hash.TLongOffheapHashSet;
+import junit.framework.TestCase;
+
+public class OffheapArenaTest extends TestCase {
+
+    private OffheapArena arena;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        arena = new OffheapArena(1024);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        arena.close();
+        super.tearDown();
+    }
+
+    public void testArrays() {
+        TIntOffheapArray first = new TIntOffheapArray(10, arena);
+        TLongOffheapArray second = new TLongOffheapArray(10, arena);
+        assertSame(arena, first.allocator());
+        assertEquals(1024, arena.reserved());
+
+        for (int i = 0; i < 10; i++) {
+            first.put(i, i);
+            second.put(i, -i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, first.get(i));
+            assertEquals(-i, second.get(i));
+        }
+    }
+
+    public void testAllocationsAreZeroed() {
+        TLongOffheapArray array = new TLongOffheapArray(10, arena);
+        for (int i = 0; i < 10; i++) {
+            array.put(i, -1);
+        }
+        array.free();
+
+        array = new TLongOffheapArray(10, arena);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, array.get(i));
+        }
+    }
+
+    public void testResizeLastInPlace() {
+        TIntOffheapArray array = new TIntOffheapArray(10, arena);
+        long address = array.address;
+        array.put(9, 9);
+        array.resize(20);
+        assertEquals(address, array.address);
+        assertEquals(9, array.get(9));
+        assertEquals(0, array.get(19));
+    }
+
+    public void testResizeMoves() {
+        TIntOffheapArray array = new TIntOffheapArray(10, arena);
+        TIntOffheapArray other = new TIntOffheapArray(10, arena);
+        long address = array.address;
+        for (int i = 0; i < 10; i++) {
+            array.put(i, i);
+        }
+        array.resize(20);
+        assertTrue(address != array.address);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, array.get(i));
+        }
+        for (int i = 10; i < 20; i++) {
+            assertEquals(0, array.get(i));
+        }
+        assertEquals(0, other.get(0));
+    }
+
+    public void testFreeLastReusesMemory() {
+        TIntOffheapArray array = new TIntOffheapArray(10, arena);
+        long address = array.address;
+        array.free();
+        array.free();
+        assertEquals(address, new TIntOffheapArray(10, arena).address);
+    }
+
+    public void testLargeAllocations() {
+        TLongOffheapArray array = new TLongOffheapArray(1000, arena);
+        array.put(999, 999);
+        assertEquals(999, array.get(999));
+        assertEquals(8000, arena.reserved());
+        array.resize(2000);
+        assertEquals(999, array.get(999));
+    }
+
+    public void testClose() {
+        new TIntOffheapArray(10, arena);
+        new TIntOffheapArray(1000, arena);
+        arena.close();
+        assertEquals(0, arena.reserved());
+        arena.close();
+
+        try {
+            new TIntOffheapArray(10, arena);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // Expected
+        }
+    }
+
+    public void testCollections() {
+        TLongIntOffheapHashMap map = new TLongIntOffheapHashMap(10, 0.5f, arena);
+        TLongOffheapHashSet set = new TLongOffheapHashSet(10, 0.5f, arena);
+        TIntOffheapArrayList list = new TIntOffheapArrayList(10, 0, arena);
+        assertSame(arena, map.getAllocator());
+        assertSame(arena, set.getAllocator());
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i * 2);
+            set.add(i * 3);
+            list.add(i * 4);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 2, map.get(i));
+            assertTrue(set.contains(i * 3));
+            assertEquals(i * 4, list.get(i));
+        }
+        assertSame(arena, map._states.allocator());
+        assertSame(arena, map._set.allocator());
+        assertSame(arena, set._set.allocator());
+    }
+
+    public void testInvalidBlockSize() {
+        try {
+            new OffheapArena(4);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+}
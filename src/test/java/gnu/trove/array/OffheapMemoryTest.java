@@ -0,0 +1,154 @@
+package gnu.trove.array;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import junit.framework.TestCase;
+
+public class OffheapMemoryTest extends TestCase {
+
+    private static final String TYPE = "test";
+
+    /** An array reported under its own type, so other tests do not disturb the counts. */
+    private static class TestArray extends AbstractOffheapArray {
+        TestArray(long capacity) {
+            super(capacity, NativeAllocator.INSTANCE, TYPE);
+        }
+
+        @Override
+        public void resize(long newCapacity) {
+            super.resize(newCapacity);
+        }
+
+        @Override
+        public long capacity() {
+            return capacity;
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        OffheapMemory.setLimit(0);
+        super.tearDown();
+    }
+
+    public void testAllocateAndFree() {
+        OffheapMemoryUsage before = OffheapMemory.getUsage(TYPE);
+
+        TestArray array = new TestArray(100);
+        OffheapMemoryUsage usage = OffheapMemory.getUsage(TYPE);
+        assertEquals(before.getBytesAllocated() + 100, usage.getBytesAllocated());
+        assertEquals(before.getBytesInUse() + 100, usage.getBytesInUse());
+        assertEquals(before.getLiveArrays() + 1, usage.getLiveArrays());
+        assertTrue(usage.getPeakBytesInUse() >= 100);
+        assertTrue(usage.getPeakLiveArrays() >= 1);
+        assertTrue(OffheapMemory.getUsageByType().containsKey(TYPE));
+
+        array.free();
+        array.free();
+        usage = OffheapMemory.getUsage(TYPE);
+        assertEquals(before.getBytesFreed() + 100, usage.getBytesFreed());
+        assertEquals(before.getBytesInUse(), usage.getBytesInUse());
+        assertEquals(before.getLiveArrays(), usage.getLiveArrays());
+    }
+
+    public void testResize() {
+        OffheapMemoryUsage before = OffheapMemory.getUsage(TYPE);
+
+        TestArray array = new TestArray(100);
+        array.resize(300);
+        assertEquals(before.getBytesInUse() + 300, OffheapMemory.getUsage(TYPE).getBytesInUse());
+        array.resize(50);
+        assertEquals(before.getBytesInUse() + 50, OffheapMemory.getUsage(TYPE).getBytesInUse());
+        assertEquals(before.getLiveArrays() + 1, OffheapMemory.getUsage(TYPE).getLiveArrays());
+
+        array.free();
+        assertEquals(before.getBytesInUse(), OffheapMemory.getUsage(TYPE).getBytesInUse());
+    }
+
+    public void testElementTypes() {
+        OffheapMemoryUsage before = OffheapMemory.getUsage("long");
+        TLongOffheapArray array = new TLongOffheapArray(10);
+        assertEquals(before.getBytesInUse() + 80, OffheapMemory.getUsage("long").getBytesInUse());
+        array.free();
+        assertEquals(before.getBytesInUse(), OffheapMemory.getUsage("long").getBytesInUse());
+    }
+
+    public void testArena() {
+        OffheapMemoryUsage before = OffheapMemory.getUsage(OffheapMemory.ARENA);
+        OffheapMemoryUsage beforeInt = OffheapMemory.getUsage("int");
+
+        OffheapArena arena = new OffheapArena(1024);
+        new TIntOffheapArray(10, arena);
+        new TIntOffheapArray(1000, arena);
+        assertEquals(before.getBytesInUse() + arena.reserved(),
+                OffheapMemory.getUsage(OffheapMemory.ARENA).getBytesInUse());
+        assertEquals(before.getLiveArrays() + 2, OffheapMemory.getUsage(OffheapMemory.ARENA).getLiveArrays());
+        assertEquals(beforeInt.getBytesAllocated(), OffheapMemory.getUsage("int").getBytesAllocated());
+
+        arena.close();
+        assertEquals(before.getBytesInUse(), OffheapMemory.getUsage(OffheapMemory.ARENA).getBytesInUse());
+        assertEquals(before.getLiveArrays(), OffheapMemory.getUsage(OffheapMemory.ARENA).getLiveArrays());
+    }
+
+    public void testLimit() {
+        OffheapMemoryUsage before = OffheapMemory.getUsage(TYPE);
+        OffheapMemory.setLimit(OffheapMemory.getUsage().getBytesInUse() + 1000);
+
+        TestArray array = new TestArray(600);
+        try {
+            new TestArray(600);
+            fail("Expected OutOfMemoryError");
+        }
+        catch (OutOfMemoryError ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(TYPE));
+        }
+        try {
+            array.resize(2000);
+            fail("Expected OutOfMemoryError");
+        }
+        catch (OutOfMemoryError ex) {
+            // Expected
+        }
+        assertEquals(600, array.capacity());
+        assertEquals(before.getBytesInUse() + 600, OffheapMemory.getUsage(TYPE).getBytesInUse());
+
+        array.free();
+        new TestArray(600).free();
+        assertEquals(before.getBytesInUse(), OffheapMemory.getUsage(TYPE).getBytesInUse());
+
+        try {
+            OffheapMemory.setLimit(-1);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    public void testMXBean() throws Exception {
+        OffheapMemory.registerMXBean();
+        OffheapMemory.registerMXBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OffheapMemory.OBJECT_NAME);
+        TestArray array = new TestArray(100);
+        try {
+            OffheapMemoryUsage usage = OffheapMemoryUsage.from((CompositeData) server.getAttribute(name, "Usage"));
+            assertTrue(usage.getBytesInUse() >= 100);
+            assertEquals(0L, server.getAttribute(name, "Limit"));
+        }
+        finally {
+            array.free();
+        }
+
+        OffheapMemoryMXBean bean = JMX.newMXBeanProxy(server, name, OffheapMemoryMXBean.class);
+        bean.setLimit(1L << 40);
+        assertEquals(1L << 40, OffheapMemory.getLimit());
+        assertTrue(bean.getUsageByType().containsKey(TYPE));
+    }
+}
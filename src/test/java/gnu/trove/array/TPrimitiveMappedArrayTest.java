@@ -0,0 +1,232 @@
+package gnu.trove.array;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class TPrimitiveMappedArrayTest extends TestCase {
+
+    private File file;
+    private TIntMappedArray list;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        file = File.createTempFile("trove", ".mapped");
+        list = new TIntMappedArray(file, 5);
+        assertEquals(5, list.capacity());
+        assertEquals(20, file.length());
+        list.put(0, 1);
+        list.put(1, 2);
+        list.put(2, 3);
+        list.put(3, 4);
+        list.put(4, 5);
+    }
+
+
+    @Override
+    public void tearDown() throws Exception {
+        list.free();
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testGet() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, list.get(i));
+        }
+
+        try {
+            list.get(list.capacity());
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+    }
+
+    public void testReopen() throws Exception {
+        list.flush();
+        list.free();
+
+        list = new TIntMappedArray(file);
+        assertEquals(5, list.capacity());
+        testGet();
+
+        list.free();
+        list = new TIntMappedArray(file, 7);
+        assertEquals(7, list.capacity());
+        assertEquals(28, file.length());
+        testGet();
+        assertEquals(0, list.get(5));
+        assertEquals(0, list.get(6));
+    }
+
+    public void testCapacityOverflow() throws Exception {
+        File other = File.createTempFile("trove", ".mapped");
+        try {
+            try {
+                new TLongMappedArray(other, Long.MAX_VALUE / 4);
+                fail("Expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException ex) {
+                // Expected
+            }
+            try {
+                new TLongMappedArray(other, -1);
+                fail("Expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+        finally {
+            other.delete();
+        }
+
+        try {
+            list.resize(Long.MAX_VALUE / 2);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        assertEquals(5, list.capacity());
+        testGet();
+    }
+
+    public void testReopenWrongLength() throws Exception {
+        File other = File.createTempFile("trove", ".mapped");
+        try {
+            TByteMappedArray bytes = new TByteMappedArray(other, 6);
+            bytes.free();
+            try {
+                new TLongMappedArray(other);
+                fail("Expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+        finally {
+            other.delete();
+        }
+    }
+
+    public void testResize() {
+        list.resize(10);
+        assertEquals(40, file.length());
+        testGet();
+        list.put(9, 100);
+        assertEquals(0, list.get(8));
+        assertEquals(100, list.get(9));
+
+        list.resize(3);
+        assertEquals(3, list.capacity());
+        assertEquals(12, file.length());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, list.get(i));
+        }
+    }
+
+    public void testFailedResizeKeepsOldMapping() {
+        try {
+            list.resize(Long.MAX_VALUE >> 2);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // Expected
+        }
+        assertEquals(5, list.capacity());
+        assertEquals(20, file.length());
+        testGet();
+    }
+
+    public void testSegmentBoundary() {
+        long boundary = AbstractMappedArray.SEGMENT_SIZE / 4;
+        list.resize(boundary + 10);
+        testGet();
+        list.fromArray(new int[] {7, 8, 9, 10}, 0, boundary - 2, 4);
+        assertEquals(7, list.get(boundary - 2));
+        assertEquals(8, list.get(boundary - 1));
+        assertEquals(9, list.get(boundary));
+        assertEquals(10, list.get(boundary + 1));
+
+        int[] array = new int[6];
+        list.toArray(boundary - 3, array, 0, 6);
+        assertEquals(0, array[0]);
+        assertEquals(7, array[1]);
+        assertEquals(8, array[2]);
+        assertEquals(9, array[3]);
+        assertEquals(10, array[4]);
+        assertEquals(0, array[5]);
+    }
+
+    public void testClear() {
+        list.clear();
+        assertEquals(5, list.capacity());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, list.get(i));
+        }
+    }
+
+    public void testFree() {
+        list.free();
+        try {
+            list.put(0, 20);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch ( IndexOutOfBoundsException ex ) {
+            // Expected
+        }
+        // Freeing more than once is fine
+        list.free();
+    }
+
+    public void testToArray() {
+        int[] array = new int[10];
+        list.toArray(2, array, 1, 3);
+        assertEquals(0, array[0]);
+        assertEquals(3, array[1]);
+        assertEquals(4, array[2]);
+        assertEquals(5, array[3]);
+        assertEquals(0, array[4]);
+
+        list.resize(100);
+        for (int i = 0; i < 100; i++) {
+            list.put(i, i);
+        }
+        array = new int[100];
+        list.toArray(30, array, 20, 60);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, array[i]);
+        }
+        for (int i = 20; i < 80; i++) {
+            assertEquals(i + 10, array[i]);
+        }
+        for (int i = 80; i < 100; i++) {
+            assertEquals(0, array[i]);
+        }
+    }
+
+    public void testOtherTypes() throws Exception {
+        File other = File.createTempFile("trove", ".mapped");
+        try {
+            TDoubleMappedArray doubles = new TDoubleMappedArray(other, 3);
+            doubles.put(1, 2.5);
+            doubles.free();
+
+            doubles = new TDoubleMappedArray(other);
+            assertEquals(3, doubles.capacity());
+            assertEquals(0.0, doubles.get(0));
+            assertEquals(2.5, doubles.get(1));
+            assertEquals("[0.0, 2.5, 0.0]", doubles.toString());
+            doubles.free();
+        }
+        finally {
+            other.delete();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package gnu.trove.array;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class TPrimitiveOffheapArrayAtomicsTest extends TestCase {
+
+    public void testInt() {
+        TIntOffheapArray array = new TIntOffheapArray(4);
+        array.putVolatile(1, 5);
+        assertEquals(5, array.getVolatile(1));
+        assertEquals(5, array.get(1));
+
+        assertFalse(array.compareAndSet(1, 4, 6));
+        assertTrue(array.compareAndSet(1, 5, 6));
+        assertEquals(6, array.get(1));
+        assertEquals(6, array.getAndAdd(1, 10));
+        assertEquals(16, array.getAndSet(1, -1));
+        assertEquals(-1, array.getVolatile(1));
+        array.putOrdered(2, 7);
+        assertEquals(7, array.getVolatile(2));
+
+        assertEquals(0, array.get(0));
+        assertEquals(0, array.get(3));
+        array.free();
+    }
+
+    public void testLong() {
+        TLongOffheapArray array = new TLongOffheapArray(4);
+        array.putVolatile(1, 1L << 40);
+        assertEquals(1L << 40, array.getVolatile(1));
+
+        assertFalse(array.compareAndSet(1, 0, 6));
+        assertTrue(array.compareAndSet(1, 1L << 40, 6));
+        assertEquals(6, array.getAndAdd(1, 1L << 40));
+        assertEquals(6 + (1L << 40), array.getAndSet(1, -1));
+        assertEquals(-1, array.getVolatile(1));
+        array.putOrdered(2, 7);
+        assertEquals(7, array.getVolatile(2));
+        array.free();
+    }
+
+    public void testFloatingPoint() {
+        TDoubleOffheapArray doubles = new TDoubleOffheapArray(2);
+        assertTrue(doubles.compareAndSet(0, 0.0, 1.5));
+        assertEquals(1.5, doubles.getAndAdd(0, 2.0));
+        assertEquals(3.5, doubles.getVolatile(0));
+        assertEquals(3.5, doubles.getAndSet(0, Double.NaN));
+        // compared by bits
+        assertTrue(doubles.compareAndSet(0, Double.NaN, -0.0));
+        assertFalse(doubles.compareAndSet(0, 0.0, 1.0));
+        doubles.free();
+
+        TFloatOffheapArray floats = new TFloatOffheapArray(2);
+        assertTrue(floats.compareAndSet(1, 0f, 1.5f));
+        assertEquals(1.5f, floats.getAndAdd(1, 2f));
+        assertEquals(3.5f, floats.getVolatile(1));
+        floats.putOrdered(0, 2f);
+        assertEquals(2f, floats.get(0));
+        floats.free();
+    }
+
+    public void testSubWordTypesLeaveNeighboursAlone() {
+        TByteOffheapArray bytes = new TByteOffheapArray(9);
+        for (int i = 0; i < 9; i++) {
+            bytes.put(i, (byte) (i + 1));
+        }
+        for (int i = 0; i < 9; i++) {
+            assertTrue(bytes.compareAndSet(i, (byte) (i + 1), (byte) -i));
+            assertEquals(-i, bytes.getAndAdd(i, (byte) 1));
+            assertEquals((byte) (1 - i), bytes.getVolatile(i));
+        }
+        assertEquals(1, bytes.getAndAdd(0, (byte) 126));
+        assertEquals(127, bytes.getAndAdd(0, (byte) 1));
+        // wraps around like a byte would
+        assertEquals(-128, bytes.get(0));
+        for (int i = 1; i < 9; i++) {
+            assertEquals((byte) (1 - i), bytes.get(i));
+        }
+        bytes.free();
+
+        TShortOffheapArray shorts = new TShortOffheapArray(3);
+        shorts.put(0, (short) -2);
+        shorts.put(2, (short) 3);
+        assertFalse(shorts.compareAndSet(1, (short) 1, (short) 2));
+        assertTrue(shorts.compareAndSet(1, (short) 0, (short) -300));
+        assertEquals(-300, shorts.getAndSet(1, (short) 300));
+        assertEquals(-2, shorts.get(0));
+        assertEquals(300, shorts.getVolatile(1));
+        assertEquals(3, shorts.get(2));
+        shorts.free();
+
+        TCharOffheapArray chars = new TCharOffheapArray(2);
+        chars.putVolatile(0, 'a');
+        chars.putOrdered(1, '\uffff');
+        assertEquals('\uffff', chars.getAndAdd(1, (char) 1));
+        assertEquals(0, chars.get(1));
+        assertEquals('a', chars.getVolatile(0));
+        chars.free();
+    }
+
+    public void testSubWordTypesAllocateWholeInts() {
+        final long[] requested = new long[1];
+        OffheapAllocator recording = new OffheapAllocator() {
+            @Override
+            public long allocate(long bytes) {
+                requested[0] = bytes;
+                return NativeAllocator.INSTANCE.allocate(bytes);
+            }
+
+            @Override
+            public long reallocate(long address, long oldBytes, long newBytes) {
+                assertEquals(requested[0], oldBytes);
+                requested[0] = newBytes;
+                return NativeAllocator.INSTANCE.reallocate(address, oldBytes, newBytes);
+            }
+
+            @Override
+            public void free(long address, long bytes) {
+                assertEquals(requested[0], bytes);
+                NativeAllocator.INSTANCE.free(address, bytes);
+            }
+
+            @Override
+            public boolean isScoped() {
+                return false;
+            }
+        };
+
+        TByteOffheapArray bytes = new TByteOffheapArray(5, recording);
+        assertEquals(8, requested[0]);
+        assertEquals(5, bytes.capacity());
+        bytes.put(4, (byte) 7);
+        assertEquals(7, bytes.getAndAdd(4, (byte) 1));
+        bytes.resize(2);
+        assertEquals(4, requested[0]);
+        bytes.resize(6);
+        assertEquals(8, requested[0]);
+        // the padding left over from before the shrink reads as zero
+        assertEquals(0, bytes.getVolatile(4));
+        assertEquals(0, bytes.getVolatile(5));
+        bytes.free();
+
+        TShortOffheapArray shorts = new TShortOffheapArray(3, recording);
+        assertEquals(8, requested[0]);
+        assertEquals(3, shorts.capacity());
+        shorts.free();
+
+        TIntOffheapArray ints = new TIntOffheapArray(3, recording);
+        assertEquals(12, requested[0]);
+        ints.free();
+    }
+
+    public void testConcurrentCounters() throws Exception {
+        final int threads = 4;
+        final int increments = 100000;
+        final TLongOffheapArray longs = new TLongOffheapArray(2);
+        final TIntOffheapArray ints = new TIntOffheapArray(2);
+        final TByteOffheapArray bytes = new TByteOffheapArray(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < increments; i++) {
+                        longs.getAndAdd(i & 1, 1);
+                        int current;
+                        do {
+                            current = ints.getVolatile(0);
+                        } while (!ints.compareAndSet(0, current, current + 1));
+                        // every thread owns one byte of the same word
+                        bytes.getAndAdd(index, (byte) 1);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * increments, longs.get(0) + longs.get(1));
+        assertEquals(threads * increments, ints.get(0));
+        for (int t = 0; t < threads; t++) {
+            assertEquals((byte) increments, bytes.get(t));
+        }
+        longs.free();
+        ints.free();
+        bytes.free();
+    }
+
+    public void testBoundsChecked() {
+        TIntOffheapArray array = new TIntOffheapArray(2);
+        try {
+            array.compareAndSet(2, 0, 1);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+        array.free();
+        try {
+            array.getAndAdd(0, 1);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package gnu.trove.array;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+
+import junit.framework.TestCase;
+
+public class TPrimitiveOffheapArrayChannelTest extends TestCase {
+
+    private TLongOffheapArray array;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        array = new TLongOffheapArray(100);
+        for (int i = 0; i < 100; i++) {
+            array.put(i, i * 1000000007L);
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        array.free();
+        super.tearDown();
+    }
+
+    public void testAsByteBuffer() {
+        ByteBuffer buffer = array.asByteBuffer(10, 5);
+        assertTrue(buffer.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+        assertEquals(40, buffer.capacity());
+        assertEquals(0, buffer.position());
+        assertEquals(40, buffer.limit());
+
+        LongBuffer longs = buffer.asLongBuffer();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(array.get(10 + i), longs.get(i));
+        }
+
+        // shares memory both ways
+        longs.put(2, -1);
+        assertEquals(-1, array.get(12));
+        array.put(13, 42);
+        assertEquals(42, buffer.getLong(24));
+        assertEquals(11 * 1000000007L, array.get(11));
+        assertEquals(15 * 1000000007L, array.get(15));
+
+        assertEquals(0, array.asByteBuffer(100, 0).capacity());
+        try {
+            array.asByteBuffer(98, 3);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+    }
+
+    public void testSmallerTypes() {
+        TCharOffheapArray chars = new TCharOffheapArray(4);
+        chars.put(1, 'x');
+        assertEquals('x', chars.asByteBuffer(0, 4).asCharBuffer().get(1));
+        chars.free();
+
+        TByteOffheapArray bytes = new TByteOffheapArray(3);
+        bytes.asByteBuffer(1, 2).put(1, (byte) 7);
+        assertEquals(7, bytes.get(2));
+        bytes.free();
+    }
+
+    public void testWriteAndReadStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        array.writeTo(Channels.newChannel(out), 20, 30);
+        assertEquals(240, out.size());
+
+        TLongOffheapArray copy = new TLongOffheapArray(50);
+        long read = copy.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), 5, 40);
+        assertEquals(30, read);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(array.get(20 + i), copy.get(5 + i));
+        }
+        assertEquals(0, copy.get(4));
+        assertEquals(0, copy.get(35));
+        copy.free();
+    }
+
+    public void testReadEndsWithinElement() throws Exception {
+        byte[] data = new byte[12];
+        try {
+            array.readFrom(Channels.newChannel(new ByteArrayInputStream(data)));
+            fail("Expected EOFException");
+        }
+        catch (EOFException ex) {
+            // Expected
+        }
+        assertEquals(0, array.get(0));
+    }
+
+    public void testNonBlockingChannels() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            // an empty pipe reads 0 bytes and a full one writes 0 bytes
+            pipe.source().configureBlocking(false);
+            pipe.sink().configureBlocking(false);
+            TLongOffheapArray large = new TLongOffheapArray(1 << 20);
+            try {
+                large.writeTo(pipe.sink());
+                fail("Expected IllegalBlockingModeException");
+            }
+            catch (IllegalBlockingModeException ex) {
+                // Expected
+            }
+            finally {
+                large.free();
+            }
+            try {
+                array.readFrom(pipe.source());
+                fail("Expected IllegalBlockingModeException");
+            }
+            catch (IllegalBlockingModeException ex) {
+                // Expected
+            }
+            assertEquals(1000000007L, array.get(1));
+
+            pipe.sink().configureBlocking(true);
+            pipe.source().configureBlocking(true);
+            array.writeTo(pipe.sink(), 1, 2);
+            TLongOffheapArray copy = new TLongOffheapArray(2);
+            assertEquals(2, copy.readFrom(pipe.source()));
+            assertEquals(array.get(2), copy.get(1));
+            copy.free();
+        }
+        finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    public void testFileChannel() throws Exception {
+        File file = File.createTempFile("trove", ".offheap");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            array.writeTo(channel);
+            assertEquals(800, channel.size());
+
+            channel.position(0);
+            TLongOffheapArray copy = new TLongOffheapArray(100);
+            assertEquals(100, copy.readFrom(channel));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(array.get(i), copy.get(i));
+            }
+            copy.free();
+
+            // the file is in native byte order, so the mapped arrays can read it
+            TLongMappedArray mapped = new TLongMappedArray(file);
+            assertEquals(array.get(99), mapped.get(99));
+            assertEquals(array.get(7), mapped.asByteBuffer(7, 1).getLong(0));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            mapped.writeTo(Channels.newChannel(out));
+            assertEquals(800, out.size());
+            mapped.free();
+        }
+        finally {
+            raf.close();
+            file.delete();
+        }
+    }
+}
@@ -148,4 +148,39 @@ public class TPrimitiveOffheapArrayTest extends TestCase {
             assertEquals(0, array[i]);
         }
     }
+
+    public void testLargeCopy() {
+        // more than a copy chunk, and not a multiple of it
+        int length = 1100000;
+        list.resize(length + 1000);
+        for (int i = 0; i < length + 1000; i++) {
+            list.put(i, i + 1);
+        }
+
+        int[] array = new int[length + 1000];
+        list.toArray(0, array, 0, length);
+        for (int i = 0; i < length; i++) {
+            assertEquals(i + 1, array[i]);
+        }
+        for (int i = length; i < array.length; i++) {
+            assertEquals(0, array[i]);
+        }
+
+        list.clear();
+        list.fromArray(array, 0, 0, length);
+        for (int i = 0; i < length; i++) {
+            assertEquals(i + 1, list.get(i));
+        }
+        for (int i = length; i < list.capacity(); i++) {
+            assertEquals(0, list.get(i));
+        }
+    }
+
+    public void testBackend() {
+        // the Java 22 classes are only picked up from the multi-release jar
+        String version = System.getProperty("java.specification.version");
+        boolean java22 = !version.startsWith("1.") && Integer.parseInt(version) >= 22;
+        boolean jar = TIntOffheapArray.class.getResource("TIntOffheapArray.class").getProtocol().equals("jar");
+        assertEquals(java22 && jar ? "ffm" : "unsafe", AbstractOffheapArray.backend());
+    }
 }
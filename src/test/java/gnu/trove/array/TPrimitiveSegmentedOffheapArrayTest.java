@@ -0,0 +1,95 @@
+package gnu.trove.array;
+
+import junit.framework.TestCase;
+
+public class TPrimitiveSegmentedOffheapArrayTest extends TestCase {
+
+    public void testPutGetAcrossSegments() {
+        TLongSegmentedOffheapArray array = new TLongSegmentedOffheapArray(100, 4, NativeAllocator.INSTANCE);
+        assertEquals(100, array.capacity());
+        assertEquals(16, array.segmentSize());
+        for (long i = 0; i < 100; i++) {
+            assertEquals(0, array.get(i));
+            array.put(i, i * 31);
+        }
+        for (long i = 0; i < 100; i++) {
+            assertEquals(i * 31, array.get(i));
+        }
+        array.free();
+    }
+
+    public void testResize() {
+        TIntSegmentedOffheapArray array = new TIntSegmentedOffheapArray(10, 3, NativeAllocator.INSTANCE);
+        for (int i = 0; i < 10; i++) {
+            array.put(i, i + 1);
+        }
+        array.resize(37);
+        assertEquals(37, array.capacity());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, array.get(i));
+        }
+        for (int i = 10; i < 37; i++) {
+            assertEquals(0, array.get(i));
+        }
+
+        array.resize(5);
+        assertEquals(5, array.capacity());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, array.get(i));
+        }
+        try {
+            array.get(5);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // Expected
+        }
+
+        array.resize(0);
+        assertEquals(0, array.capacity());
+        array.resize(20);
+        assertEquals(0, array.get(19));
+        array.free();
+    }
+
+    public void testClearAndFree() {
+        TDoubleSegmentedOffheapArray array = new TDoubleSegmentedOffheapArray(50, 2, NativeAllocator.INSTANCE);
+        for (int i = 0; i < 50; i++) {
+            array.put(i, i / 2.0);
+        }
+        array.clear();
+        for (int i = 0; i < 50; i++) {
+            assertEquals(0.0, array.get(i));
+        }
+        array.free();
+        array.free();
+        assertEquals(0, array.capacity());
+        try {
+            array.resize(10);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // Expected
+        }
+    }
+
+    public void testArena() {
+        OffheapArena arena = new OffheapArena(1 << 12);
+        TByteSegmentedOffheapArray array = new TByteSegmentedOffheapArray(1000, 6, arena);
+        assertSame(arena, array.allocator());
+        array.put(999, (byte) 9);
+        array.resize(2000);
+        assertEquals(9, array.get(999));
+        arena.close();
+    }
+
+    public void testInvalidSegmentShift() {
+        try {
+            new TLongSegmentedOffheapArray(10, 40, NativeAllocator.INSTANCE);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package gnu.trove.impl.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.THashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongLongInterleavedOffheapHashMap;
+import gnu.trove.map.hash.TLongLongOffheapHashMap;
+import gnu.trove.map.hash.TLongLongPowerOfTwoHashMap;
+import gnu.trove.map.hash.TLongLongRobinHoodHashMap;
+import gnu.trove.map.hash.TLongLongSwissHashMap;
+import gnu.trove.set.hash.THashSet;
+import junit.framework.TestCase;
+
+
+/**
+ * tests randomized hashing, which needs access to the hashes of THash
+ */
+public class THashSeedTest extends TestCase {
+
+    public THashSeedTest( String name ) {
+        super( name );
+    }
+
+
+    public void testSpreadsCollidingInts() {
+        TIntIntHashMap map = new TIntIntHashMap( 1000 );
+        int capacity = map.capacity();
+
+        // multiples of the capacity all start probing at slot 0
+        assertEquals( 1, countFirstSlots( map, capacity ) );
+
+        map.setRandomizedHashing( true );
+        assertTrue( map.isRandomizedHashing() );
+        assertEquals( capacity, map.capacity() );
+        assertTrue( countFirstSlots( map, capacity ) > 500 );
+
+        map.setRandomizedHashing( false );
+        assertFalse( map.isRandomizedHashing() );
+        assertEquals( 1, countFirstSlots( map, capacity ) );
+    }
+
+
+    private static int countFirstSlots( TIntIntHashMap map, int capacity ) {
+        Set<Integer> slots = new HashSet<Integer>();
+        for ( int i = 0; i < 1000; i++ ) {
+            slots.add( map.firstSlot( map.hash( i * capacity ), capacity ) );
+        }
+        return slots.size();
+    }
+
+
+    public void testSpreadsCollidingStrings() {
+        // every string of "Aa" and "BB" of a length has the same hashCode
+        String[] keys = new String[1024];
+        for ( int i = 0; i < keys.length; i++ ) {
+            StringBuilder key = new StringBuilder();
+            for ( int bit = 0; bit < 10; bit++ ) {
+                key.append( ( i >>> bit & 1 ) == 0 ? "Aa" : "BB" );
+            }
+            keys[i] = key.toString();
+            assertEquals( keys[0].hashCode(), keys[i].hashCode() );
+        }
+
+        THashSet<String> set = new THashSet<String>( keys.length );
+        set.setRandomizedHashing( true );
+        Set<Integer> slots = new HashSet<Integer>();
+        for ( String key : keys ) {
+            assertTrue( set.add( key ) );
+            slots.add( set.firstSlot( set.hash( key ) & 0x7fffffff, set.capacity() ) );
+        }
+        assertTrue( slots.size() > keys.length / 2 );
+        for ( String key : keys ) {
+            assertTrue( set.contains( key ) );
+        }
+        assertFalse( set.contains( "AaAa" ) );
+    }
+
+
+    public void testAgainstUnseededMap() {
+        compareWithUnseededMap( new TLongLongHashMap( 4 ), 1 );
+        compareWithUnseededMap( new TLongLongOffheapHashMap( 4 ), 2 );
+        compareWithUnseededMap( new TLongLongInterleavedOffheapHashMap( 4 ), 3 );
+        compareWithUnseededMap( new TLongLongPowerOfTwoHashMap( 4 ), 4 );
+        compareWithUnseededMap( new TLongLongSwissHashMap( 4 ), 5 );
+        compareWithUnseededMap( new TLongLongRobinHoodHashMap( 4 ), 6 );
+
+        TLongLongHashMap incremental = new TLongLongHashMap( 4 );
+        incremental.setIncrementalRehash( 4 );
+        compareWithUnseededMap( incremental, 7 );
+    }
+
+
+    private static void compareWithUnseededMap( TLongLongMap map, long seed ) {
+        Random random = new Random( seed );
+        TLongLongHashMap expected = new TLongLongHashMap();
+        for ( int i = 0; i < 50000; i++ ) {
+            // switch in between, which rehashes the entries
+            if ( i % 10000 == 0 ) {
+                ( ( THash ) map ).setRandomizedHashing( i % 20000 == 0 );
+            }
+            long key = random.nextInt( 3000 ) * 0x100000001L;
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), map.put( key, i ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        assertEquals( expected, map );
+        assertEquals( map, expected );
+        assertEquals( expected.hashCode(), map.hashCode() );
+    }
+
+
+    /**
+     * A TIntIntHashMap of {1=10, 2=20, -3=30}, serialized by a release
+     * before randomized hashing, with version 0 of the THash format.
+     */
+    private static final byte[] VERSION_0_MAP = {
+        -84, -19, 0, 5, 115, 114, 0, 33, 103, 110, 117, 46, 116, 114, 111, 118,
+        101, 46, 109, 97, 112, 46, 104, 97, 115, 104, 46, 84, 73, 110, 116, 73,
+        110, 116, 72, 97, 115, 104, 77, 97, 112, 0, 0, 0, 0, 0, 0, 0,
+        1, 12, 0, 0, 120, 114, 0, 31, 103, 110, 117, 46, 116, 114, 111, 118,
+        101, 46, 105, 109, 112, 108, 46, 104, 97, 115, 104, 46, 84, 73, 110, 116,
+        73, 110, 116, 72, 97, 115, 104, 0, 0, 0, 0, 0, 0, 0, 1, 12,
+        0, 0, 120, 114, 0, 34, 103, 110, 117, 46, 116, 114, 111, 118, 101, 46,
+        105, 109, 112, 108, 46, 104, 97, 115, 104, 46, 84, 80, 114, 105, 109, 105,
+        116, 105, 118, 101, 72, 97, 115, 104, 0, 0, 0, 0, 0, 0, 0, 1,
+        12, 0, 0, 120, 114, 0, 25, 103, 110, 117, 46, 116, 114, 111, 118, 101,
+        46, 105, 109, 112, 108, 46, 104, 97, 115, 104, 46, 84, 72, 97, 115, 104,
+        -25, 30, 42, -35, 62, -27, 55, -55, 12, 0, 0, 120, 112, 119, 47, 0,
+        0, 0, 63, 0, 0, 0, 63, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 3, -1, -1, -1, -3, 0, 0, 0, 30, 0, 0,
+        0, 2, 0, 0, 0, 20, 0, 0, 0, 1, 0, 0, 0, 10, 120
+    };
+
+
+    public void testVersion0Format() throws Exception {
+        TIntIntHashMap map = new TIntIntHashMap();
+        map.put( 1, 10 );
+        map.put( 2, 20 );
+        map.put( -3, 30 );
+
+        // tables without a seed still write what older releases can read
+        assertTrue( Arrays.equals( VERSION_0_MAP, serialize( map ) ) );
+
+        TIntIntHashMap read = ( TIntIntHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( VERSION_0_MAP ) ).readObject();
+        assertFalse( read.isRandomizedHashing() );
+        assertEquals( map, read );
+
+        // only a seeded table writes version 1
+        map.setRandomizedHashing( true );
+        byte[] seeded = serialize( map );
+        assertFalse( Arrays.equals( VERSION_0_MAP, seeded ) );
+        TIntIntHashMap seededCopy = ( TIntIntHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( seeded ) ).readObject();
+        assertTrue( seededCopy.isRandomizedHashing() );
+        assertEquals( map, seededCopy );
+    }
+
+
+    public void testSerialize() throws Exception {
+        TIntIntHashMap map = new TIntIntHashMap();
+        map.setRandomizedHashing( true );
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, -i );
+        }
+        TIntIntHashMap copy = copy( map );
+        assertTrue( copy.isRandomizedHashing() );
+        assertEquals( map, copy );
+
+        THashMap<String, Integer> strings = new THashMap<String, Integer>();
+        strings.setRandomizedHashing( true );
+        for ( int i = 0; i < 100; i++ ) {
+            strings.put( String.valueOf( i ), i );
+        }
+        THashMap<String, Integer> stringsCopy = copy( strings );
+        assertTrue( stringsCopy.isRandomizedHashing() );
+        assertEquals( strings, stringsCopy );
+
+        // tables without a seed write the old format
+        TIntIntHashMap plain = copy( new TIntIntHashMap() );
+        assertFalse( plain.isRandomizedHashing() );
+    }
+
+
+    @SuppressWarnings({"unchecked"})
+    private static <T> T copy( T object ) throws Exception {
+        return ( T ) new ObjectInputStream(
+            new ByteArrayInputStream( serialize( object ) ) ).readObject();
+    }
+
+
+    private static byte[] serialize( Object object ) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( object );
+        out.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package gnu.trove.list.array;
+
+import gnu.trove.array.NativeAllocator;
+import gnu.trove.function.TIntFunction;
+import gnu.trove.procedure.TIntProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveBigOffheapArrayListTest extends TestCase {
+
+    public TPrimitiveBigOffheapArrayListTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAddGetSet() {
+        TIntBigOffheapArrayList list = new TIntBigOffheapArrayList();
+        assertTrue( list.isEmpty() );
+        for ( int i = 0; i < 1000; i++ ) {
+            list.add( i );
+        }
+        assertEquals( 1000, list.size() );
+        assertEquals( 500, list.get( 500 ) );
+        assertEquals( 500, list.set( 500, -1 ) );
+        assertEquals( -1, list.get( 500 ) );
+        assertEquals( 999, list.removeLast() );
+        assertEquals( 999, list.size() );
+        try {
+            list.get( 999 );
+            fail( "Expected ArrayIndexOutOfBoundsException" );
+        }
+        catch ( ArrayIndexOutOfBoundsException ex ) {
+            // Expected
+        }
+        list.free();
+    }
+
+
+    public void testGrowth() {
+        TLongBigOffheapArrayList list = new TLongBigOffheapArrayList( 1, 0, 4, NativeAllocator.INSTANCE );
+        list.add( 1 );
+        list.add( 2 );
+        assertEquals( 2, list.capacity() );
+        list.add( 3 );
+        assertEquals( 4, list.capacity() );
+        for ( int i = 4; i <= 16; i++ ) {
+            list.add( i );
+        }
+        assertEquals( 16, list.capacity() );
+        // beyond one segment, the list grows a segment at a time
+        list.add( 17 );
+        assertEquals( 32, list.capacity() );
+        for ( int i = 18; i <= 33; i++ ) {
+            list.add( i );
+        }
+        assertEquals( 48, list.capacity() );
+        for ( int i = 0; i < 33; i++ ) {
+            assertEquals( i + 1, list.get( i ) );
+        }
+
+        list.add( new long[] { 100, 101, 102 } );
+        assertEquals( 36, list.size() );
+        assertEquals( 102, list.get( 35 ) );
+        list.trimToSize();
+        assertEquals( 36, list.capacity() );
+        list.free();
+    }
+
+
+    public void testForEachAndTransform() {
+        TIntBigOffheapArrayList list = new TIntBigOffheapArrayList();
+        list.add( new int[] { 1, 2, 3 } );
+        list.transformValues( new TIntFunction() {
+            public int execute( int value ) {
+                return value * 10;
+            }
+        } );
+        assertEquals( "{10, 20, 30}", list.toString() );
+        final int[] sum = new int[1];
+        assertTrue( list.forEach( new TIntProcedure() {
+            public boolean execute( int value ) {
+                sum[0] += value;
+                return true;
+            }
+        } ) );
+        assertEquals( 60, sum[0] );
+
+        list.reset();
+        assertEquals( 0, list.size() );
+        assertEquals( "{}", list.toString() );
+        list.clear();
+        list.add( 5 );
+        assertEquals( 5, list.get( 0 ) );
+        list.free();
+    }
+}
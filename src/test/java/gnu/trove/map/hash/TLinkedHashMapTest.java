@@ -0,0 +1,115 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import gnu.trove.procedure.TObjectObjectProcedure;
+import junit.framework.TestCase;
+
+
+public class TLinkedHashMapTest extends TestCase {
+
+    public TLinkedHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testInsertionOrder() {
+        TLinkedHashMap<String, Integer> map = new TLinkedHashMap<String, Integer>();
+        map.put( "c", 1 );
+        map.put( "a", 2 );
+        map.put( "b", 3 );
+        assertNull( map.putIfAbsent( "d", 4 ) );
+        assertEquals( Integer.valueOf( 2 ), map.put( "a", 5 ) );
+
+        assertEquals( Arrays.asList( "c", "a", "b", "d" ), new ArrayList<String>( map.keySet() ) );
+        assertEquals( Arrays.asList( 1, 5, 3, 4 ), new ArrayList<Integer>( map.values() ) );
+        assertEquals( "{c=1, a=5, b=3, d=4}", map.toString() );
+
+        Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+        assertEquals( "c", it.next().getKey() );
+        it.remove();
+        try {
+            it.remove();
+            fail( "Expected IllegalStateException" );
+        } catch ( IllegalStateException expected ) {
+            // expected
+        }
+        it.next().setValue( 6 );
+        assertEquals( "{a=6, b=3, d=4}", map.toString() );
+
+        map.retainEntries( new TObjectObjectProcedure<String, Integer>() {
+            @Override
+            public boolean execute( String key, Integer value ) {
+                return !key.equals( "b" );
+            }
+        } );
+        map.put( "b", 7 );
+        assertEquals( Arrays.asList( "a", "d", "b" ), new ArrayList<String>( map.keySet() ) );
+
+        map.clear();
+        assertTrue( map.isEmpty() );
+        map.put( "e", 8 );
+        assertEquals( "{e=8}", map.toString() );
+    }
+
+
+    public void testAgainstLinkedHashMap() throws Exception {
+        Random random = new Random( 17 );
+        TLinkedHashMap<Integer, Integer> map = new TLinkedHashMap<Integer, Integer>( 4 );
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<Integer, Integer>( 4 );
+        // removals leave REMOVED slots behind, which compaction and growth rehash
+        for ( int i = 0; i < 50000; i++ ) {
+            Integer key = random.nextInt( 1000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), map.put( key, i ) );
+            }
+        }
+        assertEquals( new ArrayList<Map.Entry<Integer, Integer>>( expected.entrySet() ),
+                new ArrayList<Map.Entry<Integer, Integer>>( map.entrySet() ) );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        @SuppressWarnings("unchecked")
+        TLinkedHashMap<Integer, Integer> copy = ( TLinkedHashMap<Integer, Integer> ) new ObjectInputStream(
+                new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( new ArrayList<Integer>( expected.keySet() ), new ArrayList<Integer>( copy.keySet() ) );
+        assertEquals( map, copy );
+    }
+
+
+    public void testAccessOrderEviction() {
+        TLinkedHashMap<String, Integer> lru = new TLinkedHashMap<String, Integer>( 4, 0.5f, true ) {
+            @Override
+            protected boolean removeEldestEntry( String key, Integer value ) {
+                return size() > 3;
+            }
+        };
+        assertTrue( lru.isAccessOrder() );
+        lru.put( "a", 1 );
+        lru.put( "b", 2 );
+        lru.put( "c", 3 );
+        assertEquals( Integer.valueOf( 1 ), lru.get( "a" ) );
+        lru.put( "d", 4 );   // evicts b, the least recently used
+        assertFalse( lru.containsKey( "b" ) );
+        lru.put( "c", 5 );
+        lru.put( "e", 6 );   // evicts a
+
+        List<String> keys = new ArrayList<String>( lru.keySet() );
+        assertEquals( Arrays.asList( "d", "c", "e" ), keys );
+        assertEquals( 3, lru.size() );
+    }
+}
@@ -0,0 +1,129 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.procedure.TIntIntProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveCacheTest extends TestCase {
+
+    public TPrimitiveCacheTest( String name ) {
+        super( name );
+    }
+
+
+    public void testClockEviction() {
+        TIntIntCache cache = new TIntIntCache( 3 );
+        assertEquals( 3, cache.getMaxEntries() );
+        cache.put( 1, 10 );
+        cache.put( 2, 20 );
+        cache.put( 3, 30 );
+        assertEquals( 10, cache.get( 1 ) );
+        assertEquals( 30, cache.put( 3, 31 ) );
+        assertEquals( 0, cache.get( 4 ) );
+
+        // 2 is the only entry that was not used since it was added
+        cache.put( 4, 40 );
+        assertEquals( 3, cache.size() );
+        assertFalse( cache.containsKey( 2 ) );
+        assertTrue( cache.containsKey( 1 ) );
+        assertTrue( cache.containsKey( 3 ) );
+        assertTrue( cache.containsKey( 4 ) );
+
+        assertEquals( 1, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( 1, cache.getEvictionCount() );
+
+        assertEquals( 40, cache.remove( 4 ) );
+        cache.put( 5, 50 );
+        assertEquals( 1, cache.getEvictionCount() );
+        cache.resetStatistics();
+        assertEquals( 0, cache.getHitCount() );
+
+        cache.clear();
+        assertTrue( cache.isEmpty() );
+        assertEquals( "{}", cache.toString() );
+        cache.put( 6, 60 );
+        assertEquals( "{6=60}", cache.toString() );
+    }
+
+
+    public void testSizeAndCapacityStayBounded() throws Exception {
+        TLongObjectCache<String> cache = new TLongObjectCache<String>( 1000 );
+        int capacity = cache.capacity();
+        Random random = new Random( 5 );
+        for ( int i = 0; i < 200000; i++ ) {
+            long key = random.nextInt( 5000 );
+            String value = cache.get( key );
+            if ( value == null ) {
+                cache.put( key, String.valueOf( key ) );
+            } else {
+                assertEquals( String.valueOf( key ), value );
+            }
+            if ( i % 7 == 0 ) {
+                cache.remove( random.nextInt( 5000 ) );
+            }
+            assertTrue( cache.size() <= 1000 );
+        }
+        assertEquals( capacity, cache.capacity() );
+        assertEquals( 200000, cache.getHitCount() + cache.getMissCount() );
+        assertTrue( cache.getEvictionCount() > 0 );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( cache );
+        out.close();
+        @SuppressWarnings("unchecked")
+        TLongObjectCache<String> copy = ( TLongObjectCache<String> ) new ObjectInputStream(
+                new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( 1000, copy.getMaxEntries() );
+        assertEquals( cache.size(), copy.size() );
+        assertEquals( capacity, copy.capacity() );
+        for ( long key = 0; key < 5000; key++ ) {
+            assertEquals( cache.containsKey( key ), copy.containsKey( key ) );
+        }
+    }
+
+
+    public void testEvictionsDoNotRehash() {
+        final TIntIntCache cache = new TIntIntCache( 100 );
+        int[] keys = cache._set;
+        Random random = new Random( 7 );
+        for ( int i = 0; i < 100000; i++ ) {
+            int key = random.nextInt();
+            cache.put( key, key * 10 );
+            if ( i % 3 == 0 ) {
+                cache.get( key );
+            }
+        }
+        assertSame( keys, cache._set );
+        assertEquals( 100, cache.size() );
+
+        final int[] entries = new int[1];
+        cache.forEachEntry( new TIntIntProcedure() {
+            @Override
+            public boolean execute( int key, int value ) {
+                assertEquals( key * 10, value );
+                assertEquals( value, cache.get( key ) );
+                entries[0]++;
+                return true;
+            }
+        } );
+        assertEquals( 100, entries[0] );
+    }
+
+
+    public void testInvalidMaxEntries() {
+        try {
+            new TIntIntCache( 0 );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import gnu.trove.array.OffheapMemory;
+import gnu.trove.function.TIntFunction;
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.map.TIntIntMap;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveExpiringHashMapTest extends TestCase {
+
+    private long now = 1000000;
+
+
+    public TPrimitiveExpiringHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    private TIntIntExpiringHashMap newIntIntMap( long timeToLive ) {
+        return new TIntIntExpiringHashMap( timeToLive ) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+
+    private TLongLongExpiringOffheapHashMap newOffheapMap( long timeToLive ) {
+        return new TLongLongExpiringOffheapHashMap( timeToLive ) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+
+    public void testLazyExpiry() {
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        assertEquals( 1000, map.getTimeToLive() );
+        map.put( 1, 10 );
+        map.put( 2, 20, 5000 );
+        now += 999;
+        assertEquals( 10, map.get( 1 ) );
+        assertEquals( 1, map.getTimeToLive( 1 ) );
+        assertEquals( 4001, map.getTimeToLive( 2 ) );
+
+        now += 1;
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( -1, map.getTimeToLive( 1 ) );
+        assertEquals( 1, map.size() );
+        assertEquals( 0, map.get( 1 ) );
+        assertEquals( "{2=20}", map.toString() );
+
+        // putting an expired key again does not return its old value
+        map.put( 3, 30 );
+        now += 1000;
+        assertEquals( 0, map.put( 3, 31 ) );
+        assertEquals( 31, map.get( 3 ) );
+        assertEquals( 20, map.remove( 2 ) );
+        now += 1000;
+        assertEquals( 0, map.remove( 3 ) );
+        assertTrue( map.isEmpty() );
+
+        try {
+            map.put( 4, 40, 0 );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+    }
+
+
+    public void testExpiredEntriesStayExpiredAfterLongIdle() {
+        // more than 2^31 ms after the expiry, where 32 bit times wrap
+        long idle = ( 1L << 31 ) + 5000;
+
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        map.put( 1, 5 );
+        now += idle;
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( -1, map.getTimeToLive( 1 ) );
+        map.compact();
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( 0, map.get( 1 ) );
+        assertEquals( "{}", map.toString() );
+
+        TLongLongExpiringOffheapHashMap offheap = newOffheapMap( 1000 );
+        try {
+            offheap.put( 1, 5 );
+            now += idle;
+            assertFalse( offheap.containsKey( 1 ) );
+            assertEquals( -1, offheap.getTimeToLive( 1 ) );
+            offheap.compact();
+            assertFalse( offheap.containsKey( 1 ) );
+            assertEquals( 0, offheap.get( 1 ) );
+            assertEquals( "{}", offheap.toString() );
+        } finally {
+            offheap.free();
+        }
+    }
+
+
+    public void testExpiryTimesAcrossBases() {
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        TLongLongExpiringOffheapHashMap offheap = newOffheapMap( 1000 );
+        try {
+            map.put( 1, 1, Integer.MAX_VALUE );
+            offheap.put( 1, 1, Integer.MAX_VALUE );
+            now += ( 1L << 31 ) - 100;
+            map.put( 2, 2, Integer.MAX_VALUE );
+            offheap.put( 2, 2, Integer.MAX_VALUE );
+
+            // the expiry times of a put now would not fit 32 bits after the old base
+            now += 200;
+            map.put( 3, 3 );
+            offheap.put( 3, 3 );
+            assertFalse( map.containsKey( 1 ) );
+            assertEquals( Integer.MAX_VALUE - 200, map.getTimeToLive( 2 ) );
+            assertEquals( 1000, map.getTimeToLive( 3 ) );
+            assertFalse( offheap.containsKey( 1 ) );
+            assertEquals( Integer.MAX_VALUE - 200, offheap.getTimeToLive( 2 ) );
+            assertEquals( 1000, offheap.getTimeToLive( 3 ) );
+
+            now += Integer.MAX_VALUE - 201;
+            assertEquals( 1, map.getTimeToLive( 2 ) );
+            assertEquals( 1, map.size() );
+            assertEquals( 1, offheap.getTimeToLive( 2 ) );
+            assertEquals( 1, offheap.size() );
+        } finally {
+            offheap.free();
+        }
+    }
+
+
+    public void testMapOfLiveEntries() {
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        for ( int i = 0; i < 10; i++ ) {
+            map.put( i, i * 10, i < 5 ? 100 : 1000 );
+        }
+        now += 100;
+        assertFalse( map.containsValue( 10 ) );
+        assertTrue( map.containsValue( 50 ) );
+        assertFalse( map.increment( 1 ) );
+        assertTrue( map.adjustValue( 5, 1 ) );
+        assertEquals( 0, map.putIfAbsent( 2, 22 ) );
+        assertEquals( 22, map.putIfAbsent( 2, 23 ) );
+
+        assertEquals( 6, map.size() );
+        int[] keys = map.keys();
+        Arrays.sort( keys );
+        assertTrue( Arrays.equals( new int[] { 2, 5, 6, 7, 8, 9 }, keys ) );
+        assertEquals( 6, map.values( new int[ 2 ] ).length );
+        TIntIntHashMap copy = new TIntIntHashMap();
+        copy.putAll( map );
+        assertEquals( copy, map );
+        assertEquals( map, copy );
+        assertEquals( copy.hashCode(), map.hashCode() );
+        assertEquals( copy.keySet(), map.keySet() );
+        assertTrue( map.valueCollection().contains( 51 ) );
+
+        // the iterator returns the entries live when it was created
+        TIntIntIterator iter = map.iterator();
+        now += 900;
+        int count = 0;
+        while ( iter.hasNext() ) {
+            iter.advance();
+            if ( iter.key() == 9 ) {
+                iter.remove();
+            }
+            count++;
+        }
+        assertEquals( 6, count );
+        assertFalse( map.containsKey( 5 ) );
+        assertEquals( "{2=22}", map.toString() );
+        assertEquals( 1, map.keySet().size() );
+        assertTrue( map.keySet().retainAll( new int[ 0 ] ) );
+        assertTrue( map.isEmpty() );
+
+        TIntIntMap asMap = newIntIntMap( 1000 );
+        asMap.put( 1, 2 );
+        asMap.transformValues( new TIntFunction() {
+            @Override
+            public int execute( int value ) {
+                return value * 2;
+            }
+        } );
+        assertEquals( 4, asMap.get( 1 ) );
+        now += 1000;
+        assertEquals( 0, asMap.size() );
+        assertFalse( asMap.iterator().hasNext() );
+    }
+
+
+    public void testAdjustOrPutValueKeepsExpiry() {
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        assertEquals( 1, map.adjustOrPutValue( 7, 1, 1 ) );
+        now += 600;
+        assertEquals( 2, map.adjustOrPutValue( 7, 1, 1 ) );
+        assertEquals( 400, map.getTimeToLive( 7 ) );
+
+        // the window is over, the count starts again
+        now += 400;
+        assertEquals( 1, map.adjustOrPutValue( 7, 1, 1 ) );
+        assertEquals( 1000, map.getTimeToLive( 7 ) );
+    }
+
+
+    public void testIncrementalCleanup() {
+        TIntIntExpiringHashMap map = newIntIntMap( 1000 );
+        for ( int i = 0; i < 10000; i++ ) {
+            map.put( i, i, i % 2 == 0 ? 1000 : 100000 );
+        }
+        now += 2000;
+
+        // each operation sweeps a few slots only
+        map.get( -1 );
+        map.setCleanupSteps( 100 );
+        map.put( -1, -1 );
+        assertTrue( map.expireEntries() >= 5000 - 100 - TIntIntExpiringHashMap.DEFAULT_CLEANUP_STEPS );
+        assertEquals( 5001, map.size() );
+        for ( int i = 0; i < 10000; i++ ) {
+            assertEquals( i % 2 != 0, map.containsKey( i ) );
+        }
+
+        // after a long pause a sweep still looks at each bucket once
+        now += 1000000;
+        assertEquals( 5001, map.expireEntries() );
+        assertTrue( map.isEmpty() );
+        assertEquals( 0, map.expireEntries() );
+    }
+
+
+    public void testChurnAgainstExpectedExpiry() {
+        TIntIntExpiringHashMap map = newIntIntMap( 500 );
+        // compactions rehash the map in the middle of sweeps
+        map.setAutoCompactionFactor( 0.5f );
+        long[] expiries = new long[2000];
+        Random random = new Random( 11 );
+        for ( int i = 0; i < 100000; i++ ) {
+            now += random.nextInt( 3 );
+            int key = random.nextInt( expiries.length );
+            switch ( random.nextInt( 4 ) ) {
+                case 0:
+                    map.remove( key );
+                    expiries[key] = 0;
+                    break;
+                case 1:
+                    int ttl = 1 + random.nextInt( 2000 );
+                    map.put( key, key, ttl );
+                    expiries[key] = now + ttl;
+                    break;
+                default:
+                    boolean live = expiries[key] > now;
+                    assertEquals( live ? key : 0, map.get( key ) );
+            }
+            assertTrue( map.size() <= expiries.length );
+        }
+        map.expireEntries();
+        int live = 0;
+        for ( int key = 0; key < expiries.length; key++ ) {
+            if ( expiries[key] > now ) {
+                live++;
+                assertTrue( map.containsKey( key ) );
+            }
+        }
+        assertEquals( live, map.size() );
+    }
+
+
+    public void testSerialization() throws Exception {
+        TLongIntExpiringHashMap map = new TLongIntExpiringHashMap( 60000 );
+        map.setCleanupSteps( 3 );
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, i * 2 );
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TLongIntExpiringHashMap copy = ( TLongIntExpiringHashMap ) new ObjectInputStream(
+                new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( 60000, copy.getTimeToLive() );
+        assertEquals( 3, copy.getCleanupSteps() );
+        assertEquals( 100, copy.size() );
+        for ( int i = 0; i < 100; i++ ) {
+            assertEquals( i * 2, copy.get( i ) );
+            assertTrue( copy.getTimeToLive( i ) <= 60000 );
+        }
+    }
+
+
+    public void testOffheap() throws Exception {
+        long before = OffheapMemory.getUsage().getBytesInUse();
+        TLongLongExpiringOffheapHashMap map = newOffheapMap( 1000 );
+        try {
+            for ( int i = 0; i < 10000; i++ ) {
+                map.put( i, i + 1, i % 2 == 0 ? 1000 : 100000 );
+            }
+            now += 999;
+            assertEquals( 1, map.get( 0 ) );
+            now += 1;
+            assertEquals( 0, map.get( 0 ) );
+            assertEquals( 2, map.get( 1 ) );
+            assertEquals( 2, map.adjustOrPutValue( 1, 0, 5 ) );
+
+            // the sweep waits for the tick of the expiry to be over
+            now += 1000 / TLongLongExpiringOffheapHashMap.WHEEL_SIZE;
+            map.expireEntries();
+            assertEquals( 5000, map.size() );
+            for ( int i = 0; i < 10000; i++ ) {
+                assertEquals( i % 2 != 0, map.containsKey( i ) );
+            }
+
+            // shrinking copies the table, and links the buckets again
+            map.compact();
+            now += 1000000;
+            assertEquals( 5000, map.expireEntries() );
+            assertTrue( map.isEmpty() );
+        } finally {
+            map.free();
+        }
+
+        TLongLongExpiringOffheapHashMap real = new TLongLongExpiringOffheapHashMap( 60000 );
+        try {
+            real.put( 5, 6 );
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream( bytes );
+            out.writeObject( real );
+            out.close();
+            TLongLongExpiringOffheapHashMap copy = ( TLongLongExpiringOffheapHashMap )
+                    new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+            try {
+                assertEquals( 60000, copy.getTimeToLive() );
+                assertEquals( 6, copy.get( 5 ) );
+            } finally {
+                copy.free();
+            }
+        } finally {
+            real.free();
+        }
+        assertEquals( before, OffheapMemory.getUsage().getBytesInUse() );
+    }
+}
@@ -0,0 +1,161 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.array.OffheapMemory;
+import gnu.trove.impl.hash.TPrimitiveOffheapHash;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveOffheapCacheTest extends TestCase {
+
+    public TPrimitiveOffheapCacheTest( String name ) {
+        super( name );
+    }
+
+
+    @Override
+    public void tearDown() throws Exception {
+        OffheapMemory.setLimit( 0 );
+        super.tearDown();
+    }
+
+
+    public void testClockEviction() {
+        TIntIntOffheapCache cache = new TIntIntOffheapCache( 3 );
+        try {
+            cache.put( 1, 10 );
+            cache.put( 2, 20 );
+            cache.put( 3, 30 );
+            assertEquals( 10, cache.get( 1 ) );
+            assertEquals( 30, cache.put( 3, 31 ) );
+            assertEquals( 0, cache.get( 4 ) );
+
+            // 2 is the only entry that was not used since it was added
+            cache.put( 4, 40 );
+            assertEquals( 3, cache.size() );
+            assertFalse( cache.containsKey( 2 ) );
+            assertTrue( cache.containsKey( 1 ) );
+            assertTrue( cache.containsKey( 3 ) );
+            assertTrue( cache.containsKey( 4 ) );
+
+            assertEquals( 1, cache.getHitCount() );
+            assertEquals( 1, cache.getMissCount() );
+            assertEquals( 1, cache.getEvictionCount() );
+
+            assertEquals( 40, cache.remove( 4 ) );
+            cache.put( 5, 50 );
+            assertEquals( 1, cache.getEvictionCount() );
+
+            cache.clear();
+            assertTrue( cache.isEmpty() );
+            cache.put( 6, 60 );
+            assertEquals( "{6=60}", cache.toString() );
+        } finally {
+            cache.free();
+        }
+    }
+
+
+    public void testNativeMemoryStaysFixed() throws Exception {
+        long before = OffheapMemory.getUsage().getBytesInUse();
+        TLongLongOffheapCache cache = new TLongLongOffheapCache( 1000 );
+        try {
+            assertEquals( before + cache.getNativeBytes(),
+                    OffheapMemory.getUsage().getBytesInUse() );
+            int capacity = cache.capacity();
+
+            // any allocation past the arrays of the cache fails
+            OffheapMemory.setLimit( OffheapMemory.getUsage().getBytesInUse() );
+            Random random = new Random( 5 );
+            for ( int i = 0; i < 200000; i++ ) {
+                long key = random.nextInt( 5000 );
+                long value = cache.get( key );
+                if ( value == 0 ) {
+                    cache.put( key, key + 1 );
+                } else {
+                    assertEquals( key + 1, value );
+                }
+                if ( i % 7 == 0 ) {
+                    cache.remove( random.nextInt( 5000 ) );
+                }
+                assertTrue( cache.size() <= 1000 );
+            }
+            OffheapMemory.setLimit( 0 );
+            assertEquals( capacity, cache.capacity() );
+            assertEquals( 200000, cache.getHitCount() + cache.getMissCount() );
+            assertTrue( cache.getEvictionCount() > 0 );
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream( bytes );
+            out.writeObject( cache );
+            out.close();
+            TLongLongOffheapCache copy = ( TLongLongOffheapCache ) new ObjectInputStream(
+                    new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+            try {
+                assertEquals( 1000, copy.getMaxEntries() );
+                assertEquals( cache.size(), copy.size() );
+                assertEquals( capacity, copy.capacity() );
+                for ( long key = 0; key < 5000; key++ ) {
+                    assertEquals( cache.containsKey( key ), copy.containsKey( key ) );
+                }
+            } finally {
+                copy.free();
+            }
+        } finally {
+            cache.free();
+        }
+        assertEquals( before, OffheapMemory.getUsage().getBytesInUse() );
+    }
+
+
+    public void testRemovesLeaveNoRemovedSlots() {
+        TLongLongHashMap expected = new TLongLongHashMap();
+        TLongLongOffheapCache cache = new TLongLongOffheapCache( 1000, 0.9f );
+        try {
+            Random random = new Random( 9 );
+            for ( int i = 0; i < 100000; i++ ) {
+                // fewer keys than the cache holds, so that nothing is evicted
+                long key = random.nextInt( 1000 );
+                if ( random.nextBoolean() ) {
+                    assertEquals( expected.put( key, i ), cache.put( key, i ) );
+                } else {
+                    assertEquals( expected.remove( key ), cache.remove( key ) );
+                }
+                assertEquals( expected.size(), cache.size() );
+            }
+            // rehashes the table in place
+            cache.setRandomizedHashing( true );
+            for ( long key = 0; key < 1000; key++ ) {
+                assertEquals( expected.get( key ), cache.get( key ) );
+            }
+            assertEquals( 0, cache.getEvictionCount() );
+
+            for ( int i = 0; i < 100000; i++ ) {
+                long key = random.nextLong();
+                cache.put( key, key + 1 );
+                assertEquals( key + 1, cache.get( key ) );
+            }
+            assertEquals( 1000, cache.size() );
+            for ( int i = 0; i < cache.capacity(); i++ ) {
+                assertTrue( cache._states.get( i ) != TPrimitiveOffheapHash.REMOVED );
+            }
+        } finally {
+            cache.free();
+        }
+    }
+
+
+    public void testInvalidMaxEntries() {
+        try {
+            new TIntIntOffheapCache( 0 );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package gnu.trove.map.hash;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import gnu.trove.array.NativeAllocator;
+import gnu.trove.function.TLongFunction;
+import gnu.trove.procedure.TIntProcedure;
+import gnu.trove.procedure.TLongLongProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveBigOffheapHashMapTest extends TestCase {
+
+    public TPrimitivePrimitiveBigOffheapHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testPutGetRemove() {
+        TIntIntBigOffheapHashMap map = new TIntIntBigOffheapHashMap();
+        assertTrue( map.isEmpty() );
+        assertEquals( 0, map.put( 1, 10 ) );
+        assertEquals( 0, map.put( 2, 20 ) );
+        assertEquals( 10, map.put( 1, 11 ) );
+        assertEquals( 2, map.size() );
+        assertEquals( 11, map.get( 1 ) );
+        assertEquals( 20, map.get( 2 ) );
+        assertEquals( 0, map.get( 3 ) );
+        assertTrue( map.containsKey( 2 ) );
+        assertFalse( map.containsKey( 3 ) );
+
+        assertEquals( 20, map.putIfAbsent( 2, 21 ) );
+        assertEquals( 0, map.putIfAbsent( 3, 30 ) );
+        assertEquals( 30, map.get( 3 ) );
+
+        assertEquals( 11, map.remove( 1 ) );
+        assertEquals( 0, map.remove( 1 ) );
+        assertEquals( 2, map.size() );
+        assertFalse( map.containsKey( 1 ) );
+        map.free();
+    }
+
+
+    public void testNoEntryValues() {
+        TLongDoubleBigOffheapHashMap map = new TLongDoubleBigOffheapHashMap( 10, 0.5f, -1L, Double.NaN,
+            4, NativeAllocator.INSTANCE );
+        assertEquals( -1L, map.getNoEntryKey() );
+        assertTrue( Double.isNaN( map.get( 5 ) ) );
+        assertTrue( Double.isNaN( map.put( 5, 1.5 ) ) );
+        assertEquals( 1.5, map.remove( 5 ) );
+        assertTrue( Double.isNaN( map.remove( 5 ) ) );
+        map.free();
+    }
+
+
+    public void testAdjustValue() {
+        TIntLongBigOffheapHashMap map = new TIntLongBigOffheapHashMap();
+        assertFalse( map.adjustValue( 1, 5 ) );
+        assertEquals( 7, map.adjustOrPutValue( 1, 5, 7 ) );
+        assertEquals( 12, map.adjustOrPutValue( 1, 5, 7 ) );
+        assertTrue( map.adjustValue( 1, 3 ) );
+        assertEquals( 15, map.get( 1 ) );
+        map.free();
+    }
+
+
+    public void testGrowAcrossSegments() {
+        TLongLongBigOffheapHashMap map = new TLongLongBigOffheapHashMap( 4, 0.75f, 0, 0,
+            3, NativeAllocator.INSTANCE );
+        long initial = map.capacity();
+        for ( long i = 0; i < 10000; i++ ) {
+            map.put( i * 7919, i );
+        }
+        assertEquals( 10000, map.size() );
+        assertTrue( map.capacity() > initial );
+        assertEquals( 0, map.capacity() & ( map.capacity() - 1 ) );
+        for ( long i = 0; i < 10000; i++ ) {
+            assertEquals( i, map.get( i * 7919 ) );
+        }
+        map.free();
+    }
+
+
+    public void testEnsureCapacity() {
+        TIntIntBigOffheapHashMap map = new TIntIntBigOffheapHashMap();
+        map.put( 42, 1 );
+        map.ensureCapacity( 1000 );
+        long capacity = map.capacity();
+        assertTrue( capacity * 0.5f >= 1001 );
+        for ( int i = 0; i < 1000; i++ ) {
+            map.put( i + 100, i );
+        }
+        assertEquals( capacity, map.capacity() );
+        assertEquals( 1, map.get( 42 ) );
+        map.free();
+    }
+
+
+    public void testRandomAgainstHashMap() {
+        Random random = new Random( 1234 );
+        TLongLongBigOffheapHashMap map = new TLongLongBigOffheapHashMap( 16, 0.9f, 0, 0,
+            5, NativeAllocator.INSTANCE );
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        for ( int i = 0; i < 50000; i++ ) {
+            // a small key range gives long probe runs and many removals within them
+            long key = random.nextInt( 2000 );
+            if ( random.nextBoolean() ) {
+                Long previous = expected.put( key, ( long ) i );
+                assertEquals( previous == null ? 0 : previous.longValue(), map.put( key, i ) );
+            }
+            else {
+                Long previous = expected.remove( key );
+                assertEquals( previous == null ? 0 : previous.longValue(), map.remove( key ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        for ( long key = 0; key < 2000; key++ ) {
+            assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+        }
+        map.free();
+    }
+
+
+    public void testForEach() {
+        TLongLongBigOffheapHashMap map = new TLongLongBigOffheapHashMap();
+        for ( long i = 1; i <= 100; i++ ) {
+            map.put( i, i * i );
+        }
+        final long[] sums = new long[2];
+        assertTrue( map.forEachEntry( new TLongLongProcedure() {
+            public boolean execute( long key, long value ) {
+                assertEquals( key * key, value );
+                sums[0] += key;
+                sums[1]++;
+                return true;
+            }
+        } ) );
+        assertEquals( 5050, sums[0] );
+        assertEquals( 100, sums[1] );
+
+        map.transformValues( new TLongFunction() {
+            public long execute( long value ) {
+                return -value;
+            }
+        } );
+        assertEquals( -49, map.get( 7 ) );
+
+        TIntIntBigOffheapHashMap small = new TIntIntBigOffheapHashMap();
+        small.put( 1, 2 );
+        small.put( 3, 4 );
+        final int[] count = new int[1];
+        assertFalse( small.forEachKey( new TIntProcedure() {
+            public boolean execute( int key ) {
+                count[0]++;
+                return false;
+            }
+        } ) );
+        assertEquals( 1, count[0] );
+        small.free();
+        map.free();
+    }
+
+
+    public void testClear() {
+        TIntIntBigOffheapHashMap map = new TIntIntBigOffheapHashMap();
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, i );
+        }
+        long capacity = map.capacity();
+        map.clear();
+        assertEquals( 0, map.size() );
+        assertEquals( capacity, map.capacity() );
+        assertFalse( map.containsKey( 5 ) );
+        map.put( 5, 6 );
+        assertEquals( 6, map.get( 5 ) );
+        assertEquals( "{5=6}", map.toString() );
+        map.free();
+    }
+}
@@ -0,0 +1,240 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.set.TLongSet;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveConcurrentHashMapTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+
+    public TPrimitivePrimitiveConcurrentHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAgainstHashMap() {
+        Random random = new Random( 1 );
+        TIntIntHashMap expected = new TIntIntHashMap();
+        TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap( 4, 4 );
+        for ( int i = 0; i < 100000; i++ ) {
+            int key = random.nextInt( 3000 );
+            switch ( random.nextInt( 4 ) ) {
+                case 0:
+                    assertEquals( expected.remove( key ), map.remove( key ) );
+                    break;
+                case 1:
+                    assertEquals( expected.putIfAbsent( key, i ), map.putIfAbsent( key, i ) );
+                    break;
+                case 2:
+                    assertEquals( expected.adjustOrPutValue( key, 1, i ),
+                        map.adjustOrPutValue( key, 1, i ) );
+                    break;
+                default:
+                    assertEquals( expected.put( key, i ), map.put( key, i ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        assertEquals( expected, map );
+        assertEquals( map, expected );
+        assertEquals( expected.hashCode(), map.hashCode() );
+        assertEquals( expected.keySet(), map.keySet() );
+        assertEquals( expected.size(), map.keys().length );
+        assertEquals( expected.size(), map.values().length );
+    }
+
+
+    public void testIteratorAndViews() {
+        TLongLongConcurrentHashMap map = new TLongLongConcurrentHashMap();
+        for ( long i = 0; i < 1000; i++ ) {
+            map.put( i, i * 2 );
+        }
+
+        TLongSet keys = map.keySet();
+        assertEquals( 1000, keys.size() );
+        assertTrue( keys.contains( 999 ) );
+        assertTrue( keys.remove( 999 ) );
+        assertFalse( keys.remove( 999 ) );
+        assertFalse( map.containsKey( 999 ) );
+
+        for ( TLongIterator iter = keys.iterator(); iter.hasNext(); ) {
+            if ( iter.next() % 2 == 1 ) {
+                iter.remove();
+            }
+        }
+        assertEquals( 500, map.size() );
+        assertTrue( map.valueCollection().remove( 4 ) );
+        assertFalse( map.containsKey( 2 ) );
+        assertFalse( map.remove( 4, 7 ) );
+        assertTrue( map.remove( 4, 8 ) );
+        assertEquals( 498, map.size() );
+    }
+
+
+    public void testConcurrentAdjust() throws Exception {
+        final TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap();
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                for ( int i = 0; i < 100000; i++ ) {
+                    map.adjustOrPutValue( i % 1000, 1, 1 );
+                }
+            }
+        } );
+        assertEquals( 1000, map.size() );
+        for ( int i = 0; i < 1000; i++ ) {
+            assertEquals( 100 * THREADS, map.get( i ) );
+        }
+    }
+
+
+    public void testConcurrentPutIfAbsent() throws Exception {
+        final TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap();
+        final AtomicInteger winners = new AtomicInteger();
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                for ( int i = 0; i < 10000; i++ ) {
+                    if ( map.putIfAbsent( i, thread + 1 ) == 0 ) {
+                        winners.incrementAndGet();
+                    }
+                }
+            }
+        } );
+        assertEquals( 10000, winners.get() );
+        assertEquals( 10000, map.size() );
+    }
+
+
+    public void testIterateWhileModifying() throws Exception {
+        final TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap();
+        for ( int i = 0; i < 1000; i++ ) {
+            map.put( i, i );
+        }
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                if ( thread % 2 == 0 ) {
+                    for ( int i = 0; i < 100000; i++ ) {
+                        // keys below 1000 are never removed
+                        int key = 1000 + i % 5000;
+                        if ( i % 3 == 0 ) {
+                            map.remove( key );
+                        } else {
+                            map.put( key, key );
+                        }
+                    }
+                } else {
+                    for ( int round = 0; round < 20; round++ ) {
+                        int stable = 0;
+                        for ( TIntIntIterator iter = map.iterator(); iter.hasNext(); ) {
+                            iter.advance();
+                            assertEquals( iter.key(), iter.value() );
+                            if ( iter.key() < 1000 ) {
+                                stable++;
+                            }
+                        }
+                        assertEquals( 1000, stable );
+                    }
+                }
+            }
+        } );
+    }
+
+
+    public void testLookupsWhileGrowing() throws Exception {
+        // a single segment, so that readers share the lock of the writer,
+        // whose map rehashes while they read
+        final TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap( 4, 1 );
+        for ( int i = 0; i < 1000; i++ ) {
+            map.put( i, -i );
+        }
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                if ( thread == 0 ) {
+                    for ( int i = 1000; i < 200000; i++ ) {
+                        map.put( i, -i );
+                        if ( i % 2 == 1 ) {
+                            map.remove( i - 1 );
+                        }
+                    }
+                } else {
+                    Random random = new Random( thread );
+                    for ( int i = 0; i < 200000; i++ ) {
+                        int key = random.nextInt( 1000 );
+                        assertTrue( map.containsKey( key ) );
+                        assertEquals( -key, map.get( key ) );
+                        int other = 1000 + random.nextInt( 199000 );
+                        int value = map.get( other );
+                        assertTrue( value == 0 || value == -other );
+                    }
+                }
+            }
+        } );
+        assertEquals( 1000 + 99500, map.size() );
+    }
+
+
+    public void testSerialize() throws Exception {
+        TIntIntConcurrentHashMap map = new TIntIntConcurrentHashMap( 10, 0.5f, 4, -1, -2 );
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, -i );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntIntConcurrentHashMap copy = ( TIntIntConcurrentHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertEquals( -1, copy.getNoEntryKey() );
+        assertEquals( -2, copy.get( 1000 ) );
+    }
+
+
+    private interface Task {
+        void run( int thread );
+    }
+
+
+    private static void runThreads( final Task task ) throws Exception {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for ( int t = 0; t < THREADS; t++ ) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run( thread );
+                    } catch ( Throwable e ) {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+    }
+}
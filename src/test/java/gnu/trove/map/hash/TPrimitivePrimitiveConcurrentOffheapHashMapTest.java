@@ -0,0 +1,172 @@
+package gnu.trove.map.hash;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import gnu.trove.procedure.TLongLongProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveConcurrentOffheapHashMapTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+
+    public TPrimitivePrimitiveConcurrentOffheapHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAgainstHashMap() {
+        Random random = new Random( 1 );
+        final TLongLongHashMap expected = new TLongLongHashMap();
+        TLongLongConcurrentOffheapHashMap map = new TLongLongConcurrentOffheapHashMap( 3000 );
+        try {
+            for ( int i = 0; i < 100000; i++ ) {
+                long key = random.nextInt( 3000 ) * 0x100000001L;
+                switch ( random.nextInt( 4 ) ) {
+                    case 0:
+                        assertEquals( expected.putIfAbsent( key, i ), map.putIfAbsent( key, i ) );
+                        break;
+                    case 1:
+                        assertEquals( expected.adjustOrPutValue( key, 3, i ),
+                            map.adjustOrPutValue( key, 3, i ) );
+                        break;
+                    case 2:
+                        assertEquals( expected.adjustValue( key, 5 ), map.adjustValue( key, 5 ) );
+                        break;
+                    default:
+                        assertEquals( expected.put( key, i ), map.put( key, i ) );
+                }
+                assertEquals( expected.size(), map.size() );
+                assertEquals( expected.get( key ), map.get( key ) );
+            }
+
+            final int[] entries = new int[1];
+            map.forEachEntry( new TLongLongProcedure() {
+                @Override
+                public boolean execute( long key, long value ) {
+                    assertEquals( expected.get( key ), value );
+                    entries[0]++;
+                    return true;
+                }
+            } );
+            assertEquals( expected.size(), entries[0] );
+        } finally {
+            map.free();
+        }
+    }
+
+
+    public void testFull() {
+        TIntIntConcurrentOffheapHashMap map = new TIntIntConcurrentOffheapHashMap( 4, 1f );
+        assertEquals( 4, map.capacity() );
+        for ( int i = 0; i < 4; i++ ) {
+            map.put( i, i );
+        }
+        // existing keys can still be updated
+        assertEquals( 3, map.put( 3, 4 ) );
+        assertEquals( 5, map.addAndGet( 3, 1 ) );
+        try {
+            map.put( 4, 4 );
+            fail( "Expected IllegalStateException" );
+        } catch ( IllegalStateException expected ) {
+            // expected
+        }
+        assertEquals( 0, map.get( 4 ) );
+        assertFalse( map.containsKey( 4 ) );
+        map.free();
+    }
+
+
+    public void testLookupsDoNotWaitForClaimedSlots() {
+        TIntIntConcurrentOffheapHashMap map = new TIntIntConcurrentOffheapHashMap( 4 );
+        map.put( 1, 10 );
+        long slot = map.index( 1 );
+        // as if another thread was still writing the key of the slot
+        map._states.putVolatile( slot, (byte) 2 );
+        assertEquals( 0, map.get( 1 ) );
+        assertFalse( map.containsKey( 1 ) );
+
+        map._states.putVolatile( slot, (byte) 1 );
+        assertEquals( 10, map.get( 1 ) );
+        assertTrue( map.containsKey( 1 ) );
+        map.free();
+    }
+
+
+    public void testConcurrentCounters() throws Exception {
+        final TLongLongConcurrentOffheapHashMap map = new TLongLongConcurrentOffheapHashMap( 1000 );
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                for ( int i = 0; i < 100000; i++ ) {
+                    map.addAndGet( i % 1000, 1 );
+                }
+            }
+        } );
+        assertEquals( 1000, map.size() );
+        for ( long i = 0; i < 1000; i++ ) {
+            assertEquals( 100 * THREADS, map.get( i ) );
+        }
+        map.free();
+    }
+
+
+    public void testConcurrentPutIfAbsent() throws Exception {
+        final TIntIntConcurrentOffheapHashMap map = new TIntIntConcurrentOffheapHashMap( 10000 );
+        final AtomicInteger winners = new AtomicInteger();
+        runThreads( new Task() {
+            @Override
+            public void run( int thread ) {
+                for ( int i = 0; i < 10000; i++ ) {
+                    int previous = map.putIfAbsent( i, thread + 1 );
+                    if ( previous == 0 ) {
+                        winners.incrementAndGet();
+                    } else {
+                        assertTrue( previous >= 1 && previous <= THREADS );
+                    }
+                }
+            }
+        } );
+        assertEquals( 10000, winners.get() );
+        assertEquals( 10000, map.size() );
+        map.free();
+    }
+
+
+    private interface Task {
+        void run( int thread );
+    }
+
+
+    private static void runThreads( final Task task ) throws Exception {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for ( int t = 0; t < THREADS; t++ ) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run( thread );
+                    } catch ( Throwable e ) {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.iterator.TLongLongIterator;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveIncrementalRehashTest extends TestCase {
+
+    public TPrimitivePrimitiveIncrementalRehashTest( String name ) {
+        super( name );
+    }
+
+
+    public void testSetIncrementalRehash() {
+        TIntIntHashMap map = new TIntIntHashMap();
+        assertEquals( 0, map.getIncrementalRehash() );
+        map.setIncrementalRehash( 8 );
+        assertEquals( 8, map.getIncrementalRehash() );
+        try {
+            map.setIncrementalRehash( -1 );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException expected ) {
+        }
+    }
+
+
+    public void testGrowKeepsOldEntries() {
+        TIntIntHashMap map = new TIntIntHashMap( 100 );
+        map.setIncrementalRehash( 4 );
+        int capacity = map.capacity();
+        int i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i, i * 10 );
+            i++;
+        }
+        assertTrue( map.capacity() > capacity );
+        // every key is found whether or not it has been moved yet
+        for ( int j = 0; j < i; j++ ) {
+            assertEquals( j * 10, map.get( j ) );
+        }
+        assertEquals( i, map.size() );
+        while ( map.isRehashing() ) {
+            map.get( -1 );
+        }
+        for ( int j = 0; j < i; j++ ) {
+            assertEquals( j * 10, map.get( j ) );
+        }
+    }
+
+
+    public void testRemoveDuringRehash() {
+        TIntIntHashMap map = new TIntIntHashMap( 100 );
+        map.setIncrementalRehash( 1 );
+        int i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i++, 1 );
+        }
+        int size = i;
+        for ( int j = 0; j < size; j += 2 ) {
+            assertEquals( 1, map.remove( j ) );
+        }
+        assertEquals( size / 2, map.size() );
+        for ( int j = 0; j < size; j++ ) {
+            assertEquals( ( j & 1 ) == 1, map.containsKey( j ) );
+        }
+    }
+
+
+    public void testBulkOperationsFinishRehash() {
+        TIntIntHashMap map = new TIntIntHashMap( 100 );
+        map.setIncrementalRehash( 1 );
+        int i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i++, i );
+        }
+        assertEquals( i, map.keys().length );
+        assertFalse( map.isRehashing() );
+
+        TIntIntHashMap copy = new TIntIntHashMap( map );
+        while ( ! map.isRehashing() ) {
+            map.put( i++, i );
+        }
+        copy.putAll( map );
+        assertEquals( map, copy );
+        assertFalse( map.isRehashing() );
+    }
+
+
+    public void testRandomAgainstBlockingRehash() {
+        Random random = new Random( 42 );
+        TLongLongHashMap heap = new TLongLongHashMap( 4 );
+        TLongLongOffheapHashMap offheap = new TLongLongOffheapHashMap( 4 );
+        TLongLongHashMap expected = new TLongLongHashMap( 4 );
+        heap.setIncrementalRehash( 4 );
+        offheap.setIncrementalRehash( 4 );
+        for ( int i = 0; i < 200000; i++ ) {
+            long key = random.nextInt( 20000 );
+            long expectedValue;
+            switch ( random.nextInt( 4 ) ) {
+                case 0:
+                    expectedValue = expected.remove( key );
+                    assertEquals( expectedValue, heap.remove( key ) );
+                    assertEquals( expectedValue, offheap.remove( key ) );
+                    break;
+                case 1:
+                    expectedValue = expected.get( key );
+                    assertEquals( expectedValue, heap.get( key ) );
+                    assertEquals( expectedValue, offheap.get( key ) );
+                    break;
+                case 2:
+                    expectedValue = expected.adjustOrPutValue( key, 1, i );
+                    assertEquals( expectedValue, heap.adjustOrPutValue( key, 1, i ) );
+                    assertEquals( expectedValue, offheap.adjustOrPutValue( key, 1, i ) );
+                    break;
+                default:
+                    long value = random.nextLong();
+                    expectedValue = expected.put( key, value );
+                    assertEquals( expectedValue, heap.put( key, value ) );
+                    assertEquals( expectedValue, offheap.put( key, value ) );
+            }
+            assertEquals( expected.size(), heap.size() );
+            assertEquals( expected.size(), offheap.size() );
+        }
+        assertEquals( expected, heap );
+        assertEquals( expected, offheap );
+    }
+
+
+    public void testIterateDuringRehash() {
+        TLongLongOffheapHashMap map = new TLongLongOffheapHashMap( 100 );
+        map.setIncrementalRehash( 1 );
+        long i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i++, 7 );
+        }
+        int count = 0;
+        for ( TLongLongIterator it = map.iterator(); it.hasNext(); ) {
+            it.advance();
+            assertEquals( 7, it.value() );
+            count++;
+        }
+        assertEquals( i, count );
+    }
+
+
+    public void testClearDuringRehash() {
+        TLongLongOffheapHashMap map = new TLongLongOffheapHashMap( 100 );
+        map.setIncrementalRehash( 1 );
+        long i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i++, 7 );
+        }
+        map.clear();
+        assertFalse( map.isRehashing() );
+        assertTrue( map.isEmpty() );
+        assertFalse( map.containsKey( 0 ) );
+        map.put( 1, 2 );
+        assertEquals( 2, map.get( 1 ) );
+    }
+
+
+    public void testSerializeDuringRehash() throws Exception {
+        TIntIntHashMap map = new TIntIntHashMap( 100 );
+        map.setIncrementalRehash( 1 );
+        int i = 0;
+        while ( ! map.isRehashing() ) {
+            map.put( i++, -i );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntIntHashMap copy = ( TIntIntHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertEquals( i, copy.size() );
+    }
+}
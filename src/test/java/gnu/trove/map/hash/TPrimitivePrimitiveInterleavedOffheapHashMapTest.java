@@ -0,0 +1,166 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.array.OffheapArena;
+import gnu.trove.array.TByteByteOffheapEntryArray;
+import gnu.trove.array.TIntIntOffheapEntryArray;
+import gnu.trove.array.TLongByteOffheapEntryArray;
+import gnu.trove.array.TLongLongOffheapEntryArray;
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.TIntIntMap;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveInterleavedOffheapHashMapTest extends TestCase {
+
+    public TPrimitivePrimitiveInterleavedOffheapHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testEntryLayout() {
+        assertEquals( 8, TLongLongOffheapEntryArray.VALUE_OFFSET );
+        assertEquals( 16, TLongLongOffheapEntryArray.STATE_OFFSET );
+        assertEquals( 24, TLongLongOffheapEntryArray.ENTRY_BYTES );
+        assertEquals( 12, TIntIntOffheapEntryArray.ENTRY_BYTES );
+        assertEquals( 16, TLongByteOffheapEntryArray.ENTRY_BYTES );
+        assertEquals( 3, TByteByteOffheapEntryArray.ENTRY_BYTES );
+
+        TLongLongOffheapEntryArray entries = new TLongLongOffheapEntryArray( 4 );
+        entries.put( 1, ( byte ) 1, -1L, Long.MAX_VALUE );
+        entries.putValue( 2, 7 );
+        assertEquals( 0, entries.getState( 0 ) );
+        assertEquals( 1, entries.getState( 1 ) );
+        assertEquals( -1L, entries.getKey( 1 ) );
+        assertEquals( Long.MAX_VALUE, entries.getValue( 1 ) );
+        assertEquals( 0, entries.getState( 2 ) );
+        assertEquals( 7, entries.getValue( 2 ) );
+        entries.resize( 8 );
+        assertEquals( 8, entries.capacity() );
+        assertEquals( Long.MAX_VALUE, entries.getValue( 1 ) );
+        assertEquals( 0, entries.getKey( 7 ) );
+        entries.free();
+    }
+
+
+    public void testPutGetRemove() {
+        TIntIntMap map = new TIntIntInterleavedOffheapHashMap();
+        assertEquals( 0, map.put( 1, 10 ) );
+        assertEquals( 10, map.put( 1, 11 ) );
+        assertEquals( 0, map.putIfAbsent( 2, 20 ) );
+        assertEquals( 20, map.putIfAbsent( 2, 21 ) );
+        assertEquals( 2, map.size() );
+        assertEquals( 11, map.get( 1 ) );
+        assertTrue( map.containsKey( 2 ) );
+        assertTrue( map.containsValue( 20 ) );
+        assertFalse( map.containsValue( 10 ) );
+        assertEquals( 11, map.remove( 1 ) );
+        assertEquals( 0, map.get( 1 ) );
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( 1, map.size() );
+
+        assertTrue( map.increment( 2 ) );
+        assertEquals( 21, map.get( 2 ) );
+        assertEquals( 5, map.adjustOrPutValue( 3, 1, 5 ) );
+        assertEquals( 6, map.adjustOrPutValue( 3, 1, 5 ) );
+    }
+
+
+    public void testAgainstSeparateLayout() {
+        Random random = new Random( 99 );
+        TIntIntInterleavedOffheapHashMap interleaved = new TIntIntInterleavedOffheapHashMap( 4 );
+        TIntIntOffheapHashMap separate = new TIntIntOffheapHashMap( 4 );
+        for ( int i = 0; i < 20000; i++ ) {
+            int key = random.nextInt( 1000 );
+            if ( random.nextInt( 3 ) > 0 ) {
+                assertEquals( separate.put( key, i ), interleaved.put( key, i ) );
+            }
+            else {
+                assertEquals( separate.remove( key ), interleaved.remove( key ) );
+            }
+        }
+        assertEquals( separate.size(), interleaved.size() );
+        assertEquals( separate, interleaved );
+        assertEquals( interleaved, separate );
+        assertEquals( separate.hashCode(), interleaved.hashCode() );
+    }
+
+
+    public void testIterators() {
+        TIntIntInterleavedOffheapHashMap map = new TIntIntInterleavedOffheapHashMap();
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, i * 2 );
+        }
+
+        int count = 0;
+        for ( TIntIntIterator iter = map.iterator(); iter.hasNext(); ) {
+            iter.advance();
+            assertEquals( iter.key() * 2, iter.value() );
+            iter.setValue( -iter.key() );
+            if ( iter.key() % 2 == 0 ) {
+                iter.remove();
+            }
+            count++;
+        }
+        assertEquals( 100, count );
+        assertEquals( 50, map.size() );
+        assertEquals( -7, map.get( 7 ) );
+        assertFalse( map.containsKey( 8 ) );
+
+        int sum = 0;
+        for ( TIntIterator iter = map.keySet().iterator(); iter.hasNext(); ) {
+            sum += iter.next();
+        }
+        assertEquals( 2500, sum );
+        sum = 0;
+        for ( TIntIterator iter = map.valueCollection().iterator(); iter.hasNext(); ) {
+            sum += iter.next();
+        }
+        assertEquals( -2500, sum );
+
+        assertTrue( map.keySet().remove( 7 ) );
+        assertFalse( map.containsKey( 7 ) );
+        assertEquals( 49, map.keys().length );
+        assertEquals( 49, map.values().length );
+
+        map.clear();
+        assertTrue( map.isEmpty() );
+        assertFalse( map.iterator().hasNext() );
+    }
+
+
+    public void testArena() {
+        OffheapArena arena = new OffheapArena();
+        TLongLongInterleavedOffheapHashMap map = new TLongLongInterleavedOffheapHashMap( 10, 0.5f, arena );
+        assertSame( arena, map.getAllocator() );
+        for ( long i = 0; i < 1000; i++ ) {
+            map.put( i, -i );
+        }
+        assertEquals( -999, map.get( 999 ) );
+        arena.close();
+    }
+
+
+    public void testSerialize() throws Exception {
+        TLongLongInterleavedOffheapHashMap map = new TLongLongInterleavedOffheapHashMap();
+        for ( long i = 0; i < 100; i++ ) {
+            map.put( i, i * i );
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream( baos );
+        oos.writeObject( map );
+        oos.close();
+
+        ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( baos.toByteArray() ) );
+        TLongLongInterleavedOffheapHashMap copy = ( TLongLongInterleavedOffheapHashMap ) ois.readObject();
+        assertEquals( map, copy );
+        assertEquals( 81, copy.get( 9 ) );
+    }
+}
@@ -0,0 +1,121 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntLongIterator;
+import gnu.trove.procedure.TIntLongProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveLinkedHashMapTest extends TestCase {
+
+    public TPrimitivePrimitiveLinkedHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testInsertionOrder() {
+        TIntLongLinkedHashMap map = new TIntLongLinkedHashMap();
+        assertEquals( 0, map.put( 3, 30 ) );
+        map.put( 1, 10 );
+        map.put( 2, 20 );
+        assertEquals( 10, map.put( 1, 11 ) );
+        assertEquals( 40, map.adjustOrPutValue( 4, 1, 40 ) );
+        assertEquals( 0, map.putIfAbsent( 5, 50 ) );
+
+        assertTrue( Arrays.equals( new int[] { 3, 1, 2, 4, 5 }, map.keys() ) );
+        assertTrue( Arrays.equals( new long[] { 30, 11, 20, 40, 50 }, map.values() ) );
+        assertEquals( "{3=30, 1=11, 2=20, 4=40, 5=50}", map.toString() );
+        assertEquals( "{3, 1, 2, 4, 5}", map.keySet().toString() );
+
+        TIntLongIterator it = map.iterator();
+        it.advance();
+        assertEquals( 3, it.key() );
+        it.remove();
+        it.advance();
+        assertEquals( 11, it.setValue( 12 ) );
+
+        map.retainEntries( new TIntLongProcedure() {
+            @Override
+            public boolean execute( int key, long value ) {
+                return key != 2;
+            }
+        } );
+        map.put( 2, 21 );
+        TIntIterator keys = map.keySet().iterator();
+        assertEquals( 1, keys.next() );
+        assertEquals( 4, keys.next() );
+        keys.remove();
+        assertTrue( Arrays.equals( new int[] { 1, 5, 2 }, map.keys() ) );
+        assertTrue( Arrays.equals( new long[] { 12, 50, 21 }, map.valueCollection().toArray() ) );
+
+        map.clear();
+        map.put( 6, 60 );
+        assertTrue( Arrays.equals( new int[] { 6 }, map.keys() ) );
+    }
+
+
+    public void testAgainstLinkedHashMap() throws Exception {
+        Random random = new Random( 23 );
+        TIntLongLinkedHashMap map = new TIntLongLinkedHashMap( 4 );
+        // the map ignores incremental rehashing, as its rehash walks the order
+        map.setIncrementalRehash( 8 );
+        LinkedHashMap<Integer, Long> expected = new LinkedHashMap<Integer, Long>( 4 );
+        for ( int i = 0; i < 50000; i++ ) {
+            int key = random.nextInt( 1000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                Long previous = expected.remove( key );
+                assertEquals( previous == null ? 0 : previous.longValue(), map.remove( key ) );
+            } else {
+                Long previous = expected.put( key, ( long ) i );
+                assertEquals( previous == null ? 0 : previous.longValue(), map.put( key, i ) );
+            }
+        }
+        int[] keys = new int[ expected.size() ];
+        int j = 0;
+        for ( Map.Entry<Integer, Long> entry : expected.entrySet() ) {
+            keys[ j++ ] = entry.getKey();
+        }
+        assertTrue( Arrays.equals( keys, map.keys() ) );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntLongLinkedHashMap copy = ( TIntLongLinkedHashMap ) new ObjectInputStream(
+                new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertTrue( Arrays.equals( keys, copy.keys() ) );
+        assertEquals( map, copy );
+    }
+
+
+    public void testAccessOrderEviction() {
+        TIntLongLinkedHashMap lru = new TIntLongLinkedHashMap( 4, 0.5f, true ) {
+            @Override
+            protected boolean removeEldestEntry( int key, long value ) {
+                return size() > 3;
+            }
+        };
+        assertTrue( lru.isAccessOrder() );
+        lru.put( 1, 10 );
+        lru.put( 2, 20 );
+        lru.put( 3, 30 );
+        assertEquals( 10, lru.get( 1 ) );
+        assertTrue( lru.increment( 2 ) );
+        lru.put( 4, 40 );   // evicts 3, the least recently used
+        assertFalse( lru.containsKey( 3 ) );
+        assertEquals( 30, lru.adjustOrPutValue( 1, 20, 0 ) );
+        lru.put( 5, 50 );   // evicts 2
+
+        assertTrue( Arrays.equals( new int[] { 4, 1, 5 }, lru.keys() ) );
+        assertEquals( 3, lru.size() );
+    }
+}
@@ -30,11 +30,14 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 
 import gnu.trove.TIntCollection;
 import gnu.trove.TLongCollection;
+import gnu.trove.array.OffheapMemory;
 import gnu.trove.function.TLongFunction;
+import gnu.trove.impl.PrimeFinder;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntLongIterator;
 import gnu.trove.iterator.TLongIterator;
@@ -2005,6 +2008,77 @@ public class TPrimitivePrimitiveOffheapHashMapTest extends TestCase {
         assertEquals( map, deserialized );
     }
 
+
+    public void testSerializeLarge() throws Exception {
+        TIntLongMap map = new TIntLongOffheapHashMap();
+        for ( int i = 0; i < 1000; i++ ) {
+            map.put( i, i * 2 );
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream( baos );
+        oos.writeObject( map );
+
+        ByteArrayInputStream bias = new ByteArrayInputStream( baos.toByteArray() );
+        ObjectInputStream ois = new ObjectInputStream( bias );
+
+        TIntLongMap deserialized = (TIntLongMap) ois.readObject();
+
+        assertEquals( map, deserialized );
+        assertEquals( 1000, deserialized.size() );
+    }
+
+
+    public void testRehashInPlace() {
+        Random random = new Random( 11 );
+        TLongLongOffheapHashMap map = new TLongLongOffheapHashMap( 4 );
+        TLongLongHashMap expected = new TLongLongHashMap( 4 );
+        for ( int i = 0; i < 100000; i++ ) {
+            long key = random.nextInt( 30000 );
+            if ( random.nextInt( 4 ) == 0 ) {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), map.put( key, i ) );
+            }
+        }
+        assertEquals( expected, map );
+
+        // shrinking copies into new arrays
+        int capacity = map.capacity();
+        for ( long key : expected.keys() ) {
+            if ( key > 1000 ) {
+                expected.remove( key );
+                map.remove( key );
+            }
+        }
+        map.compact();
+        assertTrue( map.capacity() < capacity );
+        assertEquals( expected, map );
+    }
+
+
+    public void testRehashInPlaceMemory() {
+        TLongLongOffheapHashMap map = new TLongLongOffheapHashMap( 1000 );
+        int capacity = map.capacity();
+        long key = 0;
+        while ( map.size() < ( int ) ( capacity * 0.5f ) ) {
+            map.put( key++, 1 );
+        }
+        // enough to grow the arrays, but not to allocate a second table
+        int newCapacity = PrimeFinder.nextPrime( capacity << 1 );
+        OffheapMemory.setLimit( OffheapMemory.getUsage().getBytesInUse() +
+            ( newCapacity - capacity ) * 17L + 1024 );
+        try {
+            map.put( key++, 1 );
+        } finally {
+            OffheapMemory.setLimit( 0 );
+        }
+        assertEquals( newCapacity, map.capacity() );
+        for ( long i = 0; i < key; i++ ) {
+            assertEquals( 1, map.get( i ) );
+        }
+    }
+
     /** a non TIntLongHashMap to test putAll exception */
 //    class BadMap implements TIntLongMap  {
 //        public int getNoEntryKey() { return 0; }
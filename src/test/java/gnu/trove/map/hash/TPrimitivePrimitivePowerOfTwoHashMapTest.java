@@ -0,0 +1,142 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.impl.hash.THash;
+import gnu.trove.map.TLongLongMap;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitivePowerOfTwoHashMapTest extends TestCase {
+
+    public TPrimitivePrimitivePowerOfTwoHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testCapacity() {
+        TLongLongPowerOfTwoHashMap map = new TLongLongPowerOfTwoHashMap( 1000 );
+        assertPowerOfTwo( map );
+        int capacity = map.capacity();
+        for ( long i = 0; i < 1000; i++ ) {
+            map.put( i, i );
+        }
+        assertEquals( capacity, map.capacity() );
+        for ( long i = 1000; i < 100000; i++ ) {
+            map.put( i, i );
+        }
+        assertPowerOfTwo( map );
+        map.compact();
+        assertPowerOfTwo( map );
+
+        TLongLongPowerOfTwoOffheapHashMap offheap = new TLongLongPowerOfTwoOffheapHashMap( 1000 );
+        assertPowerOfTwo( offheap );
+        for ( long i = 0; i < 100000; i++ ) {
+            offheap.put( i, i );
+        }
+        assertPowerOfTwo( offheap );
+    }
+
+
+    public void testKeysDifferingInHighBits() {
+        // only the high bits differ, which masking alone would map to one slot
+        TLongLongMap map = new TLongLongPowerOfTwoHashMap();
+        for ( long i = 0; i < 10000; i++ ) {
+            map.put( i << 40, i );
+        }
+        assertEquals( 10000, map.size() );
+        for ( long i = 0; i < 10000; i++ ) {
+            assertEquals( i, map.get( i << 40 ) );
+        }
+    }
+
+
+    public void testStepsIndependentOfFirstSlotInLargeTables() {
+        // a table of 2^24 slots leaves only 7 bits of the 31 bit hash above
+        // the first slot, so the step has to come from elsewhere
+        TLongLongPowerOfTwoHashMap map = new TLongLongPowerOfTwoHashMap();
+        int length = 1 << 24;
+        int[] steps = new int[length];
+        Random random = new Random( 11 );
+        int sharedSlots = 0;
+        int sharedSteps = 0;
+        for ( int i = 0; i < 4 * length; i++ ) {
+            long key = random.nextLong();
+            int hash = map.hash( key );
+            int slot = map.firstSlot( hash, length );
+            int step = map.probeStep( key, hash, length );
+            assertEquals( 1, step & 1 );
+            if ( steps[slot] != 0 ) {
+                sharedSlots++;
+                if ( steps[slot] == step ) {
+                    sharedSteps++;
+                }
+            }
+            steps[slot] = step;
+        }
+        // about one in 2^23 pairs that share a first slot should share a step
+        assertTrue( sharedSlots > length );
+        assertTrue( "Keys sharing a first slot shared a step " + sharedSteps + " times",
+                sharedSteps < 20 );
+    }
+
+
+    public void testAgainstPrimeMap() {
+        compareWithPrimeMap( new TLongLongPowerOfTwoHashMap( 4 ), 1 );
+        compareWithPrimeMap( new TLongLongPowerOfTwoOffheapHashMap( 4 ), 2 );
+
+        TLongLongPowerOfTwoHashMap incremental = new TLongLongPowerOfTwoHashMap( 4 );
+        incremental.setIncrementalRehash( 3 );
+        compareWithPrimeMap( incremental, 3 );
+
+        TLongLongPowerOfTwoOffheapHashMap offheapIncremental = new TLongLongPowerOfTwoOffheapHashMap( 4 );
+        offheapIncremental.setIncrementalRehash( 3 );
+        compareWithPrimeMap( offheapIncremental, 4 );
+    }
+
+
+    private static void compareWithPrimeMap( TLongLongMap map, long seed ) {
+        Random random = new Random( seed );
+        TLongLongHashMap expected = new TLongLongHashMap();
+        for ( int i = 0; i < 100000; i++ ) {
+            long key = random.nextInt( 3000 ) * 0x100000001L;
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), map.put( key, i ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        assertEquals( expected, map );
+        assertEquals( map, expected );
+        assertEquals( expected.hashCode(), map.hashCode() );
+    }
+
+
+    public void testSerialize() throws Exception {
+        TLongLongPowerOfTwoHashMap map = new TLongLongPowerOfTwoHashMap( 10, 0.5f, -1, -2 );
+        for ( long i = 0; i < 100; i++ ) {
+            map.put( i << 33, -i );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TLongLongPowerOfTwoHashMap copy = ( TLongLongPowerOfTwoHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertPowerOfTwo( copy );
+        assertEquals( -2, copy.get( 1 ) );
+        assertEquals( -99, copy.get( 99L << 33 ) );
+    }
+
+
+    private static void assertPowerOfTwo( THash hash ) {
+        int capacity = hash.capacity();
+        assertEquals( "capacity " + capacity, 0, capacity & ( capacity - 1 ) );
+    }
+}
@@ -0,0 +1,156 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.procedure.TIntIntProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveRobinHoodHashMapTest extends TestCase {
+
+    public TPrimitivePrimitiveRobinHoodHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testPutGetRemove() {
+        TIntIntMap map = new TIntIntRobinHoodHashMap();
+        assertEquals( 0, map.put( 1, 10 ) );
+        assertEquals( 10, map.put( 1, 11 ) );
+        assertEquals( 0, map.putIfAbsent( 2, 20 ) );
+        assertEquals( 20, map.putIfAbsent( 2, 21 ) );
+        assertEquals( 2, map.size() );
+        assertEquals( 11, map.get( 1 ) );
+        assertTrue( map.containsKey( 2 ) );
+        assertTrue( map.containsValue( 20 ) );
+        assertFalse( map.containsValue( 10 ) );
+        assertEquals( 11, map.remove( 1 ) );
+        assertEquals( 0, map.get( 1 ) );
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( 1, map.size() );
+
+        assertTrue( map.increment( 2 ) );
+        assertEquals( 21, map.get( 2 ) );
+        assertEquals( 5, map.adjustOrPutValue( 3, 1, 5 ) );
+        assertEquals( 6, map.adjustOrPutValue( 3, 1, 5 ) );
+    }
+
+
+    public void testAgainstHashMap() {
+        Random random = new Random( 99 );
+        TIntIntRobinHoodHashMap robinHood = new TIntIntRobinHoodHashMap( 4 );
+        TIntIntHashMap expected = new TIntIntHashMap( 4 );
+        for ( int i = 0; i < 100000; i++ ) {
+            int key = random.nextInt( 2000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( key ), robinHood.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), robinHood.put( key, i ) );
+            }
+        }
+        assertEquals( expected.size(), robinHood.size() );
+        assertEquals( expected, robinHood );
+        assertEquals( robinHood, expected );
+        assertEquals( expected.hashCode(), robinHood.hashCode() );
+        assertEquals( new TIntIntRobinHoodHashMap( expected ), robinHood );
+    }
+
+
+    public void testValuesShiftWithKeys() {
+        // a full table, so that inserts and removes shift long runs
+        TIntIntRobinHoodHashMap map = new TIntIntRobinHoodHashMap( 60, 0.95f );
+        int capacity = map.capacity();
+        Random random = new Random( 11 );
+        TIntIntHashMap expected = new TIntIntHashMap();
+        for ( int i = 0; i < 100000; i++ ) {
+            int key = random.nextInt( 200 );
+            if ( expected.size() >= 58 || random.nextBoolean() ) {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, -key ), map.put( key, -key ) );
+            }
+        }
+        assertEquals( capacity, map.capacity() );
+        assertEquals( expected, map );
+    }
+
+
+    public void testRetainEntries() {
+        Random random = new Random( 13 );
+        for ( int round = 0; round < 500; round++ ) {
+            TIntIntRobinHoodHashMap map = new TIntIntRobinHoodHashMap( 12, 0.9f );
+            TIntIntHashMap expected = new TIntIntHashMap();
+            for ( int i = 0; i < 14; i++ ) {
+                int key = random.nextInt();
+                map.put( key, i );
+                if ( ( i & 1 ) == 0 ) {
+                    expected.put( key, i );
+                }
+            }
+            map.retainEntries( new TIntIntProcedure() {
+                @Override
+                public boolean execute( int key, int value ) {
+                    return ( value & 1 ) == 0;
+                }
+            } );
+            assertEquals( expected, map );
+        }
+    }
+
+
+    public void testIterators() {
+        TIntIntRobinHoodHashMap map = new TIntIntRobinHoodHashMap();
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, i * 2 );
+        }
+        int sum = 0;
+        for ( TIntIntIterator it = map.iterator(); it.hasNext(); ) {
+            it.advance();
+            assertEquals( it.key() * 2, it.value() );
+            if ( it.key() % 3 == 0 ) {
+                it.remove();
+            } else {
+                it.setValue( it.value() + 1 );
+            }
+            sum++;
+        }
+        assertEquals( 100, sum );
+        assertEquals( 66, map.size() );
+        assertEquals( 5, map.get( 2 ) );
+
+        TIntIterator keys = map.keySet().iterator();
+        while ( keys.hasNext() ) {
+            if ( keys.next() < 50 ) {
+                keys.remove();
+            }
+        }
+        assertEquals( 33, map.size() );
+        for ( TIntIterator values = map.valueCollection().iterator(); values.hasNext(); ) {
+            assertTrue( values.next() >= 101 );
+        }
+    }
+
+
+    public void testSerialize() throws Exception {
+        TIntIntRobinHoodHashMap map = new TIntIntRobinHoodHashMap( 10, 0.5f, -1, -2 );
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, -i );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntIntRobinHoodHashMap copy = ( TIntIntRobinHoodHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertEquals( -1, copy.getNoEntryKey() );
+        assertEquals( -2, copy.get( 1000 ) );
+    }
+}
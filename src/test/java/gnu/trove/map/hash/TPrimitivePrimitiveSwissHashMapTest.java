@@ -0,0 +1,124 @@
+package gnu.trove.map.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.TIntIntMap;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePrimitiveSwissHashMapTest extends TestCase {
+
+    public TPrimitivePrimitiveSwissHashMapTest( String name ) {
+        super( name );
+    }
+
+
+    public void testPutGetRemove() {
+        TIntIntMap map = new TIntIntSwissHashMap();
+        assertEquals( 0, map.put( 1, 10 ) );
+        assertEquals( 10, map.put( 1, 11 ) );
+        assertEquals( 0, map.putIfAbsent( 2, 20 ) );
+        assertEquals( 20, map.putIfAbsent( 2, 21 ) );
+        assertEquals( 2, map.size() );
+        assertEquals( 11, map.get( 1 ) );
+        assertTrue( map.containsKey( 2 ) );
+        assertTrue( map.containsValue( 20 ) );
+        assertFalse( map.containsValue( 10 ) );
+        assertEquals( 11, map.remove( 1 ) );
+        assertEquals( 0, map.get( 1 ) );
+        assertFalse( map.containsKey( 1 ) );
+        assertEquals( 1, map.size() );
+
+        assertTrue( map.increment( 2 ) );
+        assertEquals( 21, map.get( 2 ) );
+        assertEquals( 5, map.adjustOrPutValue( 3, 1, 5 ) );
+        assertEquals( 6, map.adjustOrPutValue( 3, 1, 5 ) );
+    }
+
+
+    public void testAgainstHashMap() {
+        Random random = new Random( 99 );
+        TIntIntSwissHashMap swiss = new TIntIntSwissHashMap( 4 );
+        TIntIntHashMap expected = new TIntIntHashMap( 4 );
+        for ( int i = 0; i < 100000; i++ ) {
+            int key = random.nextInt( 2000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( key ), swiss.remove( key ) );
+            } else {
+                assertEquals( expected.put( key, i ), swiss.put( key, i ) );
+            }
+        }
+        assertEquals( expected.size(), swiss.size() );
+        assertEquals( expected, swiss );
+        assertEquals( swiss, expected );
+        assertEquals( expected.hashCode(), swiss.hashCode() );
+        assertEquals( new TIntIntSwissHashMap( expected ), swiss );
+    }
+
+
+    public void testValueViewSkipsRemovedEntries() {
+        TIntIntSwissHashMap map = new TIntIntSwissHashMap();
+        map.put( 1, 10 );
+        map.put( 2, 20 );
+        map.remove( 1 );
+        assertFalse( map.valueCollection().contains( 10 ) );
+        assertFalse( map.valueCollection().contains( 0 ) );
+        assertTrue( map.valueCollection().contains( 20 ) );
+    }
+
+
+    public void testIterators() {
+        TIntIntSwissHashMap map = new TIntIntSwissHashMap();
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, i * 2 );
+        }
+        int sum = 0;
+        for ( TIntIntIterator it = map.iterator(); it.hasNext(); ) {
+            it.advance();
+            assertEquals( it.key() * 2, it.value() );
+            if ( it.key() % 3 == 0 ) {
+                it.remove();
+            } else {
+                it.setValue( it.value() + 1 );
+            }
+            sum++;
+        }
+        assertEquals( 100, sum );
+        assertEquals( 66, map.size() );
+        assertEquals( 5, map.get( 2 ) );
+
+        TIntIterator keys = map.keySet().iterator();
+        while ( keys.hasNext() ) {
+            if ( keys.next() < 50 ) {
+                keys.remove();
+            }
+        }
+        assertEquals( 33, map.size() );
+        for ( TIntIterator values = map.valueCollection().iterator(); values.hasNext(); ) {
+            assertTrue( values.next() >= 101 );
+        }
+    }
+
+
+    public void testSerialize() throws Exception {
+        TIntIntSwissHashMap map = new TIntIntSwissHashMap( 10, 0.5f, -1, -2 );
+        for ( int i = 0; i < 100; i++ ) {
+            map.put( i, -i );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( map );
+        out.close();
+        TIntIntSwissHashMap copy = ( TIntIntSwissHashMap ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( map, copy );
+        assertEquals( -1, copy.getNoEntryKey() );
+        assertEquals( -2, copy.get( 1000 ) );
+    }
+}
@@ -0,0 +1,143 @@
+package gnu.trove.queue.array;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+
+public class TArrayDequeTest extends TestCase {
+
+    public TArrayDequeTest( String name ) {
+        super( name );
+    }
+
+
+    public void testBothEnds() {
+        TIntArrayDeque deque = new TIntArrayDeque( 2, -1 );
+        assertEquals( -1, deque.peekFirst() );
+        assertEquals( -1, deque.pollLast() );
+        try {
+            deque.element();
+            fail( "Expected NoSuchElementException" );
+        } catch ( NoSuchElementException expected ) {
+            // expected
+        }
+
+        Random random = new Random( 42 );
+        ArrayDeque<Integer> expected = new ArrayDeque<Integer>();
+        for ( int i = 0; i < 10000; i++ ) {
+            int value = random.nextInt( 1000 );
+            switch ( random.nextInt( 6 ) ) {
+                case 0:
+                case 1:
+                    expected.addFirst( value );
+                    deque.addFirst( value );
+                    break;
+                case 2:
+                    expected.addLast( value );
+                    assertTrue( deque.offer( value ) );
+                    break;
+                case 3:
+                    assertEquals( expected.isEmpty() ? -1 : expected.pollFirst().intValue(),
+                        deque.poll() );
+                    break;
+                case 4:
+                    assertEquals( expected.isEmpty() ? -1 : expected.pollLast().intValue(),
+                        deque.pollLast() );
+                    break;
+                default:
+                    assertEquals( expected.isEmpty() ? -1 : expected.peekLast().intValue(),
+                        deque.peekLast() );
+            }
+            assertEquals( expected.size(), deque.size() );
+        }
+        int i = 0;
+        for ( Integer value : expected ) {
+            assertEquals( value.intValue(), deque.get( i++ ) );
+        }
+        assertTrue( Arrays.equals( toArray( expected ), deque.toArray() ) );
+    }
+
+
+    public void testDrain() {
+        TIntArrayDeque deque = new TIntArrayDeque( 8 );
+        // wrap the values around the end of the array
+        for ( int i = 0; i < 6; i++ ) {
+            deque.addLast( -1 );
+        }
+        for ( int i = 0; i < 6; i++ ) {
+            deque.pollFirst();
+        }
+        for ( int i = 0; i < 7; i++ ) {
+            deque.addLast( i );
+        }
+
+        int[] dest = new int[ 5 ];
+        assertEquals( 4, deque.drainTo( dest, 1, 4 ) );
+        assertTrue( Arrays.equals( new int[] { 0, 0, 1, 2, 3 }, dest ) );
+        assertEquals( 3, deque.drainTo( dest ) );
+        assertTrue( Arrays.equals( new int[] { 4, 5, 6, 2, 3 }, dest ) );
+        assertTrue( deque.isEmpty() );
+        assertEquals( 0, deque.drainTo( dest ) );
+    }
+
+
+    public void testRemove() {
+        TIntArrayList list = new TIntArrayList();
+        for ( int i = 0; i < 20; i++ ) {
+            list.add( i );
+        }
+        TIntArrayDeque deque = new TIntArrayDeque( list );
+        deque.addFirst( -1 );
+        assertTrue( deque.remove( 2 ) );
+        assertTrue( deque.remove( 17 ) );
+        assertFalse( deque.remove( 17 ) );
+        for ( TIntIterator iter = deque.iterator(); iter.hasNext(); ) {
+            if ( iter.next() % 3 == 0 ) {
+                iter.remove();
+            }
+        }
+        assertTrue( deque.removeAll( new int[] { -1, 1 } ) );
+        assertTrue( deque.retainAll( new int[] { 4, 5, 7, 8, 10, 11, 13, 14, 16 } ) );
+        assertEquals( "{4, 5, 7, 8, 10, 11, 13, 14, 16}", deque.toString() );
+        assertTrue( deque.contains( 16 ) );
+        assertFalse( deque.contains( 15 ) );
+    }
+
+
+    public void testSerialization() throws Exception {
+        TIntArrayDeque deque = new TIntArrayDeque( 4, -1 );
+        deque.addAll( new int[] { 1, 2, 3 } );
+        deque.addFirst( 0 );
+        deque.addLast( 4 );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( deque );
+        out.close();
+        TIntArrayDeque copy = ( TIntArrayDeque ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+
+        assertEquals( -1, copy.getNoEntryValue() );
+        assertTrue( Arrays.equals( new int[] { 0, 1, 2, 3, 4 }, copy.toArray() ) );
+    }
+
+
+    private static int[] toArray( ArrayDeque<Integer> deque ) {
+        int[] array = new int[ deque.size() ];
+        int i = 0;
+        for ( Integer value : deque ) {
+            array[ i++ ] = value;
+        }
+        return array;
+    }
+}
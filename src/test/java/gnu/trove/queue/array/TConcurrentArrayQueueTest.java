@@ -0,0 +1,295 @@
+package gnu.trove.queue.array;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.procedure.TLongProcedure;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+public class TConcurrentArrayQueueTest extends TestCase {
+
+    public TConcurrentArrayQueueTest( String name ) {
+        super( name );
+    }
+
+
+    public void testSpscSingleThread() {
+        TLongSpscArrayQueue queue = new TLongSpscArrayQueue( 3, -1 );
+        assertEquals( 4, queue.capacity() );
+        assertEquals( -1, queue.poll() );
+        assertEquals( -1, queue.peek() );
+        try {
+            queue.element();
+            fail( "Expected NoSuchElementException" );
+        } catch ( NoSuchElementException expected ) {
+            // expected
+        }
+
+        for ( int i = 0; i < 4; i++ ) {
+            assertTrue( queue.offer( i ) );
+        }
+        assertFalse( queue.offer( 4 ) );
+        assertEquals( 4, queue.size() );
+        assertEquals( 0, queue.peek() );
+        assertEquals( 0, queue.poll() );
+        assertEquals( 1, queue.element() );
+
+        // wraps around the end of the array
+        assertEquals( 2, queue.offer( new long[] { 4, 5, 6 }, 0, 3 ) );
+        long[] dest = new long[ 6 ];
+        assertEquals( 4, queue.drainTo( dest, 1, 5 ) );
+        assertTrue( Arrays.equals( new long[] { 0, 2, 3, 4, 5, 0 }, dest ) );
+        assertTrue( queue.isEmpty() );
+
+        queue.addAll( new long[] { 7, 8 } );
+        try {
+            queue.addAll( new long[] { 9, 10, 11 } );
+            fail( "Expected IllegalStateException" );
+        } catch ( IllegalStateException expected ) {
+            // expected
+        }
+        queue.clear();
+        assertEquals( 0, queue.size() );
+        assertEquals( -1, queue.poll() );
+    }
+
+
+    public void testMpscSingleThread() {
+        TIntMpscArrayQueue queue = new TIntMpscArrayQueue( 4, -1 );
+        assertEquals( -1, queue.poll() );
+        for ( int i = 0; i < 4; i++ ) {
+            assertTrue( queue.offer( i ) );
+        }
+        assertFalse( queue.offer( 4 ) );
+        assertEquals( 0, queue.offer( new int[] { 4 }, 0, 1 ) );
+        assertEquals( 0, queue.poll() );
+        assertEquals( 1, queue.poll() );
+
+        assertEquals( 2, queue.offer( new int[] { 4, 5, 6 }, 0, 3 ) );
+        assertEquals( 4, queue.size() );
+        int[] dest = new int[ 8 ];
+        assertEquals( 4, queue.drainTo( dest ) );
+        assertTrue( Arrays.equals( new int[] { 2, 3, 4, 5 }, Arrays.copyOf( dest, 4 ) ) );
+        assertEquals( -1, queue.peek() );
+
+        assertTrue( queue.offer( 7 ) );
+        assertEquals( 7, queue.peek() );
+        queue.clear();
+        assertTrue( queue.isEmpty() );
+        assertFalse( queue.iterator().hasNext() );
+    }
+
+
+    public void testSpscCollectionMethods() {
+        TLongSpscArrayQueue queue = new TLongSpscArrayQueue( 8, -1 );
+        // start near the end of the array so the values wrap around it
+        for ( int i = 0; i < 6; i++ ) {
+            queue.offer( -1 );
+            queue.poll();
+        }
+        queue.addAll( new long[] { 1, 2, 3, 4, 2, 5 } );
+
+        assertTrue( queue.contains( 4 ) );
+        assertFalse( queue.contains( 6 ) );
+        assertTrue( queue.containsAll( new long[] { 5, 1 } ) );
+        assertFalse( queue.containsAll( Arrays.asList( 1L, 6L ) ) );
+        assertTrue( Arrays.equals( new long[] { 1, 2, 3, 4, 2, 5 }, queue.toArray() ) );
+        long[] dest = new long[] { 9, 9, 9, 9, 9, 9, 9, 9 };
+        queue.toArray( dest );
+        assertTrue( Arrays.equals( new long[] { 1, 2, 3, 4, 2, 5, -1, 9 }, dest ) );
+
+        TLongIterator iter = queue.iterator();
+        assertEquals( 1, iter.next() );
+        try {
+            iter.remove();
+            fail( "Expected UnsupportedOperationException" );
+        } catch ( UnsupportedOperationException expected ) {
+            // expected
+        }
+
+        assertTrue( queue.remove( 2 ) );
+        assertFalse( queue.remove( 6 ) );
+        assertTrue( Arrays.equals( new long[] { 1, 3, 4, 2, 5 }, queue.toArray() ) );
+        assertTrue( queue.removeAll( new long[] { 3, 5 } ) );
+        assertFalse( queue.removeAll( new long[] { 6 } ) );
+        assertTrue( queue.retainAll( Arrays.asList( 1L, 2L ) ) );
+        assertTrue( Arrays.equals( new long[] { 1, 2 }, queue.toArray() ) );
+        assertEquals( 2, queue.size() );
+
+        // the released slots can be offered again, behind the values that stayed
+        for ( int i = 0; i < 6; i++ ) {
+            assertTrue( queue.offer( 10 + i ) );
+        }
+        assertFalse( queue.offer( 16 ) );
+        final TLongArrayList seen = new TLongArrayList();
+        queue.forEach( new TLongProcedure() {
+            @Override
+            public boolean execute( long value ) {
+                return seen.add( value );
+            }
+        } );
+        assertEquals( new TLongArrayList( new long[] { 1, 2, 10, 11, 12, 13, 14, 15 } ), seen );
+        assertEquals( 1, queue.poll() );
+        assertEquals( 2, queue.poll() );
+        assertEquals( 10, queue.poll() );
+    }
+
+
+    public void testMpscCollectionMethods() {
+        TIntMpscArrayQueue queue = new TIntMpscArrayQueue( 8, -1 );
+        for ( int i = 0; i < 5; i++ ) {
+            queue.offer( -1 );
+            queue.poll();
+        }
+        queue.addAll( new int[] { 1, 2, 3, 4, 2, 5 } );
+
+        assertTrue( queue.contains( 5 ) );
+        assertFalse( queue.contains( 6 ) );
+        assertTrue( queue.containsAll( new TIntArrayList( new int[] { 2, 4 } ) ) );
+        assertTrue( Arrays.equals( new int[] { 1, 2, 3, 4, 2, 5 }, queue.toArray() ) );
+        assertTrue( Arrays.equals( new int[] { 1, 2, 3 }, queue.toArray( new int[ 3 ] ) ) );
+
+        assertTrue( queue.remove( 2 ) );
+        assertTrue( queue.removeAll( new TIntArrayList( new int[] { 2, 4 } ) ) );
+        assertTrue( Arrays.equals( new int[] { 1, 3, 5 }, queue.toArray() ) );
+        assertFalse( queue.retainAll( new int[] { 1, 3, 5 } ) );
+        assertTrue( queue.retainAll( new int[] { 3 } ) );
+        assertEquals( 1, queue.size() );
+
+        for ( int i = 0; i < 7; i++ ) {
+            assertTrue( queue.offer( 10 + i ) );
+        }
+        assertFalse( queue.offer( 17 ) );
+        TIntIterator iter = queue.iterator();
+        assertEquals( 3, iter.next() );
+        assertEquals( 10, iter.next() );
+        assertEquals( 3, queue.poll() );
+        assertEquals( 10, queue.poll() );
+        assertTrue( queue.removeAll( queue ) );
+        assertTrue( queue.isEmpty() );
+        assertTrue( queue.offer( 20 ) );
+        assertEquals( 20, queue.poll() );
+    }
+
+
+    public void testSpscTransfer() throws Exception {
+        final TLongSpscArrayQueue queue = new TLongSpscArrayQueue( 64, -1 );
+        final int count = 200000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                long[] batch = new long[ 7 ];
+                long next = 0;
+                while ( next < count ) {
+                    if ( next % 3 == 0 ) {
+                        int length = ( int ) Math.min( batch.length, count - next );
+                        for ( int i = 0; i < length; i++ ) {
+                            batch[ i ] = next + i;
+                        }
+                        int offered = queue.offer( batch, 0, length );
+                        if ( offered == 0 ) {
+                            Thread.yield();
+                        }
+                        next += offered;
+                    } else if ( queue.offer( next ) ) {
+                        next++;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        producer.start();
+
+        long expected = 0;
+        long[] dest = new long[ 5 ];
+        while ( expected < count ) {
+            if ( expected % 2 == 0 ) {
+                int drained = queue.drainTo( dest );
+                if ( drained == 0 ) {
+                    Thread.yield();
+                }
+                for ( int i = 0; i < drained; i++ ) {
+                    assertEquals( expected++, dest[ i ] );
+                }
+            } else {
+                long value = queue.poll();
+                if ( value != -1 ) {
+                    assertEquals( expected++, value );
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+        producer.join();
+        assertTrue( queue.isEmpty() );
+    }
+
+
+    public void testMpscTransfer() throws Exception {
+        final TLongMpscArrayQueue queue = new TLongMpscArrayQueue( 64, -1 );
+        final int producers = 3;
+        final int count = 100000;
+        Thread[] threads = new Thread[ producers ];
+        for ( int t = 0; t < producers; t++ ) {
+            final long base = ( long ) t << 32;
+            threads[ t ] = new Thread() {
+                @Override
+                public void run() {
+                    long[] batch = new long[ 4 ];
+                    int next = 0;
+                    while ( next < count ) {
+                        if ( next % 5 == 0 && count - next >= batch.length ) {
+                            for ( int i = 0; i < batch.length; i++ ) {
+                                batch[ i ] = base + next + i;
+                            }
+                            int offered = queue.offer( batch, 0, batch.length );
+                            if ( offered == 0 ) {
+                                Thread.yield();
+                            }
+                            next += offered;
+                        } else if ( queue.offer( base + next ) ) {
+                            next++;
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[ t ].start();
+        }
+
+        // values of each producer arrive in the order it offered them
+        long[] expected = new long[ producers ];
+        long[] dest = new long[ 8 ];
+        int received = 0;
+        while ( received < producers * count ) {
+            int drained = 0;
+            if ( received % 2 == 0 ) {
+                drained = queue.drainTo( dest );
+            } else {
+                long value = queue.poll();
+                if ( value != -1 ) {
+                    dest[ drained++ ] = value;
+                }
+            }
+            if ( drained == 0 ) {
+                Thread.yield();
+            }
+            for ( int i = 0; i < drained; i++ ) {
+                int producer = ( int ) ( dest[ i ] >>> 32 );
+                assertEquals( expected[ producer ]++, dest[ i ] & 0xFFFFFFFFL );
+            }
+            received += drained;
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        assertTrue( queue.isEmpty() );
+    }
+}
@@ -0,0 +1,197 @@
+package gnu.trove.queue.array;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.procedure.TLongIntProcedure;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+
+public class TPriorityQueueTest extends TestCase {
+
+    public TPriorityQueueTest( String name ) {
+        super( name );
+    }
+
+
+    public void testOfferPoll() {
+        TIntPriorityQueue queue = new TIntPriorityQueue( 1, false, -1 );
+        assertEquals( -1, queue.peek() );
+        assertEquals( -1, queue.poll() );
+        try {
+            queue.element();
+            fail( "Expected NoSuchElementException" );
+        } catch ( NoSuchElementException expected ) {
+            // expected
+        }
+
+        Random random = new Random( 42 );
+        PriorityQueue<Integer> expected = new PriorityQueue<Integer>();
+        for ( int i = 0; i < 10000; i++ ) {
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.isEmpty() ? -1 : expected.poll().intValue(),
+                    queue.poll() );
+            } else {
+                int value = random.nextInt( 1000 ) - 500;
+                expected.add( value );
+                assertTrue( queue.offer( value ) );
+            }
+            assertEquals( expected.size(), queue.size() );
+        }
+        while ( ! expected.isEmpty() ) {
+            assertEquals( expected.peek().intValue(), queue.peek() );
+            assertEquals( expected.poll().intValue(), queue.element() );
+        }
+        assertTrue( queue.isEmpty() );
+    }
+
+
+    public void testReverse() {
+        TDoublePriorityQueue queue =
+            new TDoublePriorityQueue( new double[] { 1.5, -3, 7, 0, 2 }, true );
+        assertTrue( queue.isReverse() );
+        double[] polled = new double[ queue.size() ];
+        for ( int i = 0; i < polled.length; i++ ) {
+            polled[ i ] = queue.poll();
+        }
+        assertTrue( Arrays.equals( new double[] { 7, 2, 1.5, 0, -3 }, polled ) );
+    }
+
+
+    public void testHeapify() {
+        TIntArrayList list = new TIntArrayList();
+        for ( int i = 1000; i-- > 0; ) {
+            list.add( i % 37 );
+        }
+        TIntPriorityQueue queue = new TIntPriorityQueue( list );
+        assertEquals( list.size(), queue.size() );
+        list.sort();
+        for ( int i = 0; i < list.size(); i++ ) {
+            assertEquals( list.get( i ), queue.poll() );
+        }
+
+        queue = new TIntPriorityQueue( new int[] { 5, 3, 9 } );
+        TIntPriorityQueue reversed = new TIntPriorityQueue( queue, true );
+        assertEquals( 3, queue.peek() );
+        assertEquals( 9, reversed.peek() );
+        assertEquals( 3, new TIntPriorityQueue( queue ).peek() );
+
+        assertTrue( queue.addAll( new int[] { 8, 1, 7, 2, 6 } ) );
+        int[] expected = { 1, 2, 3, 5, 6, 7, 8, 9 };
+        for ( int value : expected ) {
+            assertEquals( value, queue.poll() );
+        }
+    }
+
+
+    public void testRemove() {
+        TIntPriorityQueue queue = new TIntPriorityQueue();
+        for ( int i = 0; i < 100; i++ ) {
+            queue.add( ( i * 37 ) % 100 );
+        }
+        assertTrue( queue.contains( 50 ) );
+        assertTrue( queue.remove( 50 ) );
+        assertFalse( queue.remove( 50 ) );
+        assertTrue( queue.removeAll( new int[] { 0, 1, 2 } ) );
+        assertTrue( queue.retainAll( new int[] { 3, 4, 5, 6, 97, 98, 99 } ) );
+        assertEquals( 7, queue.size() );
+
+        // removing through the iterator visits every value exactly once
+        int[] seen = new int[ 100 ];
+        for ( TIntIterator iter = queue.iterator(); iter.hasNext(); ) {
+            int value = iter.next();
+            seen[ value ]++;
+            if ( value % 2 == 0 ) {
+                iter.remove();
+            }
+        }
+        for ( int value : new int[] { 3, 4, 5, 6, 97, 98, 99 } ) {
+            assertEquals( 1, seen[ value ] );
+        }
+        int[] expected = { 3, 5, 97, 99 };
+        assertEquals( expected.length, queue.size() );
+        for ( int value : expected ) {
+            assertEquals( value, queue.poll() );
+        }
+    }
+
+
+    public void testIteratorRemoveAll() {
+        Random random = new Random( 7 );
+        TIntPriorityQueue queue = new TIntPriorityQueue();
+        for ( int i = 0; i < 1000; i++ ) {
+            queue.add( random.nextInt( 10000 ) );
+        }
+        int count = 0;
+        for ( TIntIterator iter = queue.iterator(); iter.hasNext(); ) {
+            iter.next();
+            iter.remove();
+            count++;
+        }
+        assertEquals( 1000, count );
+        assertTrue( queue.isEmpty() );
+    }
+
+
+    public void testSerialization() throws Exception {
+        TIntPriorityQueue queue = new TIntPriorityQueue( 10, true, -1 );
+        queue.addAll( new int[] { 4, 8, 1, 9 } );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( queue );
+        out.close();
+        TIntPriorityQueue copy = ( TIntPriorityQueue ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+
+        assertTrue( copy.isReverse() );
+        assertEquals( -1, copy.getNoEntryValue() );
+        for ( int value : new int[] { 9, 8, 4, 1 } ) {
+            assertEquals( value, copy.poll() );
+        }
+    }
+
+
+    public void testKeyValue() throws Exception {
+        TLongIntPriorityQueue queue = new TLongIntPriorityQueue(
+            new long[] { 30, 10, 20 }, new int[] { 3, 1, 2 } );
+        queue.offer( 5, 0 );
+        queue.offer( 40, 4 );
+        assertEquals( 5, queue.peekKey() );
+        assertEquals( 0, queue.peekValue() );
+
+        final long[] sum = new long[ 1 ];
+        queue.forEachEntry( new TLongIntProcedure() {
+            @Override
+            public boolean execute( long key, int value ) {
+                assertEquals( key, value == 0 ? 5 : value * 10 );
+                sum[ 0 ] += value;
+                return true;
+            }
+        } );
+        assertEquals( 10, sum[ 0 ] );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( queue );
+        out.close();
+        TLongIntPriorityQueue copy = ( TLongIntPriorityQueue ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+
+        for ( int value = 0; value <= 4; value++ ) {
+            assertEquals( value, queue.poll() );
+            assertEquals( value, copy.poll() );
+        }
+        assertTrue( queue.isEmpty() );
+        assertEquals( queue.getNoEntryValue(), queue.poll() );
+        assertEquals( queue.getNoEntryKey(), queue.peekKey() );
+    }
+}
@@ -517,6 +517,81 @@ public class TLinkedHashSetTest extends TestCase {
     }
 
 
+    public void testOrderAfterRemovalsAndRehash() throws Exception {
+        TLinkedHashSet<Integer> set = new TLinkedHashSet<Integer>( 4 );
+        List<Integer> expected = new ArrayList<Integer>();
+        for ( int i = 0; i < 1000; i++ ) {
+            Integer value = Integer.valueOf( ( i * 7919 ) % 1000 );
+            set.add( value );
+            expected.add( value );
+            if ( i % 3 == 0 ) {
+                Integer removed = expected.remove( expected.size() / 2 );
+                assertTrue( set.remove( removed ) );
+            }
+        }
+        assertEquals( expected, new ArrayList<Integer>( set ) );
+
+        set.compact();
+        assertEquals( expected, new ArrayList<Integer>( set ) );
+
+        for ( Iterator<Integer> it = set.iterator(); it.hasNext(); ) {
+            if ( it.next() % 2 == 0 ) {
+                it.remove();
+            }
+        }
+        for ( Iterator<Integer> it = expected.iterator(); it.hasNext(); ) {
+            if ( it.next() % 2 == 0 ) {
+                it.remove();
+            }
+        }
+        assertEquals( expected, Arrays.asList( set.toArray() ) );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( set );
+        out.close();
+        @SuppressWarnings("unchecked")
+        TLinkedHashSet<Integer> copy = ( TLinkedHashSet<Integer> ) new ObjectInputStream(
+                new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( expected, new ArrayList<Integer>( copy ) );
+    }
+
+
+    public void testAccessOrderEviction() throws Exception {
+        TLinkedHashSet<String> lru = new TLinkedHashSet<String>( 4, 0.5f, true ) {
+            @Override
+            protected boolean removeEldestEntry( String eldest ) {
+                return size() > 3;
+            }
+        };
+        assertTrue( lru.isAccessOrder() );
+        lru.add( "a" );
+        lru.add( "b" );
+        lru.add( "c" );
+        assertTrue( lru.contains( "a" ) );
+        assertFalse( lru.add( "b" ) );
+        assertEquals( Arrays.asList( "c", "a", "b" ), new ArrayList<String>( lru ) );
+
+        // evicts the least recently used
+        lru.add( "d" );
+        assertEquals( Arrays.asList( "a", "b", "d" ), new ArrayList<String>( lru ) );
+        assertFalse( lru.contains( "c" ) );
+
+        for ( int i = 0; i < 100; i++ ) {
+            lru.add( "e" + i );
+        }
+        assertEquals( 3, lru.size() );
+        assertEquals( Arrays.asList( "e97", "e98", "e99" ), new ArrayList<String>( lru ) );
+
+        TLinkedHashSet<String> insertion = new TLinkedHashSet<String>();
+        insertion.add( "a" );
+        insertion.add( "b" );
+        assertTrue( insertion.contains( "a" ) );
+        assertFalse( insertion.add( "a" ) );
+        assertEquals( Arrays.asList( "a", "b" ), new ArrayList<String>( insertion ) );
+    }
+
+
     // in this junk class, all instances hash to the same
     // address, but some objects claim to be equal where
     // others do not.
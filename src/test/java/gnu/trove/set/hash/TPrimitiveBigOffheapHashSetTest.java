@@ -0,0 +1,75 @@
+package gnu.trove.set.hash;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import gnu.trove.array.NativeAllocator;
+import gnu.trove.procedure.TLongProcedure;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveBigOffheapHashSetTest extends TestCase {
+
+    public TPrimitiveBigOffheapHashSetTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAddContainsRemove() {
+        TIntBigOffheapHashSet set = new TIntBigOffheapHashSet();
+        assertTrue( set.add( 1 ) );
+        assertTrue( set.add( 2 ) );
+        assertFalse( set.add( 1 ) );
+        assertEquals( 2, set.size() );
+        assertTrue( set.contains( 1 ) );
+        assertFalse( set.contains( 3 ) );
+        assertTrue( set.remove( 1 ) );
+        assertFalse( set.remove( 1 ) );
+        assertEquals( 1, set.size() );
+        assertEquals( "{2}", set.toString() );
+
+        assertTrue( set.addAll( new int[] { 2, 3, 4 } ) );
+        assertFalse( set.addAll( new int[] { 3, 4 } ) );
+        assertEquals( 3, set.size() );
+        set.free();
+    }
+
+
+    public void testFloatingPoint() {
+        TDoubleBigOffheapHashSet set = new TDoubleBigOffheapHashSet();
+        assertTrue( set.add( 0.5 ) );
+        assertTrue( set.add( -0.5 ) );
+        assertTrue( set.contains( 0.5 ) );
+        assertFalse( set.contains( 1.5 ) );
+        set.free();
+    }
+
+
+    public void testRandomAgainstHashSet() {
+        Random random = new Random( 4321 );
+        TLongBigOffheapHashSet set = new TLongBigOffheapHashSet( 8, 0.8f, 4, NativeAllocator.INSTANCE );
+        Set<Long> expected = new HashSet<Long>();
+        for ( int i = 0; i < 50000; i++ ) {
+            long value = random.nextInt( 3000 ) * 1024L;
+            if ( random.nextInt( 3 ) > 0 ) {
+                assertEquals( expected.add( value ), set.add( value ) );
+            }
+            else {
+                assertEquals( expected.remove( value ), set.remove( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        final long[] count = new long[1];
+        final Set<Long> finalExpected = expected;
+        set.forEach( new TLongProcedure() {
+            public boolean execute( long value ) {
+                assertTrue( finalExpected.contains( value ) );
+                count[0]++;
+                return true;
+            }
+        } );
+        assertEquals( expected.size(), count[0] );
+        set.free();
+    }
+}
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Random;
 
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.procedure.TIntProcedure;
@@ -373,6 +374,25 @@ public class TPrimitiveOffheapHashSetTest extends TestCase {
     }
 
 
+    public void testRehashInPlace() {
+        Random random = new Random(5);
+        TLongOffheapHashSet set = new TLongOffheapHashSet(4);
+        TLongHashSet expected = new TLongHashSet(4);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextInt(30000) * 0x9E3779B97F4A7C15L;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected, set);
+        for (long value : expected.toArray()) {
+            assertTrue(set.contains(value));
+        }
+    }
+
+
     public void testIterator() {
 
         TIntSet set = new TIntOffheapHashSet();
@@ -0,0 +1,65 @@
+package gnu.trove.set.hash;
+
+import java.util.Random;
+
+import gnu.trove.set.TIntSet;
+import junit.framework.TestCase;
+
+
+public class TPrimitivePowerOfTwoHashSetTest extends TestCase {
+
+    public TPrimitivePowerOfTwoHashSetTest( String name ) {
+        super( name );
+    }
+
+
+    public void testCapacity() {
+        TIntPowerOfTwoHashSet set = new TIntPowerOfTwoHashSet( 1000 );
+        int capacity = set.capacity();
+        assertEquals( 0, capacity & ( capacity - 1 ) );
+        for ( int i = 0; i < 1000; i++ ) {
+            set.add( i );
+        }
+        assertEquals( capacity, set.capacity() );
+        assertEquals( 4, new TIntPowerOfTwoHashSet( 1 ).capacity() );
+
+        TIntPowerOfTwoOffheapHashSet offheap = new TIntPowerOfTwoOffheapHashSet( 1000 );
+        assertEquals( capacity, offheap.capacity() );
+    }
+
+
+    public void testEveryByte() {
+        TBytePowerOfTwoHashSet set = new TBytePowerOfTwoHashSet( 1 );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.add( ( byte ) i ) );
+        }
+        assertEquals( 256, set.size() );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.contains( ( byte ) i ) );
+        }
+    }
+
+
+    public void testAgainstPrimeSet() {
+        compareWithPrimeSet( new TIntPowerOfTwoHashSet( 4 ), 1 );
+        compareWithPrimeSet( new TIntPowerOfTwoOffheapHashSet( 4 ), 2 );
+    }
+
+
+    private static void compareWithPrimeSet( TIntSet set, long seed ) {
+        Random random = new Random( seed );
+        TIntHashSet expected = new TIntHashSet();
+        for ( int i = 0; i < 100000; i++ ) {
+            // multiples of a large power of two, which share their low bits
+            int value = random.nextInt( 3000 ) << 20;
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( value ), set.remove( value ) );
+            } else {
+                assertEquals( expected.add( value ), set.add( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        assertEquals( expected, set );
+        assertEquals( set, expected );
+    }
+}
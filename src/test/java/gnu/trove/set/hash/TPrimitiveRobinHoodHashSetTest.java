@@ -0,0 +1,215 @@
+package gnu.trove.set.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import gnu.trove.impl.HashFunctions;
+import gnu.trove.iterator.TIntIterator;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveRobinHoodHashSetTest extends TestCase {
+
+    public TPrimitiveRobinHoodHashSetTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAddContainsRemove() {
+        TIntRobinHoodHashSet set = new TIntRobinHoodHashSet();
+        assertTrue( set.add( 1 ) );
+        assertFalse( set.add( 1 ) );
+        assertTrue( set.add( 0 ) );
+        assertTrue( set.add( -1 ) );
+        assertEquals( 3, set.size() );
+        assertTrue( set.contains( 0 ) );
+        assertTrue( set.contains( -1 ) );
+        assertFalse( set.contains( 2 ) );
+        assertTrue( set.remove( 1 ) );
+        assertFalse( set.remove( 1 ) );
+        assertFalse( set.contains( 1 ) );
+        assertEquals( 2, set.size() );
+        set.clear();
+        assertTrue( set.isEmpty() );
+        assertFalse( set.contains( 0 ) );
+    }
+
+
+    public void testCapacity() {
+        TLongRobinHoodHashSet set = new TLongRobinHoodHashSet( 1000 );
+        int capacity = set.capacity();
+        assertEquals( 0, capacity & ( capacity - 1 ) );
+        for ( long i = 0; i < 1000; i++ ) {
+            set.add( i * 31 );
+        }
+        assertEquals( capacity, set.capacity() );
+        assertEquals( 2, new TLongRobinHoodHashSet( 1 ).capacity() );
+    }
+
+
+    public void testChurnDoesNotRehash() {
+        TIntRobinHoodHashSet set = new TIntRobinHoodHashSet( 1000 );
+        for ( int i = 0; i < 1000; i++ ) {
+            set.add( i );
+        }
+        int capacity = set.capacity();
+        // a table with tombstones would have to rehash to reclaim them
+        for ( int i = 1000; i < 1000000; i++ ) {
+            assertTrue( set.remove( i - 1000 ) );
+            assertTrue( set.add( i ) );
+        }
+        assertEquals( capacity, set.capacity() );
+        assertEquals( 1000, set.size() );
+        assertDistances( set );
+    }
+
+
+    public void testEveryByte() {
+        TByteRobinHoodHashSet set = new TByteRobinHoodHashSet( 1 );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.add( ( byte ) i ) );
+        }
+        assertEquals( 256, set.size() );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.contains( ( byte ) i ) );
+        }
+    }
+
+
+    public void testRandomAgainstHashSet() {
+        Random random = new Random( 7 );
+        TIntRobinHoodHashSet set = new TIntRobinHoodHashSet( 4 );
+        Set<Integer> expected = new HashSet<Integer>();
+        for ( int i = 0; i < 200000; i++ ) {
+            int value = random.nextInt( 5000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( value ), set.remove( value ) );
+            } else {
+                assertEquals( expected.add( value ), set.add( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        for ( int value = 0; value < 5000; value++ ) {
+            assertEquals( expected.contains( value ), set.contains( value ) );
+        }
+        assertDistances( set );
+        assertEquals( new TIntHashSet( set ), set );
+    }
+
+
+    public void testIteratorRemove() {
+        TIntRobinHoodHashSet set = new TIntRobinHoodHashSet();
+        for ( int i = 0; i < 1000; i++ ) {
+            set.add( i );
+        }
+        TIntIterator iterator = set.iterator();
+        int seen = 0;
+        while ( iterator.hasNext() ) {
+            int value = iterator.next();
+            if ( ( value & 1 ) == 0 ) {
+                iterator.remove();
+            }
+            seen++;
+        }
+        assertEquals( 1000, seen );
+        assertEquals( 500, set.size() );
+        for ( int i = 0; i < 1000; i++ ) {
+            assertEquals( ( i & 1 ) == 1, set.contains( i ) );
+        }
+    }
+
+
+    public void testIteratorRemoveAcrossWrap() {
+        // small full tables, so that runs often wrap from the last slot to
+        // the first one, and removes shift entries back across the wrap
+        Random random = new Random( 3 );
+        for ( int round = 0; round < 2000; round++ ) {
+            TIntRobinHoodHashSet set = new TIntRobinHoodHashSet( 4, 0.9f );
+            Set<Integer> expected = new HashSet<Integer>();
+            while ( expected.size() < 7 ) {
+                int value = random.nextInt();
+                expected.add( value );
+                set.add( value );
+            }
+            Set<Integer> seen = new HashSet<Integer>();
+            for ( TIntIterator iterator = set.iterator(); iterator.hasNext(); ) {
+                assertTrue( seen.add( iterator.next() ) );
+                if ( random.nextBoolean() ) {
+                    iterator.remove();
+                }
+            }
+            assertEquals( expected, seen );
+            assertDistances( set );
+        }
+    }
+
+
+    public void testRetainAll() {
+        Random random = new Random( 5 );
+        for ( int round = 0; round < 500; round++ ) {
+            TIntRobinHoodHashSet set = new TIntRobinHoodHashSet( 12, 0.9f );
+            Set<Integer> expected = new HashSet<Integer>();
+            for ( int i = 0; i < 14; i++ ) {
+                int value = random.nextInt( 100 );
+                set.add( value );
+                if ( ( value & 1 ) == 0 ) {
+                    expected.add( value );
+                }
+            }
+            int[] evens = new int[50];
+            for ( int i = 0; i < evens.length; i++ ) {
+                evens[i] = i * 2;
+            }
+            set.retainAll( evens );
+            assertEquals( expected.size(), set.size() );
+            for ( int value : expected ) {
+                assertTrue( set.contains( value ) );
+            }
+            assertDistances( set );
+        }
+    }
+
+
+    public void testSerialize() throws Exception {
+        TLongRobinHoodHashSet set = new TLongRobinHoodHashSet( 10, 0.5f, -1L );
+        for ( long i = 0; i < 100; i++ ) {
+            set.add( i << 40 );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( set );
+        out.close();
+        TLongRobinHoodHashSet copy = ( TLongRobinHoodHashSet ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( set, copy );
+        assertEquals( -1L, copy.getNoEntryValue() );
+        assertTrue( copy.contains( 99L << 40 ) );
+    }
+
+
+    /**
+     * Checks that each slot records the distance of its entry from home,
+     * and that no entry is further from home than the one after it allows.
+     */
+    private static void assertDistances( TIntRobinHoodHashSet set ) {
+        int mask = set.capacity() - 1;
+        int full = 0;
+        for ( int i = 0; i <= mask; i++ ) {
+            int stored = set._distances[i] & 0xFF;
+            if ( stored == 0 ) {
+                continue;
+            }
+            full++;
+            int home = ( int ) HashFunctions.hash64( set._set[i] ) & mask;
+            assertEquals( ( i - home ) & mask, stored - 1 );
+            int next = set._distances[( i + 1 ) & mask] & 0xFF;
+            assertTrue( next <= stored + 1 );
+        }
+        assertEquals( set.size(), full );
+    }
+}
@@ -0,0 +1,136 @@
+package gnu.trove.set.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import gnu.trove.iterator.TIntIterator;
+import junit.framework.TestCase;
+
+
+public class TPrimitiveSwissHashSetTest extends TestCase {
+
+    public TPrimitiveSwissHashSetTest( String name ) {
+        super( name );
+    }
+
+
+    public void testAddContainsRemove() {
+        TIntSwissHashSet set = new TIntSwissHashSet();
+        assertTrue( set.add( 1 ) );
+        assertFalse( set.add( 1 ) );
+        assertTrue( set.add( 0 ) );
+        assertTrue( set.add( -1 ) );
+        assertEquals( 3, set.size() );
+        assertTrue( set.contains( 0 ) );
+        assertTrue( set.contains( -1 ) );
+        assertFalse( set.contains( 2 ) );
+        assertTrue( set.remove( 1 ) );
+        assertFalse( set.remove( 1 ) );
+        assertFalse( set.contains( 1 ) );
+        assertEquals( 2, set.size() );
+        set.clear();
+        assertTrue( set.isEmpty() );
+        assertFalse( set.contains( 0 ) );
+    }
+
+
+    public void testCapacity() {
+        TLongSwissHashSet set = new TLongSwissHashSet( 1000 );
+        int capacity = set.capacity();
+        assertEquals( 0, capacity & ( capacity - 1 ) );
+        for ( long i = 0; i < 1000; i++ ) {
+            set.add( i * 31 );
+        }
+        assertEquals( capacity, set.capacity() );
+        assertEquals( 8, new TLongSwissHashSet( 1 ).capacity() );
+    }
+
+
+    public void testEveryByte() {
+        TByteSwissHashSet set = new TByteSwissHashSet( 1 );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.add( ( byte ) i ) );
+        }
+        assertEquals( 256, set.size() );
+        for ( int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++ ) {
+            assertTrue( set.contains( ( byte ) i ) );
+        }
+    }
+
+
+    public void testFloatingPoint() {
+        TDoubleSwissHashSet set = new TDoubleSwissHashSet();
+        set.add( 0.5 );
+        set.add( -0.0 );
+        set.add( Double.MAX_VALUE );
+        assertTrue( set.contains( 0.5 ) );
+        assertTrue( set.contains( Double.MAX_VALUE ) );
+        assertFalse( set.contains( 1.5 ) );
+    }
+
+
+    public void testRandomAgainstHashSet() {
+        Random random = new Random( 7 );
+        TIntSwissHashSet set = new TIntSwissHashSet( 4 );
+        Set<Integer> expected = new HashSet<Integer>();
+        // small key range and many removes, so that lookups have to probe
+        // past deleted slots
+        for ( int i = 0; i < 200000; i++ ) {
+            int value = random.nextInt( 5000 );
+            if ( random.nextInt( 3 ) == 0 ) {
+                assertEquals( expected.remove( value ), set.remove( value ) );
+            } else {
+                assertEquals( expected.add( value ), set.add( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        for ( int value = 0; value < 5000; value++ ) {
+            assertEquals( expected.contains( value ), set.contains( value ) );
+        }
+        assertEquals( new TIntHashSet( set ), set );
+    }
+
+
+    public void testIteratorRemove() {
+        TIntSwissHashSet set = new TIntSwissHashSet();
+        for ( int i = 0; i < 1000; i++ ) {
+            set.add( i );
+        }
+        TIntIterator iterator = set.iterator();
+        int seen = 0;
+        while ( iterator.hasNext() ) {
+            int value = iterator.next();
+            if ( ( value & 1 ) == 0 ) {
+                iterator.remove();
+            }
+            seen++;
+        }
+        assertEquals( 1000, seen );
+        assertEquals( 500, set.size() );
+        for ( int i = 0; i < 1000; i++ ) {
+            assertEquals( ( i & 1 ) == 1, set.contains( i ) );
+        }
+    }
+
+
+    public void testSerialize() throws Exception {
+        TLongSwissHashSet set = new TLongSwissHashSet( 10, 0.5f, -1L );
+        for ( long i = 0; i < 100; i++ ) {
+            set.add( i << 40 );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( set );
+        out.close();
+        TLongSwissHashSet copy = ( TLongSwissHashSet ) new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( set, copy );
+        assertEquals( -1L, copy.getNoEntryValue() );
+        assertTrue( copy.contains( 99L << 40 ) );
+    }
+}